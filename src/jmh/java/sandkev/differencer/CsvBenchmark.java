@@ -0,0 +1,86 @@
+package sandkev.differencer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a 64 MB CSV file of simple records: with a CsvSource, fetching each key or not, and with a
+ * BufferedReader and String.split as the wrappers it replaces did.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CsvBenchmark {
+
+    private static final long FILE_SIZE = 64L << 20;
+
+    private static final CsvSchema SCHEMA = CsvSchema.create()
+            .withColumn("book", CsvSchema.Type.STRING)
+            .withColumn("id", CsvSchema.Type.LONG)
+            .withColumn("price", CsvSchema.Type.DECIMAL)
+            .withColumn("date", CsvSchema.Type.DATE)
+            .withColumn("note", CsvSchema.Type.STRING)
+            .withKey("id");
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = Files.createTempFile("csv-benchmark-", ".csv");
+        Random random = new Random(1);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (long id = 0; Files.size(file) < FILE_SIZE; id++) {
+                for (int i = 0; i < 10_000; i++, id++) {
+                    out.write("book" + random.nextInt(1000) + "," + id + "," + random.nextInt(1_000_000) / 100.0
+                            + ",2024-01-" + (10 + random.nextInt(19)) + ",some note text\n");
+                }
+                out.flush();
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void csvSourceScanOnly(Blackhole blackhole) {
+        for (CsvRecord record : new CsvSource(file, SCHEMA)) {
+            blackhole.consume(record);
+        }
+    }
+
+    @Benchmark
+    public void csvSourceWithKeys(Blackhole blackhole) {
+        for (CsvRecord record : new CsvSource(file, SCHEMA)) {
+            blackhole.consume(record.getLong(1));
+        }
+    }
+
+    @Benchmark
+    public void bufferedReaderSplit(Blackhole blackhole) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                blackhole.consume(Long.parseLong(line.split(",")[1]));
+            }
+        }
+    }
+}
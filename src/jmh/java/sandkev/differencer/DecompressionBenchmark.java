@@ -0,0 +1,127 @@
+package sandkev.differencer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Inflating 64 MB of CSV: gzip with a plain GZIPInputStream and with a PipelinedGzipInputStream,
+ * and BGZF on one thread and on every processor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DecompressionBenchmark {
+
+    private static final int SIZE = 64 << 20;
+
+    private Path gz;
+    private Path bgz;
+    private final byte[] buffer = new byte[1 << 16];
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(1);
+        ByteArrayOutputStream csv = new ByteArrayOutputStream(SIZE);
+        for (long id = 0; csv.size() < SIZE; id++) {
+            csv.writeBytes(("book" + random.nextInt(1000) + "," + id + "," + random.nextInt(1_000_000) / 100.0
+                    + ",2024-01-" + (10 + random.nextInt(19)) + ",some note text\n").getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] data = csv.toByteArray();
+        gz = Files.createTempFile("decompression-benchmark-", ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gz), 1 << 16)) {
+            out.write(data);
+        }
+        bgz = Files.createTempFile("decompression-benchmark-", ".bgz");
+        try (OutputStream out = Files.newOutputStream(bgz)) {
+            for (int from = 0; from < data.length; from += 0xFF00) {
+                out.write(bgzfBlock(Arrays.copyOfRange(data, from, Math.min(data.length, from + 0xFF00))));
+            }
+            out.write(bgzfBlock(new byte[0]));
+        }
+    }
+
+    private static byte[] bgzfBlock(byte[] chunk) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(chunk);
+        deflater.finish();
+        byte[] compressed = new byte[chunk.length + 1024];
+        int length = deflater.deflate(compressed);
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(chunk);
+        int blockSize = 12 + 6 + length + 8;
+        ByteArrayOutputStream block = new ByteArrayOutputStream(blockSize);
+        block.writeBytes(new byte[]{0x1F, (byte) 0x8B, 8, 4, 0, 0, 0, 0, 0, (byte) 0xFF, 6, 0, 'B', 'C', 2, 0,
+                (byte) (blockSize - 1), (byte) ((blockSize - 1) >>> 8)});
+        block.write(compressed, 0, length);
+        for (long value : new long[]{crc.getValue(), chunk.length}) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                block.write((int) (value >>> shift));
+            }
+        }
+        return block.toByteArray();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(gz);
+        Files.deleteIfExists(bgz);
+    }
+
+    private long drain(InputStream in) throws IOException {
+        long total = 0;
+        try (in) {
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    private InputStream compressed(Path file) throws IOException {
+        return new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+    }
+
+    @Benchmark
+    public long gzipInputStream() throws IOException {
+        return drain(new GZIPInputStream(compressed(gz), 1 << 16));
+    }
+
+    @Benchmark
+    public long pipelinedGzip() throws IOException {
+        return drain(new PipelinedGzipInputStream(compressed(gz), null));
+    }
+
+    @Benchmark
+    public long bgzfOneThread() throws IOException {
+        return drain(new BgzfInputStream(compressed(bgz), 1, null));
+    }
+
+    @Benchmark
+    public long bgzfAllProcessors() throws IOException {
+        return drain(new BgzfInputStream(compressed(bgz), Runtime.getRuntime().availableProcessors(), null));
+    }
+}
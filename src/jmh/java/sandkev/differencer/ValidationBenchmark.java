@@ -0,0 +1,111 @@
+package sandkev.differencer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of validating the inputs of a RegularDifferencer: not at all, in the merge loop, and with
+ * a ValidatingIterable around each input.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ValidationBenchmark {
+
+    public record Row(long id, long value) implements Identifiable<Long> {
+        @Override
+        public Long getId() {
+            return id;
+        }
+    }
+
+    private static final Comparator<Row> KEY_COMPARATOR = Comparator.comparingLong(Row::id);
+
+    private static final DiffComparator<Row> DATA_COMPARATOR = (o1, o2) -> {
+        DiffSummary diffs = new DiffSummary();
+        if (o1.value() != o2.value()) {
+            diffs.addDiff("value", o2.value(), o1.value(), ComparisonResult.Changed);
+        }
+        return diffs;
+    };
+
+    /** one record in this many is only on one side */
+    @Param({"10", "2"})
+    public int unmatchedEvery;
+
+    private List<Row> expected;
+    private List<Row> actual;
+    private RegularDifferencer<Row,Long> unvalidated;
+    private RegularDifferencer<Row,Long> fused;
+
+    @Setup
+    public void setUp() {
+        expected = new ArrayList<>();
+        actual = new ArrayList<>();
+        for (long id = 0; id < 1_000_000; id++) {
+            if (id % unmatchedEvery != 1) expected.add(new Row(id, id));
+            if (id % unmatchedEvery != 0) actual.add(new Row(id, id));
+        }
+        unvalidated = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, false);
+        fused = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, true);
+    }
+
+    @Benchmark
+    public void unvalidated(Blackhole blackhole) {
+        unvalidated.computeDiff(expected, actual, new Sink(blackhole));
+    }
+
+    @Benchmark
+    public void fusedValidation(Blackhole blackhole) {
+        fused.computeDiff(expected, actual, new Sink(blackhole));
+    }
+
+    @Benchmark
+    public void validatingIterables(Blackhole blackhole) {
+        unvalidated.computeDiff(new ValidatingIterable<>(expected, KEY_COMPARATOR),
+                new ValidatingIterable<>(actual, KEY_COMPARATOR), new Sink(blackhole));
+    }
+
+    private record Sink(Blackhole blackhole) implements ComparisonResultHandler<Row,Long> {
+        @Override
+        public void onEqual(Long id) {
+            blackhole.consume(id);
+        }
+
+        @Override
+        public void onApproximatelyEqual(Long id, DiffSummary diff) {
+            blackhole.consume(diff);
+        }
+
+        @Override
+        public void onAdded(Long id, Row added) {
+            blackhole.consume(added);
+        }
+
+        @Override
+        public void onDropped(Long id, Row dropped) {
+            blackhole.consume(dropped);
+        }
+
+        @Override
+        public void onChanged(Long id, DiffSummary diff) {
+            blackhole.consume(diff);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package sandkev.differencer;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses numbers and dates straight from the bytes of a buffer, for the file sources, falling back
+ * to the JDK's parsers only for forms they do not handle themselves.
+ */
+final class AsciiParsing {
+
+    /** the most digits whose value certainly fits in a long */
+    private static final int LONG_DIGITS = 18;
+
+    private AsciiParsing() {
+    }
+
+    static String decode(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @throws NumberFormatException unless the bytes are an optionally signed run of digits that
+     *         fits in a long
+     */
+    static long parseLong(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i++) == '-';
+        }
+        if (i == to) {
+            throw notA("long", buffer, from, to);
+        }
+        // accumulate negatively so that Long.MIN_VALUE parses
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || value < (Long.MIN_VALUE + digit) / 10) {
+                throw notA("long", buffer, from, to);
+            }
+            value = value * 10 - digit;
+        }
+        if (!negative && value == Long.MIN_VALUE) {
+            throw notA("long", buffer, from, to);
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Parses a plain decimal such as -12.345 without creating a String; anything longer than 18
+     * digits, or with an exponent, goes through {@link BigDecimal#BigDecimal(String)}.
+     *
+     * @throws NumberFormatException if the bytes are not a decimal
+     */
+    static BigDecimal parseDecimal(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (buffer.get(i) == '-' || buffer.get(i) == '+')) {
+            negative = buffer.get(i++) == '-';
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && !point) {
+                point = true;
+            } else if (b >= '0' && b <= '9' && digits < LONG_DIGITS) {
+                unscaled = unscaled * 10 + (b - '0');
+                digits++;
+                if (point) {
+                    scale++;
+                }
+            } else {
+                break;
+            }
+        }
+        if (i < to || digits == 0) {
+            try {
+                return new BigDecimal(decode(buffer, from, to));
+            } catch (NumberFormatException e) {
+                throw notA("decimal", buffer, from, to);
+            }
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    /**
+     * @throws DateTimeParseException if the bytes are not an ISO date such as 2024-02-29
+     */
+    static LocalDate parseIsoDate(ByteBuffer buffer, int from, int to) {
+        if (to - from == 10 && buffer.get(from + 4) == '-' && buffer.get(from + 7) == '-') {
+            int year = digits(buffer, from, from + 4);
+            int month = digits(buffer, from + 5, from + 7);
+            int day = digits(buffer, from + 8, from + 10);
+            if (year >= 0 && month >= 0 && day >= 0) {
+                try {
+                    return LocalDate.of(year, month, day);
+                } catch (DateTimeException e) {
+                    throw new DateTimeParseException(e.getMessage(), decode(buffer, from, to), 0, e);
+                }
+            }
+        }
+        return LocalDate.parse(decode(buffer, from, to));
+    }
+
+    private static int digits(ByteBuffer buffer, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static NumberFormatException notA(String type, ByteBuffer buffer, int from, int to) {
+        return new NumberFormatException("not a " + type + ": \"" + decode(buffer, from, to) + "\"");
+    }
+}
@@ -0,0 +1,93 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.BatchComparisonResultHandler;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffComparator;
+
+/**
+ * Fills one reusable {@link ComparisonResultBatch} and hands it to a
+ * {@link BatchComparisonResultHandler} each time it is full. The merge loop writes into it as a
+ * {@link RegularDifferencer.MergeSink}, comparing matched pairs itself, so no per-event handler call
+ * is made; per-event callbacks are taken too, from engines that deliver that way. Call
+ * {@link #flush()} after the last event.
+ */
+class BatchingResultHandler<T,K> implements ComparisonResultHandler<T,K>, RegularDifferencer.MergeSink<T,K> {
+
+    private final ComparisonResultBatch<T,K> batch;
+    private final BatchComparisonResultHandler<T,K> target;
+    private final DiffComparator<? super T> dataComparator;
+
+    /**
+     * @param dataComparator compares the pairs matched by the merge loop
+     */
+    BatchingResultHandler(BatchComparisonResultHandler<T,K> target, int batchSize,
+                          DiffComparator<? super T> dataComparator) {
+        this.target = target;
+        this.batch = new ComparisonResultBatch<>(batchSize);
+        this.dataComparator = dataComparator;
+    }
+
+    @Override
+    public void added(K id, T actual) {
+        add(ComparisonResult.Added, id, actual, null);
+    }
+
+    @Override
+    public void dropped(K id, T expected) {
+        add(ComparisonResult.Dropped, id, expected, null);
+    }
+
+    @Override
+    public void matched(K id, T expected, T actual) {
+        DiffSummary d = RegularDifferencer.diffOrNull(dataComparator, expected, actual);
+        add(RegularDifferencer.outcome(d), id, null, d);
+    }
+
+    @Override
+    public void equal(K id, T expected, T actual) {
+        onEqual(id);
+    }
+
+    @Override
+    public void onEqual(K id) {
+        add(ComparisonResult.Equal, id, null, null);
+    }
+
+    @Override
+    public void onApproximatelyEqual(K id, DiffSummary diff) {
+        add(ComparisonResult.ApproximatelyEqual, id, null, diff);
+    }
+
+    @Override
+    public void onAdded(K id, T added) {
+        add(ComparisonResult.Added, id, added, null);
+    }
+
+    @Override
+    public void onDropped(K id, T dropped) {
+        add(ComparisonResult.Dropped, id, dropped, null);
+    }
+
+    @Override
+    public void onChanged(K id, DiffSummary diff) {
+        add(ComparisonResult.Changed, id, null, diff);
+    }
+
+    private void add(ComparisonResult type, K id, T record, DiffSummary diff) {
+        batch.add(type, id, record, diff);
+        if (batch.isFull()) {
+            flush();
+        }
+    }
+
+    /**
+     * Delivers any events still in the batch.
+     */
+    void flush() {
+        if (batch.size() > 0) {
+            target.onBatch(batch);
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package sandkev.differencer;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Inflates a BGZF file, as written by bgzip and htslib, with its blocks inflated in parallel and
+ * read back in order. BGZF is a series of gzip members of at most 64 KB, each recording its own size
+ * in a header field, so blocks can be cut from the stream without inflating them first.
+ *
+ * <p>The compressed blocks are read on the caller's thread, a few per inflating thread ahead of
+ * the reader, and each block's CRC and length are checked. The time spent inflating is added to
+ * the metrics, if given, apart from the time spent reading.
+ */
+public class BgzfInputStream extends InputStream {
+
+    static final int MAX_BLOCK_SIZE = 1 << 16;
+    private static final int HEADER_SIZE = 12;
+    private static final int TRAILER_SIZE = 8;
+    private static final int BLOCKS_PER_THREAD = 4;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final InputStream in;
+    private final DiffMetrics metrics;
+    private final ExecutorService inflaters;
+    private final int inFlight;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private byte[] current = EMPTY;
+    private int position;
+    private boolean eof;
+
+    /**
+     * @param in      the compressed stream, closed with this one
+     * @param threads how many blocks to inflate at once
+     * @param metrics where inflate time and sizes are recorded, or null
+     */
+    public BgzfInputStream(InputStream in, int threads, DiffMetrics metrics) {
+        this.in = requireNonNull(in, "in must not be null");
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.metrics = metrics;
+        this.inflaters = Executors.newFixedThreadPool(threads, Thread.ofPlatform().daemon().name("bgzf-inflate-", 0).factory());
+        this.inFlight = threads * BLOCKS_PER_THREAD;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? current[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    private boolean fill() throws IOException {
+        while (position == current.length) {
+            readAhead();
+            if (pending.isEmpty()) {
+                return false;
+            }
+            current = await(pending.removeFirst());
+            position = 0;
+        }
+        return true;
+    }
+
+    private void readAhead() throws IOException {
+        while (!eof && pending.size() < inFlight) {
+            byte[] block = readBlock();
+            if (block == null) {
+                eof = true;
+            } else {
+                pending.add(inflaters.submit(() -> inflate(block)));
+            }
+        }
+    }
+
+    private byte[] await(Future<byte[]> block) throws IOException {
+        try {
+            return block.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while inflating", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * @return the next whole block, or null at the end of the stream
+     */
+    private byte[] readBlock() throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int read = in.readNBytes(header, 0, HEADER_SIZE);
+        if (read == 0) {
+            return null;
+        }
+        if (read < HEADER_SIZE) {
+            throw new EOFException("truncated BGZF block header");
+        }
+        if ((header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B || header[2] != 8 || (header[3] & 4) == 0) {
+            throw new ZipException("not a BGZF block: no gzip header with an extra field");
+        }
+        int extraLength = unsignedShort(header, 10);
+        byte[] extra = in.readNBytes(extraLength);
+        if (extra.length < extraLength) {
+            throw new EOFException("truncated BGZF block header");
+        }
+        int blockSize = blockSize(extra);
+        int rest = blockSize - HEADER_SIZE - extraLength;
+        if (rest < TRAILER_SIZE) {
+            throw new ZipException("BGZF block size too small: " + blockSize);
+        }
+        byte[] block = new byte[blockSize];
+        System.arraycopy(header, 0, block, 0, HEADER_SIZE);
+        System.arraycopy(extra, 0, block, HEADER_SIZE, extraLength);
+        if (in.readNBytes(block, HEADER_SIZE + extraLength, rest) < rest) {
+            throw new EOFException("truncated BGZF block");
+        }
+        return block;
+    }
+
+    /**
+     * @return the whole block's size, from the BC subfield of the extra field
+     */
+    private static int blockSize(byte[] extra) throws ZipException {
+        for (int i = 0; i + 4 <= extra.length; i += 4 + unsignedShort(extra, i + 2)) {
+            if (extra[i] == 'B' && extra[i + 1] == 'C' && unsignedShort(extra, i + 2) == 2 && i + 6 <= extra.length) {
+                return unsignedShort(extra, i + 4) + 1;
+            }
+        }
+        throw new ZipException("not a BGZF block: no BC field");
+    }
+
+    private byte[] inflate(byte[] block) throws IOException {
+        long start = System.nanoTime();
+        int extraLength = unsignedShort(block, 10);
+        int dataStart = HEADER_SIZE + extraLength;
+        int trailer = block.length - TRAILER_SIZE;
+        long crc = unsignedInt(block, trailer);
+        long size = unsignedInt(block, trailer + 4);
+        if (size > MAX_BLOCK_SIZE) {
+            throw new ZipException("BGZF block inflates to more than 64 KB: " + size);
+        }
+        byte[] inflated = new byte[(int) size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(block, dataStart, trailer - dataStart);
+            int n = 0;
+            while (n < inflated.length && !inflater.finished()) {
+                int more = inflater.inflate(inflated, n, inflated.length - n);
+                if (more == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += more;
+            }
+            if (n != inflated.length) {
+                throw new ZipException("BGZF block inflated to " + n + " bytes, expected " + size);
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException("corrupt BGZF block: " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        CRC32 check = new CRC32();
+        check.update(inflated);
+        if (check.getValue() != crc) {
+            throw new ZipException("BGZF block CRC mismatch");
+        }
+        if (metrics != null) {
+            metrics.recordInflate(System.nanoTime() - start, block.length, inflated.length);
+        }
+        return inflated;
+    }
+
+    private static int unsignedShort(byte[] bytes, int at) {
+        return (bytes[at] & 0xFF) | (bytes[at + 1] & 0xFF) << 8;
+    }
+
+    private static long unsignedInt(byte[] bytes, int at) {
+        return unsignedShort(bytes, at) | (long) unsignedShort(bytes, at + 2) << 16;
+    }
+
+    /**
+     * Stops the inflating threads and closes the compressed stream.
+     */
+    @Override
+    public void close() throws IOException {
+        inflaters.shutdownNow();
+        pending.clear();
+        current = EMPTY;
+        eof = true;
+        in.close();
+    }
+}
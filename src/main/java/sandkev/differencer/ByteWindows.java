@@ -0,0 +1,25 @@
+package sandkev.differencer;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+
+/**
+ * The bytes of an input, a window at a time, for the file sources: a mapped file, or a stream such
+ * as a decompressing one. A window stays valid for as long as anything references it.
+ */
+interface ByteWindows extends Closeable {
+
+    /**
+     * @return length bytes of the input from position, or fewer at the end of the input; a stream
+     *         can only go forward, so position must not come before the last window's start
+     */
+    ByteBuffer map(long position, long length);
+
+    /**
+     * @return whether the input is known to end at position
+     */
+    boolean endsAt(long position);
+
+    @Override
+    void close();
+}
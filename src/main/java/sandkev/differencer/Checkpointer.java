@@ -0,0 +1,136 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.CheckpointableHandler;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Saves and loads the progress of a diff: the last fully processed record and the handler's state.
+ *
+ * <p>A checkpoint is written to a temporary file, synced to disk and then moved over the previous
+ * one, so a crash mid-write leaves the previous checkpoint intact. Writes are rationed: one is due
+ * after {@code everyRecords} records, but not until {@code minInterval} has passed since the last.
+ */
+public class Checkpointer<T,K> {
+
+    static final long DEFAULT_EVERY_RECORDS = 1 << 16;
+    static final Duration DEFAULT_MIN_INTERVAL = Duration.ofSeconds(30);
+
+    private static final int MAGIC = 0x44494643;
+    private static final int VERSION = 1;
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private final RecordSerializer<T> recordSerializer;
+    private final RecordSerializer<K> keySerializer;
+    private final long everyRecords;
+    private final long minIntervalNanos;
+
+    /**
+     * The progress read back from a checkpoint file.
+     *
+     * @param lastRecord       the last record whose key was fully processed
+     * @param recordsProcessed how many keys had been processed
+     */
+    public record Checkpoint<T>(T lastRecord, long recordsProcessed) {}
+
+    public Checkpointer(Path file, RecordSerializer<T> recordSerializer, RecordSerializer<K> keySerializer) {
+        this(file, recordSerializer, keySerializer, DEFAULT_EVERY_RECORDS, DEFAULT_MIN_INTERVAL);
+    }
+
+    /**
+     * @param file             where the checkpoint is kept
+     * @param recordSerializer writes the last processed record
+     * @param keySerializer    writes the keys the handler has captured
+     * @param everyRecords     how many records to process between checkpoints
+     * @param minInterval      the least time between checkpoints
+     */
+    public Checkpointer(Path file, RecordSerializer<T> recordSerializer, RecordSerializer<K> keySerializer,
+                        long everyRecords, Duration minInterval) {
+        this.file = requireNonNull(file, "file must not be null");
+        this.recordSerializer = requireNonNull(recordSerializer, "recordSerializer must not be null");
+        this.keySerializer = requireNonNull(keySerializer, "keySerializer must not be null");
+        if (everyRecords < 1) {
+            throw new IllegalArgumentException("everyRecords must be positive: " + everyRecords);
+        }
+        if (minInterval.isNegative()) {
+            throw new IllegalArgumentException("minInterval must not be negative: " + minInterval);
+        }
+        this.everyRecords = everyRecords;
+        this.minIntervalNanos = minInterval.toNanos();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    long getEveryRecords() {
+        return everyRecords;
+    }
+
+    long getMinIntervalNanos() {
+        return minIntervalNanos;
+    }
+
+    /**
+     * Atomically replaces the checkpoint file.
+     */
+    public void save(T lastRecord, long recordsProcessed, CheckpointableHandler<T,K> handler) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, IO_BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(recordsProcessed);
+            recordSerializer.write(lastRecord, out);
+            handler.saveState(out, keySerializer);
+            out.flush();
+            fos.getFD().sync();
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Restores the handler's state from the checkpoint file, if there is one.
+     *
+     * @return the saved progress, or null if there is no checkpoint
+     * @throws IOException if the file is not a checkpoint or cannot be read
+     */
+    public Checkpoint<T> load(CheckpointableHandler<T,K> handler) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a checkpoint file: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported checkpoint version " + version + ": " + file);
+            }
+            long recordsProcessed = in.readLong();
+            T lastRecord = recordSerializer.read(in);
+            handler.restoreState(in, keySerializer);
+            return new Checkpoint<>(lastRecord, recordsProcessed);
+        }
+    }
+
+    /**
+     * Removes the checkpoint, e.g. once the diff has completed.
+     */
+    public void delete() throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
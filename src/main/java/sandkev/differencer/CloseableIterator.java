@@ -0,0 +1,30 @@
+package sandkev.differencer;
+
+import java.util.Iterator;
+
+/**
+ * An iterator holding resources, such as reader threads, that should be released if iteration
+ * stops early.
+ */
+public interface CloseableIterator<E> extends Iterator<E>, AutoCloseable {
+
+    @Override
+    void close();
+
+    /**
+     * Closes it if it is {@link AutoCloseable}, as the iterators of file and database sources are.
+     *
+     * @throws IllegalStateException if closing fails with a checked exception
+     */
+    static void closeIfCloseable(Iterator<?> it) {
+        if (it instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
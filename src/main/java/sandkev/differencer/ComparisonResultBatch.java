@@ -0,0 +1,101 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+
+/**
+ * A fixed-size block of comparison events held in parallel arrays.
+ *
+ * <p>Event i is described by {@link #type(int)}, {@link #id(int)}, and either {@link #record(int)}
+ * (Added/Dropped) or {@link #diff(int)} (ApproximatelyEqual/Changed). The same batch is refilled
+ * for every delivery, so a handler must copy out anything it keeps after onBatch returns.
+ */
+public class ComparisonResultBatch<T,K> {
+
+    private final ComparisonResult[] types;
+    private final Object[] ids;
+    private final Object[] records;
+    private final DiffSummary[] diffs;
+    private int size;
+
+    public ComparisonResultBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.types = new ComparisonResult[capacity];
+        this.ids = new Object[capacity];
+        this.records = new Object[capacity];
+        this.diffs = new DiffSummary[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return types.length;
+    }
+
+    public ComparisonResult type(int i) {
+        return types[i];
+    }
+
+    @SuppressWarnings("unchecked")
+    public K id(int i) {
+        return (K) ids[i];
+    }
+
+    /**
+     * @return the added or dropped record, or null for the other result types
+     */
+    @SuppressWarnings("unchecked")
+    public T record(int i) {
+        return (T) records[i];
+    }
+
+    /**
+     * @return the field differences of an ApproximatelyEqual or Changed event, otherwise null
+     */
+    public DiffSummary diff(int i) {
+        return diffs[i];
+    }
+
+    boolean isFull() {
+        return size == types.length;
+    }
+
+    void add(ComparisonResult type, K id, T record, DiffSummary diff) {
+        types[size] = type;
+        ids[size] = id;
+        records[size] = record;
+        diffs[size] = diff;
+        size++;
+    }
+
+    /**
+     * Empties the batch, dropping its references so delivered records can be collected.
+     */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            ids[i] = null;
+            records[i] = null;
+            diffs[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Delivers each event of the batch, in order, to a per-event handler.
+     */
+    public void replayTo(ComparisonResultHandler<T,K> handler) {
+        for (int i = 0; i < size; i++) {
+            switch (types[i]) {
+                case Equal -> handler.onEqual(id(i));
+                case ApproximatelyEqual -> handler.onApproximatelyEqual(id(i), diffs[i]);
+                case Added -> handler.onAdded(id(i), record(i));
+                case Dropped -> handler.onDropped(id(i), record(i));
+                case Changed -> handler.onChanged(id(i), diffs[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers comparison events so they can be replayed, in arrival order,
+ * to another handler later (e.g. once earlier key ranges have been delivered).
+ */
+class ComparisonResultRecorder<T,K> implements ComparisonResultHandler<T,K> {
+
+    private record Event<T,K>(ComparisonResult type, K id, T record, DiffSummary diff) {}
+
+    private final List<Event<T,K>> events = new ArrayList<>();
+
+    @Override
+    public void onEqual(K id) {
+        events.add(new Event<>(ComparisonResult.Equal, id, null, null));
+    }
+
+    @Override
+    public void onApproximatelyEqual(K id, DiffSummary diff) {
+        events.add(new Event<>(ComparisonResult.ApproximatelyEqual, id, null, diff));
+    }
+
+    @Override
+    public void onAdded(K id, T added) {
+        events.add(new Event<>(ComparisonResult.Added, id, added, null));
+    }
+
+    @Override
+    public void onDropped(K id, T dropped) {
+        events.add(new Event<>(ComparisonResult.Dropped, id, dropped, null));
+    }
+
+    @Override
+    public void onChanged(K id, DiffSummary diff) {
+        events.add(new Event<>(ComparisonResult.Changed, id, null, diff));
+    }
+
+    int size() {
+        return events.size();
+    }
+
+    /**
+     * Delivers every recorded event to the handler and forgets them.
+     */
+    void replayTo(ComparisonResultHandler<T,K> handler) {
+        for (Event<T,K> event : events) {
+            switch (event.type()) {
+                case Equal -> handler.onEqual(event.id());
+                case ApproximatelyEqual -> handler.onApproximatelyEqual(event.id(), event.diff());
+                case Added -> handler.onAdded(event.id(), event.record());
+                case Dropped -> handler.onDropped(event.id(), event.record());
+                case Changed -> handler.onChanged(event.id(), event.diff());
+            }
+        }
+        events.clear();
+    }
+}
@@ -2,15 +2,19 @@ package sandkev.differencer;
 
 import lombok.Getter;
 import lombok.ToString;
-import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.CheckpointableHandler;
+import sandkev.differencer.api.RecordSerializer;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 @ToString(onlyExplicitlyIncluded = true)
-public class ComparisonResultStats<T,K> implements ComparisonResultHandler<T,K> {
+public class ComparisonResultStats<T,K> implements CheckpointableHandler<T,K> {
     @Getter @ToString.Include
     private final AtomicInteger equalCount = new AtomicInteger();
     @Getter @ToString.Include
@@ -67,6 +71,60 @@ public class ComparisonResultStats<T,K> implements ComparisonResultHandler<T,K>
         return Collections.unmodifiableSet(droppedKeys);
     }
 
+    /**
+     * Folds the counts and captured keys of another stats instance into this one,
+     * e.g. to combine the per-range results of a parallel diff.
+     */
+    public ComparisonResultStats<T,K> merge(ComparisonResultStats<T,K> other) {
+        equalCount.addAndGet(other.equalCount.get());
+        approximatelyEqualCount.addAndGet(other.approximatelyEqualCount.get());
+        addedCount.addAndGet(other.addedCount.get());
+        droppedCount.addAndGet(other.droppedCount.get());
+        changedCount.addAndGet(other.changedCount.get());
+        changedKeys.addAll(other.changedKeys);
+        addedKeys.addAll(other.addedKeys);
+        droppedKeys.addAll(other.droppedKeys);
+        return this;
+    }
+
+    @Override
+    public void saveState(DataOutput out, RecordSerializer<K> keySerializer) throws IOException {
+        out.writeInt(equalCount.get());
+        out.writeInt(approximatelyEqualCount.get());
+        out.writeInt(addedCount.get());
+        out.writeInt(droppedCount.get());
+        out.writeInt(changedCount.get());
+        writeKeys(changedKeys, out, keySerializer);
+        writeKeys(addedKeys, out, keySerializer);
+        writeKeys(droppedKeys, out, keySerializer);
+    }
+
+    @Override
+    public void restoreState(DataInput in, RecordSerializer<K> keySerializer) throws IOException {
+        reset();
+        equalCount.set(in.readInt());
+        approximatelyEqualCount.set(in.readInt());
+        addedCount.set(in.readInt());
+        droppedCount.set(in.readInt());
+        changedCount.set(in.readInt());
+        readKeys(changedKeys, in, keySerializer);
+        readKeys(addedKeys, in, keySerializer);
+        readKeys(droppedKeys, in, keySerializer);
+    }
+
+    private static <K> void writeKeys(Set<K> keys, DataOutput out, RecordSerializer<K> keySerializer) throws IOException {
+        out.writeInt(keys.size());
+        for (K key : keys) {
+            keySerializer.write(key, out);
+        }
+    }
+
+    private static <K> void readKeys(Set<K> keys, DataInput in, RecordSerializer<K> keySerializer) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            keys.add(keySerializer.read(in));
+        }
+    }
+
     // Optionally, a reset method
     public void reset() {
         equalCount.set(0);
@@ -0,0 +1,71 @@
+package sandkev.differencer;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * The key of a {@link CsvRecord}: the decoded values of the schema's key columns, ordered column by
+ * column by their natural order, nulls first. Decimals compare by value, so 1.0 and 1.00 are equal.
+ */
+public final class CsvKey implements Comparable<CsvKey> {
+    private final Comparable<?>[] values;
+
+    CsvKey(Comparable<?>[] values) {
+        this.values = values;
+    }
+
+    /**
+     * @return the value of the key's index'th column, or null if the field was null
+     */
+    public Object get(int index) {
+        return values[index];
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public int compareTo(CsvKey other) {
+        int n = Math.min(values.length, other.values.length);
+        for (int i = 0; i < n; i++) {
+            Comparable v1 = values[i], v2 = other.values[i];
+            if (v1 != v2) {
+                if (v1 == null) {
+                    return -1;
+                }
+                if (v2 == null) {
+                    return 1;
+                }
+                int cmp = v1.compareTo(v2);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+        }
+        return Integer.compare(values.length, other.values.length);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CsvKey other && compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (Comparable<?> value : values) {
+            Object comparable = value instanceof BigDecimal d ? d.stripTrailingZeros() : value;
+            hash = 31 * hash + (comparable == null ? 0 : comparable.hashCode());
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return values.length == 1 ? String.valueOf(values[0])
+                : Arrays.stream(values).map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+    }
+}
@@ -0,0 +1,156 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.Identifiable;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.LocalDate;
+import java.util.StringJoiner;
+
+/**
+ * One record of a {@link CsvSource}: the offsets of its fields in the source's buffer, with nothing
+ * decoded until it is asked for. The key is decoded from the schema's key columns on the first
+ * {@link #getId()} and kept. Numbers and ISO dates are parsed straight from the bytes, and
+ * {@link #fieldEquals} compares fields without decoding them.
+ *
+ * <p>An empty unquoted field is null; an empty quoted field is the empty string. A record keeps its
+ * window of the file mapped for as long as the record is referenced.
+ */
+public final class CsvRecord implements Identifiable<CsvKey> {
+    private final CsvSchema schema;
+    private final ByteBuffer window;
+    /** the start and end of each field, quotes excluded */
+    private final int[] bounds;
+    private CsvKey key;
+
+    CsvRecord(CsvSchema schema, ByteBuffer window, int[] bounds) {
+        this.schema = schema;
+        this.window = window;
+        this.bounds = bounds;
+    }
+
+    /**
+     * @throws NumberFormatException or {@link java.time.format.DateTimeParseException} if a key
+     *         field cannot be decoded as its column's type
+     */
+    @Override
+    public CsvKey getId() {
+        if (key == null) {
+            int[] columns = schema.keyColumns();
+            Comparable<?>[] values = new Comparable<?>[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                int column = columns[i];
+                values[i] = isNull(column) ? null : switch (schema.getType(column)) {
+                    case STRING -> getString(column);
+                    case LONG -> getLong(column);
+                    case DECIMAL -> getDecimal(column);
+                    case DATE -> getDate(column);
+                };
+            }
+            key = new CsvKey(values);
+        }
+        return key;
+    }
+
+    public int fieldCount() {
+        return bounds.length / 2;
+    }
+
+    /**
+     * @return whether the field is empty and unquoted
+     */
+    public boolean isNull(int column) {
+        int from = start(column);
+        return from == end(column) && !quoted(from);
+    }
+
+    /**
+     * @return the field decoded as UTF-8 with its quotes removed, or null if it is null
+     */
+    public String getString(int column) {
+        int from = start(column), to = end(column);
+        if (from == to) {
+            return quoted(from) ? "" : null;
+        }
+        String value = AsciiParsing.decode(window, from, to);
+        return quoted(from) && value.indexOf('"') >= 0 ? value.replace("\"\"", "\"") : value;
+    }
+
+    /**
+     * @throws NumberFormatException if the field is not a whole number that fits in a long
+     */
+    public long getLong(int column) {
+        return AsciiParsing.parseLong(window, start(column), end(column));
+    }
+
+    /**
+     * @return the field as a decimal, or null if it is null
+     * @throws NumberFormatException if the field is not a decimal
+     */
+    public BigDecimal getDecimal(int column) {
+        return isNull(column) ? null : AsciiParsing.parseDecimal(window, start(column), end(column));
+    }
+
+    /**
+     * @return the field as an ISO date such as 2024-02-29, or null if it is null
+     * @throws java.time.format.DateTimeParseException if the field is not an ISO date
+     */
+    public LocalDate getDate(int column) {
+        return isNull(column) ? null : AsciiParsing.parseIsoDate(window, start(column), end(column));
+    }
+
+    public String getString(String column) {
+        return getString(schema.indexOf(column));
+    }
+
+    public long getLong(String column) {
+        return getLong(schema.indexOf(column));
+    }
+
+    public BigDecimal getDecimal(String column) {
+        return getDecimal(schema.indexOf(column));
+    }
+
+    public LocalDate getDate(String column) {
+        return getDate(schema.indexOf(column));
+    }
+
+    /**
+     * @return whether the field has the same bytes, between any quotes, as the same field of other
+     */
+    public boolean fieldEquals(int column, CsvRecord other) {
+        int from = start(column), otherFrom = other.start(column);
+        int length = end(column) - from;
+        return length == other.end(column) - otherFrom
+                && quoted(from) == other.quoted(otherFrom)
+                && window.slice(from, length).equals(other.window.slice(otherFrom, length));
+    }
+
+    private int start(int column) {
+        if (column < 0 || column >= fieldCount()) {
+            throw new IndexOutOfBoundsException("column " + column + " of " + fieldCount());
+        }
+        return bounds[2 * column];
+    }
+
+    private int end(int column) {
+        return bounds[2 * column + 1];
+    }
+
+    /**
+     * An unquoted field follows a delimiter or a line terminator, or starts the window, so only a
+     * quoted field starts after a quote.
+     */
+    private boolean quoted(int from) {
+        return from > 0 && window.get(from - 1) == '"';
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(String.valueOf((char) schema.delimiter()));
+        for (int i = 0; i < fieldCount(); i++) {
+            joiner.add(String.valueOf(getString(i)));
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,137 @@
+package sandkev.differencer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The columns of a CSV file, the columns that make up its key, and how it is written. Immutable;
+ * each {@code with} method returns a copy:
+ *
+ * <pre>{@code
+ * CsvSchema schema = CsvSchema.create()
+ *         .withColumn("book", CsvSchema.Type.STRING)
+ *         .withColumn("id", CsvSchema.Type.LONG)
+ *         .withColumn("price", CsvSchema.Type.DECIMAL)
+ *         .withKey("book", "id")
+ *         .withHeader();
+ * }</pre>
+ */
+public final class CsvSchema {
+
+    /**
+     * How a column is decoded when it is part of the key.
+     */
+    public enum Type {
+        STRING, LONG, DECIMAL, DATE
+    }
+
+    private final List<String> columns;
+    private final List<Type> types;
+    private final int[] keyColumns;
+    private final byte delimiter;
+    private final boolean header;
+
+    private CsvSchema(List<String> columns, List<Type> types, int[] keyColumns, byte delimiter, boolean header) {
+        this.columns = columns;
+        this.types = types;
+        this.keyColumns = keyColumns;
+        this.delimiter = delimiter;
+        this.header = header;
+    }
+
+    /**
+     * @return a comma separated schema with no columns, to add them to
+     */
+    public static CsvSchema create() {
+        return new CsvSchema(List.of(), List.of(), new int[0], (byte) ',', false);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the schema already has a column of that name
+     */
+    public CsvSchema withColumn(String name, Type type) {
+        requireNonNull(name, "name must not be null");
+        requireNonNull(type, "type must not be null");
+        if (columns.contains(name)) {
+            throw new IllegalArgumentException("duplicate column: " + name);
+        }
+        List<String> moreColumns = new ArrayList<>(columns);
+        moreColumns.add(name);
+        List<Type> moreTypes = new ArrayList<>(types);
+        moreTypes.add(type);
+        return new CsvSchema(List.copyOf(moreColumns), List.copyOf(moreTypes), keyColumns, delimiter, header);
+    }
+
+    /**
+     * @param columns the key columns, most significant first
+     * @throws IllegalArgumentException if a column is not in the schema or no column is given
+     */
+    public CsvSchema withKey(String... columns) {
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("a key needs at least one column");
+        }
+        int[] key = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            key[i] = indexOf(columns[i]);
+        }
+        return new CsvSchema(this.columns, types, key, delimiter, header);
+    }
+
+    /**
+     * @param delimiter an ASCII character other than a quote or a line terminator
+     */
+    public CsvSchema withDelimiter(char delimiter) {
+        if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("delimiter must be an ASCII character other than a quote or a line terminator");
+        }
+        return new CsvSchema(columns, types, keyColumns, (byte) delimiter, header);
+    }
+
+    /**
+     * Expects the first record of the file to be the column names, which are checked and skipped.
+     */
+    public CsvSchema withHeader() {
+        return new CsvSchema(columns, types, keyColumns, delimiter, true);
+    }
+
+    /**
+     * @throws IllegalArgumentException if there is no such column
+     */
+    public int indexOf(String column) {
+        int index = columns.indexOf(column);
+        if (index < 0) {
+            throw new IllegalArgumentException("no such column: " + column);
+        }
+        return index;
+    }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public Type getType(int column) {
+        return types.get(column);
+    }
+
+    /**
+     * @return the order of the records' keys, to pass to a differencer as its key comparator
+     */
+    public Comparator<CsvRecord> keyOrder() {
+        return Comparator.comparing(CsvRecord::getId);
+    }
+
+    int[] keyColumns() {
+        return keyColumns;
+    }
+
+    byte delimiter() {
+        return delimiter;
+    }
+
+    boolean hasHeader() {
+        return header;
+    }
+}
@@ -0,0 +1,317 @@
+package sandkev.differencer;
+
+import java.nio.ByteOrder;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A source over a CSV file already sorted by its schema's key, read through memory mapping. The
+ * reader only finds where each field starts and ends; each record is handed out as a
+ * {@link CsvRecord} over the mapped bytes, and no String is created unless one is asked for:
+ *
+ * <pre>{@code
+ * var expected = new CsvSource(expectedPath, schema);
+ * var actual = new CsvSource(actualPath, schema);
+ * new RegularDifferencer<CsvRecord,CsvKey>(schema.keyOrder(), dataComparator).computeDiff(expected, actual, handler);
+ * }</pre>
+ *
+ * Fields follow RFC 4180: a field may be quoted, a quote inside a quoted field is doubled, and a
+ * quoted field may hold delimiters and line breaks. Records end with \n or \r\n, and blank lines are
+ * skipped, unless the schema has a single column: an empty line is then a record whose one field is
+ * null. Unquoted fields are scanned eight bytes at a time.
+ *
+ * <p>The file is mapped a window at a time, as {@link MappedFileSource} does. A compressed file is
+ * read with {@link #decompressing} instead.
+ */
+public class CsvSource implements Iterable<CsvRecord> {
+
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final long NEWLINES = '\n' * ONES;
+
+    private final Path file;
+    private final Function<Path, ByteWindows> opener;
+    private final CsvSchema schema;
+    private final long windowSize;
+
+    public CsvSource(Path file, CsvSchema schema) {
+        this(file, schema, MappedFileSource.DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize how many bytes of the file to map at a time; a record longer than this is
+     *                   mapped in a larger window of its own
+     * @throws IllegalArgumentException if the schema has no columns or no key
+     */
+    public CsvSource(Path file, CsvSchema schema, long windowSize) {
+        this(file, MappedWindows::new, schema, windowSize);
+    }
+
+    /**
+     * A source over a file that may be gzip or BGZF compressed, as {@link Decompression#open} judges,
+     * inflated as it is read into heap windows rather than mapped.
+     *
+     * @param threads how many threads inflate a BGZF file
+     * @param metrics where inflate time and sizes are recorded, or null
+     */
+    public static CsvSource decompressing(Path file, CsvSchema schema, int threads, DiffMetrics metrics) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        return new CsvSource(file, path -> StreamWindows.decompressing(path, threads, metrics), schema,
+                StreamWindows.DEFAULT_WINDOW_SIZE);
+    }
+
+    private CsvSource(Path file, Function<Path, ByteWindows> opener, CsvSchema schema, long windowSize) {
+        this.opener = opener;
+        this.file = requireNonNull(file, "file must not be null");
+        this.schema = requireNonNull(schema, "schema must not be null");
+        if (schema.getColumns().isEmpty() || schema.keyColumns().length == 0) {
+            throw new IllegalArgumentException("the schema needs columns and a key");
+        }
+        if (windowSize < 1 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("windowSize must be between 1 and " + Integer.MAX_VALUE + ": " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Opens the file; it is closed when the iterator is exhausted or closed.
+     *
+     * @throws java.io.UncheckedIOException if the file cannot be opened
+     * @throws IllegalStateException        when iterated, if the file is not well formed CSV, a record
+     *                                      has the wrong number of fields, or the header does not match
+     */
+    @Override
+    public CloseableIterator<CsvRecord> iterator() {
+        return new RecordIterator();
+    }
+
+    private class RecordIterator implements CloseableIterator<CsvRecord> {
+        private final ByteWindows windows = opener.apply(file);
+        private final byte delimiter = schema.delimiter();
+        private final long delimiters = (delimiter & 0xFFL) * ONES;
+        private final int columns = schema.getColumns().size();
+        private int[] bounds = new int[2 * columns];
+        private ByteBuffer window;
+        private long windowStart;
+        private int position;
+        private CsvRecord next;
+        private boolean closed;
+
+        RecordIterator() {
+            window = map(0, windowSize);
+            if (schema.hasHeader()) {
+                checkHeader();
+            }
+        }
+
+        private void checkHeader() {
+            CsvRecord header = hasNext() ? next() : null;
+            for (int i = 0; header != null && i < columns; i++) {
+                if (!schema.getColumns().get(i).equals(header.getString(i))) {
+                    header = null;
+                }
+            }
+            if (header == null) {
+                close();
+                throw new IllegalStateException("the header of " + file + " is not " + schema.getColumns());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !closed) {
+                next = readRecord();
+                if (next == null) {
+                    close();
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public CsvRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            CsvRecord record = next;
+            next = null;
+            return record;
+        }
+
+        private CsvRecord readRecord() {
+            while (true) {
+                int fields = scan();
+                if (fields > 0) {
+                    if (columns > 1 && fields == 1 && bounds[0] == bounds[1] && !quoted(bounds[0])) {
+                        // a blank line; with one column it could not be told from a null field
+                        continue;
+                    }
+                    if (fields != columns) {
+                        throw malformed(bounds[0], "a record with " + fields + " fields, expected " + columns);
+                    }
+                    return new CsvRecord(schema, window, Arrays.copyOf(bounds, 2 * fields));
+                }
+                if (fields == 0) {
+                    return null;
+                }
+                // the record runs past the window: map the next window from its start, and if the
+                // record filled the whole window, a window twice the size
+                long length = position == 0 ? 2L * window.limit() : windowSize;
+                windowStart += position;
+                window = map(windowStart, length);
+                position = 0;
+            }
+        }
+
+        private ByteBuffer map(long position, long length) {
+            ByteBuffer mapped = windows.map(position, length);
+            // little-endian, so the first byte of a word is its least significant
+            mapped.order(ByteOrder.LITTLE_ENDIAN);
+            return mapped;
+        }
+
+        private boolean quoted(int start) {
+            return start > 0 && window.get(start - 1) == '"';
+        }
+
+        /**
+         * Finds the fields of the record at position and moves past it.
+         *
+         * @return the number of fields, 0 at the end of the file, or -1 if the record runs past the
+         *         window, in which case position is unchanged
+         */
+        private int scan() {
+            int limit = window.limit();
+            boolean last = windows.endsAt(windowStart + limit);
+            int i = position;
+            if (i == limit) {
+                return last ? 0 : -1;
+            }
+            int fields = 0;
+            while (true) {
+                int start, end;
+                boolean quoted = window.get(i) == '"';
+                if (quoted) {
+                    start = ++i;
+                    while (true) {
+                        if (i >= limit) {
+                            if (last) {
+                                throw malformed(start - 1, "a quoted field with no closing quote");
+                            }
+                            return -1;
+                        }
+                        if (window.get(i) == '"') {
+                            if (i + 1 < limit && window.get(i + 1) == '"') {
+                                i += 2;
+                                continue;
+                            }
+                            if (i + 1 == limit && !last) {
+                                return -1;
+                            }
+                            break;
+                        }
+                        i++;
+                    }
+                    end = i++;
+                } else {
+                    start = i;
+                    i = unquotedEnd(i, limit);
+                    if (i == limit && !last) {
+                        return -1;
+                    }
+                    end = i;
+                    if (end > start && window.get(end - 1) == '\r' && (i == limit || window.get(i) == '\n')) {
+                        end--;
+                    }
+                }
+                if (2 * fields + 2 > bounds.length) {
+                    bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+                }
+                bounds[2 * fields] = start;
+                bounds[2 * fields + 1] = end;
+                fields++;
+
+                if (i == limit) {
+                    position = i;
+                    return fields;
+                }
+                byte b = window.get(i);
+                if (b == delimiter) {
+                    i++;
+                    if (i == limit && !last) {
+                        return -1;
+                    }
+                    if (i == limit) {
+                        // a delimiter ending the file leaves an empty last field
+                        if (2 * fields + 2 > bounds.length) {
+                            bounds = Arrays.copyOf(bounds, 2 * bounds.length);
+                        }
+                        bounds[2 * fields] = i;
+                        bounds[2 * fields + 1] = i;
+                        position = i;
+                        return fields + 1;
+                    }
+                } else if (b == '\n') {
+                    position = i + 1;
+                    return fields;
+                } else if (quoted && b == '\r' && i + 1 < limit && window.get(i + 1) == '\n') {
+                    position = i + 2;
+                    return fields;
+                } else if (quoted && b == '\r' && i + 1 == limit && !last) {
+                    return -1;
+                } else {
+                    throw malformed(i, "'" + (char) b + "' after a closing quote");
+                }
+            }
+        }
+
+        /**
+         * @return the index of the first delimiter or \n from i, or limit if there is none
+         */
+        private int unquotedEnd(int i, int limit) {
+            while (i + Long.BYTES <= limit) {
+                long word = window.getLong(i);
+                long found = zeroBytes(word ^ delimiters) | zeroBytes(word ^ NEWLINES);
+                if (found != 0) {
+                    return i + (Long.numberOfTrailingZeros(found) >>> 3);
+                }
+                i += Long.BYTES;
+            }
+            while (i < limit) {
+                byte b = window.get(i);
+                if (b == delimiter || b == '\n') {
+                    return i;
+                }
+                i++;
+            }
+            return limit;
+        }
+
+        private IllegalStateException malformed(int at, String what) {
+            return new IllegalStateException("malformed CSV in " + file + " at byte " + (windowStart + at) + ": " + what);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                windows.close();
+            }
+        }
+    }
+
+    /**
+     * @return a word with the high bit set in each byte of word that is zero; bytes more significant
+     *         than a zero byte may be flagged wrongly, but the least significant flag is always exact
+     */
+    private static long zeroBytes(long word) {
+        return (word - ONES) & ~word & HIGHS;
+    }
+}
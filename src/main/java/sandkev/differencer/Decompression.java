@@ -0,0 +1,43 @@
+package sandkev.differencer;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Opens a file that may be compressed, judging by its first bytes rather than its name.
+ */
+public final class Decompression {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** the gzip header and the start of the extra field, where BGZF puts its BC subfield */
+    private static final int SNIFF_SIZE = 16;
+
+    private Decompression() {
+    }
+
+    /**
+     * @param threads how many threads inflate a BGZF file
+     * @param metrics where inflate time and sizes are recorded, or null
+     * @return a {@link BgzfInputStream} for BGZF, a {@link PipelinedGzipInputStream} for any other
+     *         gzip file, or the file's own bytes
+     */
+    public static InputStream open(Path file, int threads, DiffMetrics metrics) throws IOException {
+        BufferedInputStream in = new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE);
+        try {
+            in.mark(SNIFF_SIZE);
+            byte[] head = in.readNBytes(SNIFF_SIZE);
+            in.reset();
+            if (head.length < 10 || (head[0] & 0xFF) != 0x1F || (head[1] & 0xFF) != 0x8B) {
+                return in;
+            }
+            boolean bgzf = head.length == SNIFF_SIZE && (head[3] & 4) != 0 && head[12] == 'B' && head[13] == 'C';
+            return bgzf ? new BgzfInputStream(in, threads, metrics) : new PipelinedGzipInputStream(in, metrics);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+}
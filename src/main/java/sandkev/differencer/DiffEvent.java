@@ -0,0 +1,96 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+
+import java.util.Objects;
+
+/**
+ * One comparison event pulled from a diff stream: its type, its key, and either the record
+ * (Added/Dropped) or the field differences (ApproximatelyEqual/Changed).
+ *
+ * <p>In flyweight mode a stream refills the same instance for every event, so a consumer must
+ * {@link #copy()} any event it keeps beyond the next pull.
+ */
+public final class DiffEvent<T,K> {
+
+    private ComparisonResult type;
+    private K id;
+    private T record;
+    private DiffSummary diff;
+
+    public DiffEvent(ComparisonResult type, K id, T record, DiffSummary diff) {
+        set(type, id, record, diff);
+    }
+
+    DiffEvent() {
+    }
+
+    DiffEvent<T,K> set(ComparisonResult type, K id, T record, DiffSummary diff) {
+        this.type = type;
+        this.id = id;
+        this.record = record;
+        this.diff = diff;
+        return this;
+    }
+
+    public ComparisonResult getType() {
+        return type;
+    }
+
+    public K getId() {
+        return id;
+    }
+
+    /**
+     * @return the added or dropped record, or null for the other result types
+     */
+    public T getRecord() {
+        return record;
+    }
+
+    /**
+     * @return the field differences of an ApproximatelyEqual or Changed event, otherwise null
+     */
+    public DiffSummary getDiff() {
+        return diff;
+    }
+
+    /**
+     * @return an independent copy, safe to keep when events are reused
+     */
+    public DiffEvent<T,K> copy() {
+        return new DiffEvent<>(type, id, record, diff);
+    }
+
+    /**
+     * Fires the matching callback on handler.
+     */
+    public void replayTo(ComparisonResultHandler<T,K> handler) {
+        switch (type) {
+            case Equal -> handler.onEqual(id);
+            case ApproximatelyEqual -> handler.onApproximatelyEqual(id, diff);
+            case Added -> handler.onAdded(id, record);
+            case Dropped -> handler.onDropped(id, record);
+            case Changed -> handler.onChanged(id, diff);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DiffEvent<?,?> that)) return false;
+        return type == that.type && Objects.equals(id, that.id)
+                && Objects.equals(record, that.record) && Objects.equals(diff, that.diff);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, id, record, diff);
+    }
+
+    @Override
+    public String toString() {
+        return type + " <" + id + ">" + (record != null ? " " + record : "") + (diff != null ? " " + diff : "");
+    }
+}
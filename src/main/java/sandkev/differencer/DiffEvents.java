@@ -0,0 +1,207 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffAlgorithm;
+import sandkev.differencer.api.Identifiable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Turns diffs into streams of {@link DiffEvent}s.
+ */
+public final class DiffEvents {
+
+    static final int DEFAULT_HANDOFF_SIZE = 1024;
+
+    private DiffEvents() {
+    }
+
+    /**
+     * Wraps an iterator of events as a sequential, ordered stream that closes the iterator when closed.
+     */
+    public static <E> Stream<E> stream(Iterator<E> events, AutoCloseable onClose) {
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(events, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        onClose.close();
+                    } catch (RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+    }
+
+    /**
+     * Streams the events of any push-based algorithm through a buffer of {@value #DEFAULT_HANDOFF_SIZE}.
+     *
+     * @see #handoff(DiffAlgorithm, Iterable, Iterable, int)
+     */
+    public static <T extends Identifiable<K>,K> Stream<DiffEvent<T,K>> handoff(DiffAlgorithm<T,K> algorithm,
+                                                                               Iterable<T> expected,
+                                                                               Iterable<T> actual) {
+        return handoff(algorithm, expected, actual, DEFAULT_HANDOFF_SIZE);
+    }
+
+    /**
+     * Streams the events of any push-based algorithm: the diff runs on a virtual thread started by the
+     * first pull, and hands events over through a buffer of bufferSize, so it only runs that far ahead
+     * of the consumer. Closing the stream stops the diff.
+     */
+    public static <T extends Identifiable<K>,K> Stream<DiffEvent<T,K>> handoff(DiffAlgorithm<T,K> algorithm,
+                                                                               Iterable<T> expected,
+                                                                               Iterable<T> actual,
+                                                                               int bufferSize) {
+        HandoffIterator<T,K> events = new HandoffIterator<>(algorithm, expected, actual, bufferSize);
+        return stream(events, events);
+    }
+
+    private static final class HandoffIterator<T extends Identifiable<K>,K>
+            implements Iterator<DiffEvent<T,K>>, AutoCloseable, ComparisonResultHandler<T,K> {
+        private static final Object END = new Object();
+        private static final long PUT_RECHECK_MILLIS = 10;
+
+        private record Failure(Throwable cause) {}
+
+        private final DiffAlgorithm<T,K> algorithm;
+        private final Iterable<T> expected;
+        private final Iterable<T> actual;
+        private final BlockingQueue<Object> buffer;
+        private Thread producer;
+        private volatile boolean closed;
+        private Object next;
+
+        HandoffIterator(DiffAlgorithm<T,K> algorithm, Iterable<T> expected, Iterable<T> actual, int bufferSize) {
+            if (bufferSize < 1) {
+                throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+            }
+            this.algorithm = algorithm;
+            this.expected = expected;
+            this.actual = actual;
+            this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private void produce() {
+            try {
+                algorithm.computeDiff(expected, actual, this);
+                put(END);
+            } catch (Interrupted e) {
+                // closed by the consumer
+            } catch (Throwable t) {
+                if (!closed) {
+                    try {
+                        buffer.put(new Failure(t));
+                    } catch (InterruptedException ignored) {
+                        // closed by the consumer
+                    }
+                }
+            }
+        }
+
+        /**
+         * Unwinds the diff when the consumer has gone away.
+         */
+        private static final class Interrupted extends RuntimeException {
+            Interrupted() {
+                super(null, null, false, false);
+            }
+        }
+
+        /**
+         * Waits for room in the buffer, giving up once the consumer has closed, since the handler may
+         * be called on pool threads that the producer's interrupt does not reach.
+         */
+        private void put(Object event) {
+            try {
+                while (!closed) {
+                    if (buffer.offer(event, PUT_RECHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // closed by the consumer
+            }
+            throw new Interrupted();
+        }
+
+        @Override
+        public void onEqual(K id) {
+            put(new DiffEvent<T,K>(ComparisonResult.Equal, id, null, null));
+        }
+
+        @Override
+        public void onApproximatelyEqual(K id, DiffSummary diff) {
+            put(new DiffEvent<T,K>(ComparisonResult.ApproximatelyEqual, id, null, diff));
+        }
+
+        @Override
+        public void onAdded(K id, T added) {
+            put(new DiffEvent<>(ComparisonResult.Added, id, added, null));
+        }
+
+        @Override
+        public void onDropped(K id, T dropped) {
+            put(new DiffEvent<>(ComparisonResult.Dropped, id, dropped, null));
+        }
+
+        @Override
+        public void onChanged(K id, DiffSummary diff) {
+            put(new DiffEvent<T,K>(ComparisonResult.Changed, id, null, diff));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            if (producer == null) {
+                producer = Thread.ofVirtual().name("diff-events").start(this::produce);
+            }
+            if (next == null) {
+                try {
+                    next = buffer.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted while waiting for diff events", e);
+                }
+            }
+            if (next instanceof Failure failure) {
+                if (failure.cause() instanceof RuntimeException re) throw re;
+                if (failure.cause() instanceof Error err) throw err;
+                throw new IllegalStateException(failure.cause());
+            }
+            return next != END;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public DiffEvent<T,K> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object event = next;
+            next = null;
+            return (DiffEvent<T,K>) event;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            // frees any thread blocked on a full buffer; it then sees closed and unwinds
+            buffer.clear();
+            if (producer != null) {
+                producer.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package sandkev.differencer;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timings accumulated by an engine across all of its runs, to show where a diff spends its time.
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class DiffMetrics {
+    /** time the merge loop waited for the expected side to produce a record */
+    @Getter @ToString.Include
+    private final AtomicLong expectedWaitNanos = new AtomicLong();
+    /** time the merge loop waited for the actual side to produce a record */
+    @Getter @ToString.Include
+    private final AtomicLong actualWaitNanos = new AtomicLong();
+    /** time the expected reader waited for the merge loop to make room */
+    @Getter @ToString.Include
+    private final AtomicLong expectedReaderWaitNanos = new AtomicLong();
+    /** time the actual reader waited for the merge loop to make room */
+    @Getter @ToString.Include
+    private final AtomicLong actualReaderWaitNanos = new AtomicLong();
+    /** how many checkpoints were written */
+    @Getter @ToString.Include
+    private final AtomicLong checkpointCount = new AtomicLong();
+    /** time spent writing checkpoints */
+    @Getter @ToString.Include
+    private final AtomicLong checkpointNanos = new AtomicLong();
+    /** how many times the merge loop sought a seekable side forward */
+    @Getter @ToString.Include
+    private final AtomicLong seekCount = new AtomicLong();
+    /** how many keys had more than one record on a side, when duplicate keys are allowed */
+    @Getter @ToString.Include
+    private final AtomicLong duplicateKeyCount = new AtomicLong();
+    /** how many of those key groups were too large for the heap and spilled to disk */
+    @Getter @ToString.Include
+    private final AtomicLong spilledGroupCount = new AtomicLong();
+    /** time spent inflating compressed inputs, summed over the threads doing it */
+    @Getter @ToString.Include
+    private final AtomicLong inflateNanos = new AtomicLong();
+    /** compressed bytes read from compressed inputs */
+    @Getter @ToString.Include
+    private final AtomicLong compressedBytes = new AtomicLong();
+    /** bytes those inflated to */
+    @Getter @ToString.Include
+    private final AtomicLong inflatedBytes = new AtomicLong();
+
+    void recordPrefetch(PrefetchingIterable.PrefetchingIterator<?> expected,
+                        PrefetchingIterable.PrefetchingIterator<?> actual) {
+        expectedWaitNanos.addAndGet(expected.getConsumerWaitNanos());
+        expectedReaderWaitNanos.addAndGet(expected.getReaderWaitNanos());
+        actualWaitNanos.addAndGet(actual.getConsumerWaitNanos());
+        actualReaderWaitNanos.addAndGet(actual.getReaderWaitNanos());
+    }
+
+    void recordCheckpoint(long nanos) {
+        checkpointCount.incrementAndGet();
+        checkpointNanos.addAndGet(nanos);
+    }
+
+    void recordSeeks(long seeks) {
+        if (seeks > 0) {
+            seekCount.addAndGet(seeks);
+        }
+    }
+
+    void recordDuplicateGroups(long duplicates, long spilled) {
+        duplicateKeyCount.addAndGet(duplicates);
+        spilledGroupCount.addAndGet(spilled);
+    }
+
+    void recordInflate(long nanos, long compressed, long inflated) {
+        inflateNanos.addAndGet(nanos);
+        compressedBytes.addAndGet(compressed);
+        inflatedBytes.addAndGet(inflated);
+    }
+
+    public void reset() {
+        expectedWaitNanos.set(0);
+        actualWaitNanos.set(0);
+        expectedReaderWaitNanos.set(0);
+        actualReaderWaitNanos.set(0);
+        checkpointCount.set(0);
+        checkpointNanos.set(0);
+        seekCount.set(0);
+        duplicateKeyCount.set(0);
+        spilledGroupCount.set(0);
+        inflateNanos.set(0);
+        compressedBytes.set(0);
+        inflatedBytes.set(0);
+    }
+}
@@ -1,6 +1,7 @@
 package sandkev.differencer;
 
 import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.FieldDiffSink;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -8,10 +9,11 @@ import java.util.stream.Collectors;
 /**
  * Container for collection of differences.
  */
-public class DiffSummary {
+public class DiffSummary implements FieldDiffSink {
   private final EnumMap<ComparisonResult, LinkedHashMap<String,List<Diff>>> diffsByType =
       new EnumMap<>(ComparisonResult.class);
 
+  @Override
   public void addDiff(String fieldName,
                       Object expectedValue,
                       Object actualValue,
@@ -0,0 +1,273 @@
+package sandkev.differencer;
+
+import lombok.extern.slf4j.Slf4j;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The merge for inputs whose keys may repeat: each run of records with the same key is read from
+ * both sides into a group, and the two groups are matched as bags, as if each were a small diff of
+ * its own keyed by the group order.
+ *
+ * <p>With a group order, both groups are sorted by it and merged, so records that tie on it are
+ * compared by the data comparator and the rest are added or dropped. Without one, each expected
+ * record is paired with the first unpaired actual record it is equal to, what is left is paired up in
+ * arrival order, and any surplus is added or dropped; that costs up to m·n comparisons, so it suits
+ * small groups. A group larger than the in-memory limit spills to a temp file; it is then sorted
+ * on disk if there is a group order, or paired in arrival order if there is not.
+ */
+@Slf4j
+class DuplicateKeyGroups<T extends Identifiable<K>,K> {
+
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    private final Comparator<? super T> groupOrder;
+    private final int maxGroupInMemory;
+    private final RecordSerializer<T> serializer;
+    private final Path tempDir;
+
+    /**
+     * @param groupOrder       orders records within a group, or null to match them by the data comparator
+     * @param maxGroupInMemory the most records of one side's group held in the heap
+     * @param serializer       how records of a large group are written to its spill file
+     * @param tempDir          where large groups are spilled
+     */
+    DuplicateKeyGroups(Comparator<? super T> groupOrder, int maxGroupInMemory,
+                       RecordSerializer<T> serializer, Path tempDir) {
+        this.groupOrder = groupOrder;
+        this.maxGroupInMemory = maxGroupInMemory;
+        this.serializer = serializer;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Merges the inputs a key at a time; a key is reported under the same rules as for unique keys,
+     * once for each record of its group.
+     */
+    void merge(Iterator<T> itE, Iterator<T> itA, RegularDifferencer.MergeSink<T,K> sink,
+               Comparator<? super T> keyComparator, DiffComparator<? super T> dataComparator, DiffMetrics metrics) {
+        Group expected = new Group(itE, keyComparator);
+        Group actual = new Group(itA, keyComparator);
+        long duplicates = 0, spilled = 0;
+        try {
+            while (expected.hasMore() || actual.hasMore()) {
+                int cmp;
+                if (expected.hasMore() && actual.hasMore()) {
+                    cmp = keyComparator.compare(actual.head(), expected.head());
+                } else {
+                    cmp = expected.hasMore() ? 1 : -1;
+                }
+                if (cmp <= 0) actual.read();
+                if (cmp >= 0) expected.read();
+
+                if (expected.size() > 1 || actual.size() > 1) {
+                    duplicates++;
+                }
+                if (expected.isSpilled() || actual.isSpilled()) {
+                    spilled++;
+                }
+                match(expected, actual, sink, dataComparator);
+                expected.clear();
+                actual.clear();
+            }
+        } finally {
+            expected.clear();
+            actual.clear();
+            metrics.recordDuplicateGroups(duplicates, spilled);
+        }
+        if (duplicates > 0) {
+            log.warn("{} keys have duplicate records, {} of them spilled to disk", duplicates, spilled);
+        }
+    }
+
+    private void match(Group expected, Group actual, RegularDifferencer.MergeSink<T,K> sink,
+                       DiffComparator<? super T> dataComparator) {
+        if (expected.size() == 0 || actual.size() == 0 || expected.size() == 1 && actual.size() == 1) {
+            pairInOrder(expected.iterator(), actual.iterator(), sink);
+            return;
+        }
+        if (groupOrder != null) {
+            try (ExternalSorter.SortedRuns<T> e = expected.sorted(); ExternalSorter.SortedRuns<T> a = actual.sorted()) {
+                mergeSorted(e.iterator(), a.iterator(), sink);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        } else if (expected.isSpilled() || actual.isSpilled()) {
+            pairInOrder(expected.iterator(), actual.iterator(), sink);
+        } else {
+            matchEqualFirst(expected.records, actual.records, sink, dataComparator);
+        }
+    }
+
+    private void mergeSorted(Iterator<T> itE, Iterator<T> itA, RegularDifferencer.MergeSink<T,K> sink) {
+        T e = poll(itE), a = poll(itA);
+        while (e != null && a != null) {
+            int cmp = groupOrder.compare(a, e);
+            if (cmp == 0) {
+                sink.matched(e.getId(), e, a);
+                a = poll(itA);
+                e = poll(itE);
+            } else if (cmp < 0) {
+                sink.added(a.getId(), a);
+                a = poll(itA);
+            } else {
+                sink.dropped(e.getId(), e);
+                e = poll(itE);
+            }
+        }
+        flush(e, itE, a, itA, sink);
+    }
+
+    private void pairInOrder(Iterator<T> itE, Iterator<T> itA, RegularDifferencer.MergeSink<T,K> sink) {
+        T e = poll(itE), a = poll(itA);
+        while (e != null && a != null) {
+            sink.matched(e.getId(), e, a);
+            a = poll(itA);
+            e = poll(itE);
+        }
+        flush(e, itE, a, itA, sink);
+    }
+
+    private void matchEqualFirst(List<T> expected, List<T> actual, RegularDifferencer.MergeSink<T,K> sink,
+                                 DiffComparator<? super T> dataComparator) {
+        boolean[] paired = new boolean[actual.size()];
+        List<T> unpaired = new ArrayList<>();
+        for (T e : expected) {
+            int match = -1;
+            for (int i = 0; i < paired.length && match < 0; i++) {
+                if (!paired[i] && RegularDifferencer.diffOrNull(dataComparator, e, actual.get(i)) == null) {
+                    match = i;
+                }
+            }
+            if (match < 0) {
+                unpaired.add(e);
+            } else {
+                paired[match] = true;
+                sink.equal(e.getId(), e, actual.get(match));
+            }
+        }
+        List<T> rest = new ArrayList<>();
+        for (int i = 0; i < paired.length; i++) {
+            if (!paired[i]) rest.add(actual.get(i));
+        }
+        pairInOrder(unpaired.iterator(), rest.iterator(), sink);
+    }
+
+    private void flush(T e, Iterator<T> itE, T a, Iterator<T> itA, RegularDifferencer.MergeSink<T,K> sink) {
+        if (e != null) {
+            sink.dropped(e.getId(), e);
+            itE.forEachRemaining(rem -> sink.dropped(rem.getId(), rem));
+        }
+        if (a != null) {
+            sink.added(a.getId(), a);
+            itA.forEachRemaining(rem -> sink.added(rem.getId(), rem));
+        }
+    }
+
+    private static <T> T poll(Iterator<T> it) {
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * One side's records for the current key, reused from key to key. Holds the first record of the
+     * next key, read to find where the group ends.
+     */
+    private class Group implements Iterable<T> {
+        private final Iterator<T> source;
+        private final Comparator<? super T> keyComparator;
+        private final List<T> records = new ArrayList<>();
+        private SpillFile<T> spill;
+        private T head;
+        private int size;
+
+        Group(Iterator<T> source, Comparator<? super T> keyComparator) {
+            this.source = source;
+            this.keyComparator = keyComparator;
+            this.head = poll(source);
+        }
+
+        boolean hasMore() {
+            return head != null;
+        }
+
+        T head() {
+            return head;
+        }
+
+        /**
+         * Reads the run of records with the head's key.
+         */
+        void read() {
+            T first = head;
+            add(first);
+            head = poll(source);
+            while (head != null && keyComparator.compare(head, first) == 0) {
+                add(head);
+                head = poll(source);
+            }
+            if (spill != null) {
+                spill.finish();
+            }
+        }
+
+        private void add(T record) {
+            size++;
+            if (spill != null) {
+                spill.append(record);
+                return;
+            }
+            if (records.size() < maxGroupInMemory) {
+                records.add(record);
+                return;
+            }
+            spill = SpillFile.create(tempDir, "diff-group-", serializer, IO_BUFFER_SIZE);
+            records.forEach(spill::append);
+            records.clear();
+            spill.append(record);
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isSpilled() {
+            return spill != null;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return spill != null ? spill.iterator() : records.iterator();
+        }
+
+        ExternalSorter.SortedRuns<T> sorted() {
+            if (spill == null) {
+                records.sort(groupOrder);
+                return new ExternalSorter.SortedRuns<>(records, List.of(), groupOrder);
+            }
+            return new ExternalSorter<T>(groupOrder, serializer, maxGroupInMemory, 1, tempDir).sort(spill);
+        }
+
+        void clear() {
+            records.clear();
+            size = 0;
+            if (spill != null) {
+                try {
+                    spill.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    spill = null;
+                }
+            }
+        }
+    }
+}
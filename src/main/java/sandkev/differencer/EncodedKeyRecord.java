@@ -0,0 +1,142 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.FieldDiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A record paired with its {@link KeyEncoder normalized key}, so that the merge, the external sort
+ * and validation compare keys with a long prefix, and only compare the whole byte strings when the
+ * prefixes tie:
+ *
+ * <pre>{@code
+ * var differencer = new RegularDifferencer<EncodedKeyRecord<Trade,Long>,Long>(
+ *         EncodedKeyRecord.comparingKeys(),
+ *         EncodedKeyRecord.comparingData(dataComparator));
+ * differencer.computeDiff(EncodedKeyRecord.encodeAll(expected, encoder),
+ *                         EncodedKeyRecord.encodeAll(actual, encoder), handler);
+ * }</pre>
+ *
+ * The inputs must then be sorted in the encoder's order. {@link #serializer} stores the key
+ * alongside the record, so spilled runs are not encoded again when they are read back.
+ */
+public final class EncodedKeyRecord<T extends Identifiable<K>,K> implements Identifiable<K> {
+
+    private static final Comparator<EncodedKeyRecord<?,?>> KEY_ORDER = (o1, o2) -> {
+        int cmp = Long.compareUnsigned(o1.prefix, o2.prefix);
+        return cmp != 0 ? cmp : Arrays.compareUnsigned(o1.key, o2.key);
+    };
+
+    private final T record;
+    private final byte[] key;
+    private final long prefix;
+
+    /**
+     * @param key the record's normalized key; it is not copied
+     */
+    public EncodedKeyRecord(T record, byte[] key) {
+        this.record = requireNonNull(record, "record must not be null");
+        this.key = requireNonNull(key, "key must not be null");
+        this.prefix = KeyEncoder.prefix(key);
+    }
+
+    public static <T extends Identifiable<K>,K> EncodedKeyRecord<T,K> of(T record, KeyEncoder<? super T> encoder) {
+        return new EncodedKeyRecord<>(record, encoder.encode(record));
+    }
+
+    /**
+     * @return a view that encodes the key of each record of source as it is iterated
+     */
+    public static <T extends Identifiable<K>,K> Iterable<EncodedKeyRecord<T,K>> encodeAll(Iterable<T> source,
+                                                                                        KeyEncoder<? super T> encoder) {
+        requireNonNull(source, "source must not be null");
+        requireNonNull(encoder, "encoder must not be null");
+        return () -> new Iterator<>() {
+            private final Iterator<T> it = source.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public EncodedKeyRecord<T,K> next() {
+                return of(it.next(), encoder);
+            }
+        };
+    }
+
+    /**
+     * @return a serializer that writes the key ahead of the record
+     */
+    public static <T extends Identifiable<K>,K> RecordSerializer<EncodedKeyRecord<T,K>> serializer(RecordSerializer<T> recordSerializer) {
+        requireNonNull(recordSerializer, "recordSerializer must not be null");
+        return new RecordSerializer<>() {
+            @Override
+            public void write(EncodedKeyRecord<T,K> record, DataOutput out) throws IOException {
+                out.writeInt(record.key.length);
+                out.write(record.key);
+                recordSerializer.write(record.record, out);
+            }
+
+            @Override
+            public EncodedKeyRecord<T,K> read(DataInput in) throws IOException {
+                byte[] key = new byte[in.readInt()];
+                in.readFully(key);
+                return new EncodedKeyRecord<>(recordSerializer.read(in), key);
+            }
+        };
+    }
+
+    /**
+     * @return the order of the normalized keys: unsigned prefixes first, then the whole keys
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T extends Identifiable<K>,K> Comparator<EncodedKeyRecord<T,K>> comparingKeys() {
+        return (Comparator) KEY_ORDER;
+    }
+
+    public static <T extends Identifiable<K>,K> DiffComparator<EncodedKeyRecord<T,K>> comparingData(DiffComparator<? super T> dataComparator) {
+        if (dataComparator instanceof FieldDiffComparator<? super T> fieldComparator) {
+            FieldDiffComparator<EncodedKeyRecord<T,K>> unwrapping =
+                    (o1, o2, sink) -> fieldComparator.compare(o1.record, o2.record, sink);
+            return unwrapping;
+        }
+        return (o1, o2) -> dataComparator.compare(o1.record, o2.record);
+    }
+
+    public T getRecord() {
+        return record;
+    }
+
+    /**
+     * @return the normalized key, which must not be modified
+     */
+    public byte[] getKey() {
+        return key;
+    }
+
+    public long getPrefix() {
+        return prefix;
+    }
+
+    @Override
+    public K getId() {
+        return record.getId();
+    }
+
+    @Override
+    public String toString() {
+        return record.toString();
+    }
+}
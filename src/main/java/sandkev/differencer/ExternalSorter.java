@@ -0,0 +1,313 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sorts a stream of records that may not fit in the heap.
+ *
+ * <p>Records are read into buffers that together never hold more than {@code maxRecordsInMemory}
+ * records. Full buffers are sorted and spilled to compressed run files on a pool of
+ * {@code parallelism} threads while the next buffer fills. The runs are then merged with a
+ * {@link LoserTree}. Input that fits in a single buffer is sorted in memory and never touches disk.
+ *
+ * <p>Given a {@link KeyEncoder}, the buffers are {@link RowArena}s instead: records are held
+ * serialized off-heap, sorted by their normalized keys without being read back, and copied to the
+ * run files as they are, so the heap holds a few bytes per buffered record rather than the record.
+ */
+public class ExternalSorter<T> {
+
+    private static final int IO_BUFFER_SIZE = 1 << 16;
+
+    private final Comparator<? super T> comparator;
+    private final RecordSerializer<T> serializer;
+    private final int maxRecordsInMemory;
+    private final KeyEncoder<? super T> keyEncoder;
+    private final long maxBytesInMemory;
+    private final int parallelism;
+    private final Path tempDir;
+
+    /**
+     * @param comparator         the sort order
+     * @param serializer         how records are written to and read from run files
+     * @param maxRecordsInMemory the most records buffered in the heap at once, across all runs being built
+     * @param parallelism        how many runs may be sorted and spilled concurrently
+     * @param tempDir            where run files are created
+     */
+    public ExternalSorter(Comparator<? super T> comparator,
+                          RecordSerializer<T> serializer,
+                          int maxRecordsInMemory,
+                          int parallelism,
+                          Path tempDir) {
+        this.comparator = requireNonNull(comparator);
+        this.serializer = requireNonNull(serializer);
+        if (parallelism < 1 || maxRecordsInMemory <= parallelism) {
+            throw new IllegalArgumentException(String.format(
+                    "need parallelism >= 1 and maxRecordsInMemory > parallelism, got %d and %d",
+                    parallelism, maxRecordsInMemory));
+        }
+        this.maxRecordsInMemory = maxRecordsInMemory;
+        this.keyEncoder = null;
+        this.maxBytesInMemory = 0;
+        this.parallelism = parallelism;
+        this.tempDir = requireNonNull(tempDir);
+    }
+
+    /**
+     * Buffers records off-heap.
+     *
+     * @param comparator       the sort order, used to merge the runs
+     * @param keyEncoder       encodes keys in the same order as comparator, to sort the buffers
+     * @param serializer       how records are written to the buffers and the run files
+     * @param maxBytesInMemory the most bytes of direct memory used by the buffers of the runs being built
+     * @param parallelism      how many runs may be sorted and spilled concurrently
+     * @param tempDir          where run files are created
+     */
+    public ExternalSorter(Comparator<? super T> comparator,
+                          KeyEncoder<? super T> keyEncoder,
+                          RecordSerializer<T> serializer,
+                          long maxBytesInMemory,
+                          int parallelism,
+                          Path tempDir) {
+        this.comparator = requireNonNull(comparator);
+        this.keyEncoder = requireNonNull(keyEncoder);
+        this.serializer = requireNonNull(serializer);
+        if (parallelism < 1 || maxBytesInMemory < (parallelism + 1) * 1024L) {
+            throw new IllegalArgumentException(String.format(
+                    "need parallelism >= 1 and maxBytesInMemory >= 1KiB per buffer, got %d and %d",
+                    parallelism, maxBytesInMemory));
+        }
+        this.maxRecordsInMemory = 0;
+        this.maxBytesInMemory = maxBytesInMemory;
+        this.parallelism = parallelism;
+        this.tempDir = requireNonNull(tempDir);
+    }
+
+    /**
+     * Reads the whole source and returns its records in sorted order.
+     * The result must be closed to delete its run files.
+     *
+     * @throws UncheckedIOException if a run file cannot be written
+     */
+    public SortedRuns<T> sort(Iterable<? extends T> source) {
+        if (keyEncoder != null) {
+            return sortOffHeap(source);
+        }
+        // one buffer fills while the others are sorted and spilled
+        int runSize = maxRecordsInMemory / (parallelism + 1);
+        Iterator<? extends T> it = source.iterator();
+        List<T> buffer = new ArrayList<>();
+        fill(it, buffer, runSize);
+        if (!it.hasNext()) {
+            buffer.sort(comparator);
+            return new SortedRuns<>(buffer, List.of(), comparator);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Semaphore slots = new Semaphore(parallelism);
+        List<Future<SpillFile<T>>> pending = new ArrayList<>();
+        try {
+            while (!buffer.isEmpty()) {
+                slots.acquire();
+                List<T> full = buffer;
+                pending.add(executor.submit(() -> {
+                    try {
+                        return spill(full);
+                    } finally {
+                        slots.release();
+                    }
+                }));
+                buffer = new ArrayList<>(runSize);
+                fill(it, buffer, runSize);
+            }
+            List<SpillFile<T>> runs = new ArrayList<>(pending.size());
+            for (Future<SpillFile<T>> future : pending) {
+                runs.add(future.get());
+            }
+            return new SortedRuns<>(List.of(), runs, comparator);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closeAll(pending);
+            throw new IllegalStateException("interrupted while spilling sorted runs", e);
+        } catch (ExecutionException e) {
+            closeAll(pending);
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (RuntimeException | Error e) {
+            // the source failed: delete the runs already spilled
+            closeAll(pending);
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private SortedRuns<T> sortOffHeap(Iterable<? extends T> source) {
+        // one arena fills while the others are sorted and spilled, and each is reused once spilled
+        long runBytes = maxBytesInMemory / (parallelism + 1);
+        int chunkSize = (int) Math.min(RowArena.DEFAULT_CHUNK_SIZE, runBytes);
+        BlockingQueue<RowArena<T>> free = new ArrayBlockingQueue<>(parallelism + 1);
+        for (int i = 0; i <= parallelism; i++) {
+            free.add(new RowArena<>(serializer, keyEncoder, chunkSize));
+        }
+        Iterator<? extends T> it = source.iterator();
+        RowArena<T> arena = free.remove();
+        fill(it, arena, runBytes);
+        if (!it.hasNext()) {
+            return new SortedRuns<>(arena.inKeyOrder(), List.of(), comparator);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<Future<SpillFile<T>>> pending = new ArrayList<>();
+        try {
+            while (arena.size() > 0) {
+                RowArena<T> full = arena;
+                pending.add(executor.submit(() -> {
+                    try {
+                        return spill(full);
+                    } finally {
+                        full.clear();
+                        free.add(full);
+                    }
+                }));
+                arena = free.take();
+                fill(it, arena, runBytes);
+            }
+            List<SpillFile<T>> runs = new ArrayList<>(pending.size());
+            for (Future<SpillFile<T>> future : pending) {
+                runs.add(future.get());
+            }
+            return new SortedRuns<>(List.of(), runs, comparator);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closeAll(pending);
+            throw new IllegalStateException("interrupted while spilling sorted runs", e);
+        } catch (ExecutionException e) {
+            closeAll(pending);
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (RuntimeException | Error e) {
+            // the source failed: delete the runs already spilled
+            closeAll(pending);
+            throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static <T> void fill(Iterator<? extends T> it, RowArena<T> arena, long bytes) {
+        while (arena.bytesUsed() < bytes && it.hasNext()) {
+            arena.append(it.next());
+        }
+    }
+
+    private SpillFile<T> spill(RowArena<T> arena) {
+        SpillFile<T> run = SpillFile.create(tempDir, "diff-run-", serializer, IO_BUFFER_SIZE);
+        try {
+            for (int row : arena.sortedByKey()) {
+                run.appendSerialized(arena.serialized(row));
+            }
+            return run.finish();
+        } catch (RuntimeException e) {
+            try {
+                run.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private static <T> void fill(Iterator<? extends T> it, List<T> buffer, int size) {
+        while (buffer.size() < size && it.hasNext()) {
+            buffer.add(it.next());
+        }
+    }
+
+    private SpillFile<T> spill(List<T> buffer) {
+        buffer.sort(comparator);
+        SpillFile<T> run = SpillFile.create(tempDir, "diff-run-", serializer, IO_BUFFER_SIZE);
+        try {
+            buffer.forEach(run::append);
+            return run.finish();
+        } catch (RuntimeException e) {
+            try {
+                run.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    private static <T> void closeAll(List<Future<SpillFile<T>>> pending) {
+        for (Future<SpillFile<T>> future : pending) {
+            try {
+                future.get().close();
+            } catch (Exception ignored) {
+                // best effort, the original failure is what matters
+            }
+        }
+    }
+
+    /**
+     * The sorted output of {@link #sort(Iterable)}: either the records in memory or a set of run files
+     * merged on iteration. It may be iterated more than once until it is closed.
+     */
+    public static class SortedRuns<T> implements Iterable<T>, Closeable {
+        private final Iterable<T> inMemory;
+        private final List<SpillFile<T>> runs;
+        private final Comparator<? super T> comparator;
+
+        SortedRuns(Iterable<T> inMemory, List<SpillFile<T>> runs, Comparator<? super T> comparator) {
+            this.inMemory = inMemory;
+            this.runs = runs;
+            this.comparator = comparator;
+        }
+
+        int runCount() {
+            return runs.size();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            if (runs.isEmpty()) {
+                return inMemory.iterator();
+            }
+            List<Iterator<T>> readers = new ArrayList<>(runs.size());
+            for (SpillFile<T> run : runs) {
+                readers.add(run.iterator());
+            }
+            return new LoserTree<>(readers, comparator);
+        }
+
+        /**
+         * Closes any open readers and deletes the run files.
+         */
+        @Override
+        public void close() throws IOException {
+            SpillFile.closeAll(runs);
+        }
+    }
+}
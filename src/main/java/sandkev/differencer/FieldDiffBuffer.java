@@ -0,0 +1,72 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.FieldDiffComparator;
+import sandkev.differencer.api.FieldDiffSink;
+
+import java.util.Arrays;
+
+/**
+ * A reusable {@link FieldDiffSink} that holds the differences for one record in flat arrays, and
+ * only builds a {@link DiffSummary} on request. Not thread-safe; use {@link #forCurrentThread()}.
+ */
+class FieldDiffBuffer implements FieldDiffSink {
+
+    private static final ThreadLocal<FieldDiffBuffer> BUFFERS = ThreadLocal.withInitial(FieldDiffBuffer::new);
+
+    private String[] fieldNames = new String[8];
+    private Object[] expectedValues = new Object[8];
+    private Object[] actualValues = new Object[8];
+    private ComparisonResult[] diffTypes = new ComparisonResult[8];
+    private int size;
+
+    static FieldDiffBuffer forCurrentThread() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * Runs the comparator into this buffer, which is reset first.
+     *
+     * @return null when the records are equal, otherwise the differences as a new DiffSummary
+     */
+    <T> DiffSummary compare(FieldDiffComparator<? super T> comparator, T o1, T o2) {
+        reset();
+        try {
+            comparator.compare(o1, o2, this);
+            return size == 0 ? null : toSummary();
+        } finally {
+            reset();
+        }
+    }
+
+    @Override
+    public void addDiff(String fieldName, Object expectedValue, Object actualValue, ComparisonResult diffType) {
+        if (size == fieldNames.length) {
+            int capacity = size * 2;
+            fieldNames = Arrays.copyOf(fieldNames, capacity);
+            expectedValues = Arrays.copyOf(expectedValues, capacity);
+            actualValues = Arrays.copyOf(actualValues, capacity);
+            diffTypes = Arrays.copyOf(diffTypes, capacity);
+        }
+        fieldNames[size] = fieldName;
+        expectedValues[size] = expectedValue;
+        actualValues[size] = actualValue;
+        diffTypes[size] = diffType;
+        size++;
+    }
+
+    DiffSummary toSummary() {
+        DiffSummary summary = new DiffSummary();
+        for (int i = 0; i < size; i++) {
+            summary.addDiff(fieldNames[i], expectedValues[i], actualValues[i], diffTypes[i]);
+        }
+        return summary;
+    }
+
+    void reset() {
+        Arrays.fill(fieldNames, 0, size, null);
+        Arrays.fill(expectedValues, 0, size, null);
+        Arrays.fill(actualValues, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,127 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.FieldDiffComparator;
+import sandkev.differencer.api.Fingerprinted;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.RecordSerializer;
+import sandkev.differencer.api.RowFingerprinter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.Iterator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A record paired with its fingerprint, for sources whose record type cannot carry one itself.
+ * {@link #serializer} stores the fingerprint alongside the record, so a saved snapshot is only
+ * fingerprinted once, when it is written:
+ *
+ * <pre>{@code
+ * var differencer = new RegularDifferencer<FingerprintedRecord<Trade,Long>,Long>(
+ *         FingerprintedRecord.comparingKeys(keyComparator),
+ *         FingerprintedRecord.comparingData(dataComparator))
+ *     .withFingerprinter(RowFingerprinter.precomputed());
+ * }</pre>
+ */
+public final class FingerprintedRecord<T extends Identifiable<K>,K> implements Identifiable<K>, Fingerprinted {
+
+    private final T record;
+    private final long fingerprint;
+    private final long fingerprintHigh;
+
+    public FingerprintedRecord(T record, long fingerprint, long fingerprintHigh) {
+        this.record = requireNonNull(record, "record must not be null");
+        this.fingerprint = fingerprint;
+        this.fingerprintHigh = fingerprintHigh;
+    }
+
+    public static <T extends Identifiable<K>,K> FingerprintedRecord<T,K> of(T record,
+                                                                            RowFingerprinter<? super T> fingerprinter) {
+        return new FingerprintedRecord<>(record, fingerprinter.fingerprint(record), fingerprinter.fingerprintHigh(record));
+    }
+
+    /**
+     * @return a view that fingerprints each record of source as it is iterated
+     */
+    public static <T extends Identifiable<K>,K> Iterable<FingerprintedRecord<T,K>> fingerprintAll(Iterable<T> source,
+                                                                                                   RowFingerprinter<? super T> fingerprinter) {
+        requireNonNull(source, "source must not be null");
+        requireNonNull(fingerprinter, "fingerprinter must not be null");
+        return () -> new Iterator<>() {
+            private final Iterator<T> it = source.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public FingerprintedRecord<T,K> next() {
+                return of(it.next(), fingerprinter);
+            }
+        };
+    }
+
+    /**
+     * @return a serializer that writes the fingerprint ahead of the record
+     */
+    public static <T extends Identifiable<K>,K> RecordSerializer<FingerprintedRecord<T,K>> serializer(RecordSerializer<T> recordSerializer) {
+        requireNonNull(recordSerializer, "recordSerializer must not be null");
+        return new RecordSerializer<>() {
+            @Override
+            public void write(FingerprintedRecord<T,K> record, DataOutput out) throws IOException {
+                out.writeLong(record.fingerprint);
+                out.writeLong(record.fingerprintHigh);
+                recordSerializer.write(record.record, out);
+            }
+
+            @Override
+            public FingerprintedRecord<T,K> read(DataInput in) throws IOException {
+                long fingerprint = in.readLong();
+                long fingerprintHigh = in.readLong();
+                return new FingerprintedRecord<>(recordSerializer.read(in), fingerprint, fingerprintHigh);
+            }
+        };
+    }
+
+    public static <T extends Identifiable<K>,K> Comparator<FingerprintedRecord<T,K>> comparingKeys(Comparator<? super T> keyComparator) {
+        return Comparator.comparing(FingerprintedRecord::getRecord, keyComparator);
+    }
+
+    public static <T extends Identifiable<K>,K> DiffComparator<FingerprintedRecord<T,K>> comparingData(DiffComparator<? super T> dataComparator) {
+        if (dataComparator instanceof FieldDiffComparator<? super T> fieldComparator) {
+            FieldDiffComparator<FingerprintedRecord<T,K>> unwrapping =
+                    (o1, o2, sink) -> fieldComparator.compare(o1.record, o2.record, sink);
+            return unwrapping;
+        }
+        return (o1, o2) -> dataComparator.compare(o1.record, o2.record);
+    }
+
+    public T getRecord() {
+        return record;
+    }
+
+    @Override
+    public K getId() {
+        return record.getId();
+    }
+
+    @Override
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    @Override
+    public long getFingerprintHigh() {
+        return fingerprintHigh;
+    }
+
+    @Override
+    public String toString() {
+        return record + "#" + Long.toHexString(fingerprint);
+    }
+}
@@ -0,0 +1,36 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.RowFingerprinter;
+
+/**
+ * Wraps a data comparator so that a pair with matching fingerprints is reported Equal without
+ * running it; the detailed comparison only runs on mismatches.
+ */
+class FingerprintingComparator<T> implements DiffComparator<T> {
+
+    private final DiffComparator<? super T> delegate;
+    private final RowFingerprinter<? super T> fingerprinter;
+
+    FingerprintingComparator(DiffComparator<? super T> delegate, RowFingerprinter<? super T> fingerprinter) {
+        this.delegate = delegate;
+        this.fingerprinter = fingerprinter;
+    }
+
+    @Override
+    public DiffSummary compare(T o1, T o2) {
+        return sameFingerprint(o1, o2) ? new DiffSummary() : delegate.compare(o1, o2);
+    }
+
+    /**
+     * @see RegularDifferencer#diffOrNull(DiffComparator, Object, Object)
+     */
+    DiffSummary diffOrNull(T e, T a) {
+        return sameFingerprint(e, a) ? null : RegularDifferencer.diffOrNull(delegate, e, a);
+    }
+
+    private boolean sameFingerprint(T o1, T o2) {
+        return fingerprinter.fingerprint(o1) == fingerprinter.fingerprint(o2)
+                && fingerprinter.fingerprintHigh(o1) == fingerprinter.fingerprintHigh(o2);
+    }
+}
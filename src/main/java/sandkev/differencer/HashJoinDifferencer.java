@@ -0,0 +1,132 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffAlgorithm;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+
+import java.util.Collection;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An in-memory differ for unsorted inputs where one side fits comfortably in the heap.
+ *
+ * <p>The build side is loaded into an {@link OpenHashIndex} keyed by {@link Identifiable#getId()},
+ * the other side is streamed through it, and the unmatched leftovers of the table are reported
+ * at the end. That is O(n) with no sort, but events arrive in probe order rather than key order.
+ *
+ * <p><strong>Preconditions:</strong>
+ * <ul>
+ *   <li>Each source may be in any order.</li>
+ *   <li>Keys must implement equals and hashCode, and be unique within each source.</li>
+ * </ul>
+ */
+public class HashJoinDifferencer<T extends Identifiable<K>,K>
+  implements DiffAlgorithm<T,K> {
+
+    /**
+     * Which source is loaded into the hash table.
+     */
+    public enum BuildSide {
+        EXPECTED,
+        ACTUAL,
+        /** the side with fewer elements if both are Collections, otherwise expected */
+        SMALLER
+    }
+
+    private static final int DEFAULT_EXPECTED_SIZE = 1 << 10;
+
+    private final DiffComparator<? super T> dataComparator;
+    private final BuildSide buildSide;
+
+    public HashJoinDifferencer(DiffComparator<? super T> dataComparator) {
+        this(dataComparator, BuildSide.SMALLER);
+    }
+
+    /**
+     * @param dataComparator used to compute field‑level diffs once keys match
+     * @param buildSide      which source to hold in memory
+     */
+    public HashJoinDifferencer(DiffComparator<? super T> dataComparator, BuildSide buildSide) {
+        this.dataComparator = requireNonNull(dataComparator);
+        this.buildSide = requireNonNull(buildSide);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The inputs need not be sorted.
+     *
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if the build side contains a duplicate key, or the other side
+     *                                  repeats a key that is present in the build side
+     */
+    @Override
+    public void computeDiff(Iterable<T> expected,
+                            Iterable<T> actual,
+                            ComparisonResultHandler<T,K> handler) {
+        requireNonNull(expected, "expected iterable must not be null");
+        requireNonNull(actual,   "actual iterable must not be null");
+        requireNonNull(handler,  "handler must not be null");
+
+        if (buildOnExpected(expected, actual)) {
+            OpenHashIndex<K,T> index = build(expected);
+            for (T a : actual) {
+                K id = a.getId();
+                int slot = index.find(id);
+                if (slot < 0) {
+                    handler.onAdded(id, a);
+                } else {
+                    markMatched(index, slot, id);
+                    RegularDifferencer.reportMatch(dataComparator, handler, id, index.recordAt(slot), a);
+                }
+            }
+            index.forEachUnmatched(handler::onDropped);
+        } else {
+            OpenHashIndex<K,T> index = build(actual);
+            for (T e : expected) {
+                K id = e.getId();
+                int slot = index.find(id);
+                if (slot < 0) {
+                    handler.onDropped(id, e);
+                } else {
+                    markMatched(index, slot, id);
+                    RegularDifferencer.reportMatch(dataComparator, handler, id, e, index.recordAt(slot));
+                }
+            }
+            index.forEachUnmatched(handler::onAdded);
+        }
+    }
+
+    private boolean buildOnExpected(Iterable<T> expected, Iterable<T> actual) {
+        return switch (buildSide) {
+            case EXPECTED -> true;
+            case ACTUAL -> false;
+            case SMALLER -> !(expected instanceof Collection<?> e && actual instanceof Collection<?> a)
+                    || e.size() <= a.size();
+        };
+    }
+
+    private static <T extends Identifiable<K>,K> OpenHashIndex<K,T> build(Iterable<T> source) {
+        OpenHashIndex<K,T> index = new OpenHashIndex<>(
+                source instanceof Collection<?> c ? c.size() : DEFAULT_EXPECTED_SIZE);
+        for (T record : source) {
+            K id = record.getId();
+            if (!index.put(id, record)) {
+                throw duplicate(id);
+            }
+        }
+        return index;
+    }
+
+    private static void markMatched(OpenHashIndex<?,?> index, int slot, Object id) {
+        if (!index.markMatched(slot)) {
+            throw duplicate(id);
+        }
+    }
+
+    private static IllegalArgumentException duplicate(Object id) {
+        return new IllegalArgumentException(String.format("Duplicate key detected: <%s>", id));
+    }
+}
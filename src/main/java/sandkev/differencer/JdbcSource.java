@@ -0,0 +1,373 @@
+package sandkev.differencer;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A source over the rows of a query, ordered by key in the database and streamed a fetch at a time,
+ * so the result set is never held in memory:
+ *
+ * <pre>{@code
+ * var actual = new JdbcSource<Trade>(dataSource, "SELECT id, book, price FROM trade",
+ *         row -> new Trade(row.getLong("id"), row.getString("book"), row.getBigDecimal("price")), "id");
+ * differencer.computeDiff(expected, actual, handler);
+ * }</pre>
+ *
+ * The query is wrapped as {@code SELECT * FROM (query) q ORDER BY key columns}, so the database must
+ * order the key columns as the differencer's key comparator does, and they must not be null.
+ *
+ * <p>The key space can be split into ranges of the first key column, with {@link #withRanges} or
+ * {@link #withSplitPoints}. Each range is then queried on its own connection, all at once, and the
+ * iterator stitches them back together in key order; or {@link #ranges()} hands them out separately,
+ * for a parallel engine to diff each against the same range of the other side.
+ *
+ * <p>Streaming depends on the driver honouring the fetch size. The connection is switched out of
+ * autocommit while a query is read, as PostgreSQL needs to use a cursor; MySQL streams only with a
+ * fetch size of {@link Integer#MIN_VALUE}.
+ *
+ * @param <T> the record type
+ */
+public class JdbcSource<T> implements Iterable<T> {
+
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
+    /**
+     * Maps the current row of a result set to a record.
+     */
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet row) throws SQLException;
+    }
+
+    private final DataSource dataSource;
+    private final String query;
+    private final RowMapper<? extends T> mapper;
+    private final List<String> keyColumns;
+    private final int fetchSize;
+    /** ascending bounds between ranges, or null for a single query */
+    private final List<?> splitPoints;
+    /** how many ranges to split the first key column's span into, or 0 */
+    private final int rangeCount;
+    /** the bounds of this source's own range, for a source from {@link #ranges()} */
+    private final Object lower;
+    private final Object upper;
+
+    /**
+     * @param query      a SELECT returning the rows and their key columns, in any order
+     * @param keyColumns the columns to order by, most significant first
+     */
+    public JdbcSource(DataSource dataSource, String query, RowMapper<? extends T> mapper, String... keyColumns) {
+        this(requireNonNull(dataSource, "dataSource must not be null"),
+                requireNonNull(query, "query must not be null"),
+                requireNonNull(mapper, "mapper must not be null"),
+                List.of(keyColumns), DEFAULT_FETCH_SIZE, null, 0, null, null);
+        if (keyColumns.length == 0) {
+            throw new IllegalArgumentException("at least one key column is needed");
+        }
+    }
+
+    private JdbcSource(DataSource dataSource, String query, RowMapper<? extends T> mapper, List<String> keyColumns,
+                       int fetchSize, List<?> splitPoints, int rangeCount, Object lower, Object upper) {
+        this.dataSource = dataSource;
+        this.query = query;
+        this.mapper = mapper;
+        this.keyColumns = keyColumns;
+        this.fetchSize = fetchSize;
+        this.splitPoints = splitPoints;
+        this.rangeCount = rangeCount;
+        this.lower = lower;
+        this.upper = upper;
+    }
+
+    /**
+     * @param fetchSize the rows fetched per round trip; zero leaves it to the driver, and a negative
+     *                  value is only for drivers that give it a meaning
+     */
+    public JdbcSource<T> withFetchSize(int fetchSize) {
+        return new JdbcSource<>(dataSource, query, mapper, keyColumns, fetchSize, splitPoints, rangeCount, lower, upper);
+    }
+
+    /**
+     * Splits the span of the first key column, which must be integral, into ranges of equal width,
+     * found with a MIN and MAX query when iteration starts.
+     *
+     * @throws IllegalArgumentException if ranges is less than 1
+     */
+    public JdbcSource<T> withRanges(int ranges) {
+        if (ranges < 1) {
+            throw new IllegalArgumentException("ranges must be positive: " + ranges);
+        }
+        return new JdbcSource<>(dataSource, query, mapper, keyColumns, fetchSize, null, ranges, lower, upper);
+    }
+
+    /**
+     * Splits the key space at the given values of the first key column, so n points make n + 1 ranges.
+     *
+     * @param splitPoints in ascending order, as the database orders them
+     */
+    public JdbcSource<T> withSplitPoints(List<?> splitPoints) {
+        requireNonNull(splitPoints, "splitPoints must not be null");
+        return new JdbcSource<>(dataSource, query, mapper, keyColumns, fetchSize, List.copyOf(splitPoints), 0,
+                lower, upper);
+    }
+
+    /**
+     * Splitting a source that is itself a range splits only that range: split points outside it are
+     * left out, and the even split is of the span of the rows within it.
+     *
+     * @return a source for each range, in key order, or just this source if it is not split
+     * @throws IllegalStateException if the ranges cannot be found
+     * @throws IllegalArgumentException if a split point cannot be compared with this range's bounds
+     */
+    public List<JdbcSource<T>> ranges() {
+        List<?> points = splitPoints != null ? splitPoints : rangeCount > 0 ? evenSplitPoints() : List.of();
+        List<JdbcSource<T>> ranges = new ArrayList<>(points.size() + 1);
+        Object from = lower;
+        for (Object point : points) {
+            if (lower != null && compare(point, lower) <= 0 || upper != null && compare(point, upper) >= 0) {
+                continue;
+            }
+            ranges.add(range(from, point));
+            from = point;
+        }
+        ranges.add(range(from, upper));
+        return ranges;
+    }
+
+    /**
+     * Orders a split point against a range bound: numbers by value, whatever their type, and
+     * anything else by its natural order.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static int compare(Object point, Object bound) {
+        if (point instanceof Number p && bound instanceof Number b) {
+            return new BigDecimal(p.toString()).compareTo(new BigDecimal(b.toString()));
+        }
+        if (point instanceof Comparable comparable && point.getClass().isInstance(bound)) {
+            return comparable.compareTo(bound);
+        }
+        throw new IllegalArgumentException("cannot compare split point " + point + " with range bound " + bound);
+    }
+
+    private JdbcSource<T> range(Object from, Object to) {
+        return new JdbcSource<>(dataSource, query, mapper, keyColumns, fetchSize, null, 0, from, to);
+    }
+
+    private List<Long> evenSplitPoints() {
+        String sql = "SELECT MIN(" + keyColumns.get(0) + "), MAX(" + keyColumns.get(0) + ") FROM (" + query + ") q"
+                + rangeCondition();
+        long min, max;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            bindRange(statement);
+            try (ResultSet bounds = statement.executeQuery()) {
+                bounds.next();
+                min = bounds.getLong(1);
+                if (bounds.wasNull()) {
+                    return List.of();
+                }
+                max = bounds.getLong(2);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("could not find the key range: " + sql, e);
+        }
+        BigInteger low = BigInteger.valueOf(min);
+        BigInteger span = BigInteger.valueOf(max).subtract(low).add(BigInteger.ONE);
+        List<Long> points = new ArrayList<>();
+        for (int i = 1; i < rangeCount; i++) {
+            long point = low.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(rangeCount))).longValueExact();
+            if (points.isEmpty() ? point > min : point > points.get(points.size() - 1)) {
+                points.add(point);
+            }
+        }
+        return points;
+    }
+
+    /**
+     * Runs the query, or the query for each range at once, each on a connection of its own; the
+     * connections are released when the iterator is exhausted or closed.
+     *
+     * @throws IllegalStateException if a query fails, when iterated
+     */
+    @Override
+    public CloseableIterator<T> iterator() {
+        List<JdbcSource<T>> ranges = ranges();
+        return ranges.size() == 1 ? ranges.get(0).new RowIterator() : new StitchedIterator<>(ranges, fetchSize);
+    }
+
+    String sql() {
+        return "SELECT * FROM (" + query + ") q" + rangeCondition() + " ORDER BY " + String.join(", ", keyColumns);
+    }
+
+    /**
+     * @return the WHERE clause restricting the query to this source's range, if it has one
+     */
+    private String rangeCondition() {
+        StringBuilder condition = new StringBuilder();
+        if (lower != null) {
+            condition.append(" WHERE ").append(keyColumns.get(0)).append(" >= ?");
+        }
+        if (upper != null) {
+            condition.append(lower != null ? " AND " : " WHERE ").append(keyColumns.get(0)).append(" < ?");
+        }
+        return condition.toString();
+    }
+
+    private void bindRange(PreparedStatement statement) throws SQLException {
+        int parameter = 1;
+        if (lower != null) {
+            statement.setObject(parameter++, lower);
+        }
+        if (upper != null) {
+            statement.setObject(parameter, upper);
+        }
+    }
+
+    private class RowIterator implements CloseableIterator<T> {
+        private Connection connection;
+        private PreparedStatement statement;
+        private ResultSet rows;
+        private boolean autoCommit;
+        private Boolean hasNext;
+
+        RowIterator() {
+            String sql = sql();
+            try {
+                connection = dataSource.getConnection();
+                autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(fetchSize);
+                bindRange(statement);
+                rows = statement.executeQuery();
+            } catch (SQLException e) {
+                IllegalStateException failure = new IllegalStateException("query failed: " + sql, e);
+                close(failure);
+                throw failure;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (hasNext == null) {
+                try {
+                    hasNext = rows != null && rows.next();
+                } catch (SQLException e) {
+                    IllegalStateException failure = new IllegalStateException("could not read the next row", e);
+                    close(failure);
+                    throw failure;
+                }
+                if (!hasNext) {
+                    close();
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            hasNext = null;
+            try {
+                return mapper.map(rows);
+            } catch (SQLException e) {
+                IllegalStateException failure = new IllegalStateException("could not map a row", e);
+                close(failure);
+                throw failure;
+            }
+        }
+
+        @Override
+        public void close() {
+            IllegalStateException failure = new IllegalStateException("could not release the connection");
+            close(failure);
+            if (failure.getSuppressed().length > 0) {
+                throw failure;
+            }
+        }
+
+        /**
+         * Releases everything, adding any failure to do so to failure as suppressed.
+         */
+        private void close(Exception failure) {
+            Connection connection = this.connection;
+            PreparedStatement statement = this.statement;
+            ResultSet rows = this.rows;
+            this.connection = null;
+            this.statement = null;
+            this.rows = null;
+            try (connection) {
+                try (statement; rows) {
+                    // closed in reverse order
+                }
+                if (connection != null) {
+                    // nothing was written; ending the transaction releases any cursor before autocommit is restored
+                    connection.rollback();
+                    connection.setAutoCommit(autoCommit);
+                }
+            } catch (SQLException e) {
+                failure.addSuppressed(e);
+            }
+            hasNext = false;
+        }
+    }
+
+    /**
+     * Reads every range at once, each on its own thread into a buffer of a fetch's worth of rows,
+     * and returns the ranges one after another.
+     */
+    private static class StitchedIterator<T> implements CloseableIterator<T> {
+        private final List<PrefetchingIterable.PrefetchingIterator<T>> ranges = new ArrayList<>();
+        private int current;
+
+        StitchedIterator(List<JdbcSource<T>> sources, int fetchSize) {
+            int depth = Math.max(fetchSize, 1);
+            for (int i = 0; i < sources.size(); i++) {
+                ranges.add(new PrefetchingIterable<>(sources.get(i), depth, "jdbc-range-" + i).iterator());
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (current < ranges.size()) {
+                    if (ranges.get(current).hasNext()) {
+                        return true;
+                    }
+                    current++;
+                }
+                return false;
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return ranges.get(current).next();
+        }
+
+        @Override
+        public void close() {
+            for (int i = current; i < ranges.size(); i++) {
+                ranges.get(i).close();
+            }
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package sandkev.differencer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.Collator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Turns a composite key into a byte string whose unsigned lexicographic order is the key's order, so
+ * that comparing two keys is one {@link Arrays#compareUnsigned} instead of a chain of getters and
+ * comparators. Keys are encoded once per record, usually by wrapping records in
+ * {@link EncodedKeyRecord}:
+ *
+ * <pre>{@code
+ * KeyEncoder<Trade> encoder = KeyEncoder.<Trade>create()
+ *         .thenString(Trade::getBook)
+ *         .thenLong(Trade::getId);
+ * }</pre>
+ *
+ * <p>Each component is written so that it cannot run into the next: fixed width for numbers and
+ * times, and an escaped terminator for strings and decimals. Nulls come first. Strings order by
+ * Unicode code point, which is {@link String#compareTo} order except that characters outside the
+ * Basic Multilingual Plane sort after U+E000 to U+FFFF rather than before them; pass a
+ * {@link Collator} for a locale's order instead.
+ */
+public final class KeyEncoder<T> {
+
+    private static final byte NULL = 0x00;
+    private static final byte PRESENT = 0x01;
+
+    private interface Component<T> {
+        void encode(T record, Buffer out);
+    }
+
+    private final List<Component<? super T>> components;
+
+    private KeyEncoder(List<Component<? super T>> components) {
+        this.components = components;
+    }
+
+    /**
+     * @return an encoder with no components, to add them to
+     */
+    public static <T> KeyEncoder<T> create() {
+        return new KeyEncoder<>(List.of());
+    }
+
+    public KeyEncoder<T> thenLong(ToLongFunction<? super T> field) {
+        requireNonNull(field, "field must not be null");
+        return then((record, out) -> out.putLong(field.applyAsLong(record)));
+    }
+
+    public KeyEncoder<T> thenInt(ToIntFunction<? super T> field) {
+        requireNonNull(field, "field must not be null");
+        return then((record, out) -> out.putInt(field.applyAsInt(record)));
+    }
+
+    public KeyEncoder<T> thenString(Function<? super T, String> field) {
+        requireNonNull(field, "field must not be null");
+        return then((record, out) -> {
+            String value = field.apply(record);
+            if (out.putNull(value)) {
+                out.putTerminated(value.getBytes(StandardCharsets.UTF_8));
+            }
+        });
+    }
+
+    /**
+     * Orders the string by the collator, as {@link Collator#compare} would. Collators are not
+     * thread-safe, so the encoder is then only safe to use from one thread at a time.
+     */
+    public KeyEncoder<T> thenString(Function<? super T, String> field, Collator collator) {
+        requireNonNull(field, "field must not be null");
+        requireNonNull(collator, "collator must not be null");
+        return then((record, out) -> {
+            String value = field.apply(record);
+            if (out.putNull(value)) {
+                out.putTerminated(collator.getCollationKey(value).toByteArray());
+            }
+        });
+    }
+
+    /**
+     * Orders decimals by value, as {@link BigDecimal#compareTo} does, so 1.0 and 1.00 encode the same.
+     */
+    public KeyEncoder<T> thenDecimal(Function<? super T, BigDecimal> field) {
+        requireNonNull(field, "field must not be null");
+        return then((record, out) -> {
+            BigDecimal value = field.apply(record);
+            if (out.putNull(value)) {
+                out.putDecimal(value);
+            }
+        });
+    }
+
+    public KeyEncoder<T> thenTimestamp(Function<? super T, Instant> field) {
+        requireNonNull(field, "field must not be null");
+        return then((record, out) -> {
+            Instant value = field.apply(record);
+            if (out.putNull(value)) {
+                out.putLong(value.getEpochSecond());
+                out.putInt(value.getNano());
+            }
+        });
+    }
+
+    private KeyEncoder<T> then(Component<? super T> component) {
+        List<Component<? super T>> more = new ArrayList<>(components);
+        more.add(component);
+        return new KeyEncoder<T>(List.copyOf(more));
+    }
+
+    /**
+     * @return the normalized key of record
+     */
+    public byte[] encode(T record) {
+        Buffer out = new Buffer();
+        for (Component<? super T> component : components) {
+            component.encode(record, out);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the first eight bytes of key as a big-endian long, zero padded, so that comparing
+     *         prefixes with {@link Long#compareUnsigned} agrees with comparing the keys whenever the
+     *         prefixes differ
+     */
+    public static long prefix(byte[] key) {
+        long prefix = 0;
+        int n = Math.min(Long.BYTES, key.length);
+        for (int i = 0; i < n; i++) {
+            prefix |= (key[i] & 0xFFL) << (8 * (Long.BYTES - 1 - i));
+        }
+        return prefix;
+    }
+
+    /**
+     * @return a comparator that encodes both records on every call; for occasional comparisons, since
+     *         the point of normalized keys is to encode each record once
+     */
+    public Comparator<T> comparator() {
+        return (o1, o2) -> Arrays.compareUnsigned(encode(o1), encode(o2));
+    }
+
+    private static final class Buffer {
+        private byte[] bytes = new byte[32];
+        private int size;
+
+        private void ensure(int more) {
+            if (size + more > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + more));
+            }
+        }
+
+        void put(byte b) {
+            ensure(1);
+            bytes[size++] = b;
+        }
+
+        /**
+         * Writes the null marker; returns whether value is present and should follow it.
+         */
+        boolean putNull(Object value) {
+            put(value == null ? NULL : PRESENT);
+            return value != null;
+        }
+
+        void putLong(long value) {
+            ensure(Long.BYTES);
+            long flipped = value ^ Long.MIN_VALUE;
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (flipped >>> shift);
+            }
+        }
+
+        void putInt(int value) {
+            ensure(Integer.BYTES);
+            int flipped = value ^ Integer.MIN_VALUE;
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (flipped >>> shift);
+            }
+        }
+
+        /**
+         * Writes the bytes with each 0x00 escaped as 0x00 0xFF, then 0x00 0x00, so a value that is a
+         * prefix of another sorts first and no value runs into what follows.
+         */
+        void putTerminated(byte[] value) {
+            ensure(value.length + 2);
+            for (byte b : value) {
+                if (b == 0) {
+                    put((byte) 0);
+                    put((byte) 0xFF);
+                } else {
+                    put(b);
+                }
+            }
+            put((byte) 0);
+            put((byte) 0);
+        }
+
+        /**
+         * A sign byte, then for non-zero values the decimal exponent and the significant digits as
+         * 0.d1d2d3... x 10^exponent; negative values have those bytes inverted so larger magnitudes
+         * sort first.
+         */
+        void putDecimal(BigDecimal value) {
+            int signum = value.signum();
+            put((byte) (signum + 1));
+            if (signum == 0) {
+                return;
+            }
+            BigDecimal magnitude = value.abs().stripTrailingZeros();
+            byte[] digits = magnitude.unscaledValue().toString().getBytes(StandardCharsets.US_ASCII);
+            int start = size;
+            putInt(magnitude.precision() - magnitude.scale());
+            ensure(digits.length + 1);
+            System.arraycopy(digits, 0, bytes, size, digits.length);
+            size += digits.length;
+            bytes[size++] = 0;
+            if (signum < 0) {
+                for (int i = start; i < size; i++) {
+                    bytes[i] = (byte) ~bytes[i];
+                }
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(bytes, size);
+        }
+    }
+}
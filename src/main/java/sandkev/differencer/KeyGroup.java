@@ -0,0 +1,126 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.DiffComparator;
+
+import java.util.Arrays;
+
+/**
+ * The records that up to 64 sources hold for one key, and the differences between them.
+ *
+ * <p>Differences are computed on demand. {@link #allEqual()} compares every present record with the
+ * first present one, and only if one of those differs are the remaining pairs compared, so a key on
+ * which all sources agree costs one comparison per extra source.
+ */
+public final class KeyGroup<T,K> {
+
+    private final DiffComparator<? super T> dataComparator;
+    private final Object[] records;
+    private final DiffSummary[] diffs;
+    private final boolean[] compared;
+    private K id;
+    private long presentMask;
+    private int reference;
+
+    KeyGroup(int sources, DiffComparator<? super T> dataComparator) {
+        this.dataComparator = dataComparator;
+        this.records = new Object[sources];
+        this.diffs = new DiffSummary[sources * sources];
+        this.compared = new boolean[sources * sources];
+    }
+
+    void reset(K id) {
+        Arrays.fill(records, null);
+        Arrays.fill(diffs, null);
+        Arrays.fill(compared, false);
+        this.id = id;
+        this.presentMask = 0;
+    }
+
+    /**
+     * @return false if the source already had a record for this key
+     */
+    boolean add(int source, T record) {
+        long bit = 1L << source;
+        if ((presentMask & bit) != 0) {
+            return false;
+        }
+        if (presentMask == 0) {
+            reference = source;
+        }
+        presentMask |= bit;
+        records[source] = record;
+        return true;
+    }
+
+    public K getId() {
+        return id;
+    }
+
+    public int sourceCount() {
+        return records.length;
+    }
+
+    /**
+     * @return bit i is set if source i has a record for this key
+     */
+    public long presentMask() {
+        return presentMask;
+    }
+
+    public boolean isPresent(int source) {
+        return (presentMask & (1L << source)) != 0;
+    }
+
+    public boolean isPresentInAll() {
+        return Long.bitCount(presentMask) == records.length;
+    }
+
+    /**
+     * @return source's record, or null if it has none for this key
+     */
+    @SuppressWarnings("unchecked")
+    public T record(int source) {
+        return (T) records[source];
+    }
+
+    /**
+     * @return true if every source that has the key holds an equal record
+     */
+    public boolean allEqual() {
+        for (int i = 0; i < records.length; i++) {
+            if (i != reference && isPresent(i) && diff(reference, i) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true if both sources have the key and their records are not Equal
+     */
+    public boolean differs(int source, int other) {
+        return diff(source, other) != null;
+    }
+
+    /**
+     * @return the differences between the two sources' records, as source's record expected and
+     *         other's actual; null if they are equal or either source lacks the key
+     */
+    @SuppressWarnings("unchecked")
+    public DiffSummary diff(int source, int other) {
+        if (source == other || !isPresent(source) || !isPresent(other)) {
+            return null;
+        }
+        int slot = source * records.length + other;
+        if (!compared[slot]) {
+            compared[slot] = true;
+            diffs[slot] = RegularDifferencer.diffOrNull(dataComparator, (T) records[source], (T) records[other]);
+        }
+        return diffs[slot];
+    }
+
+    @Override
+    public String toString() {
+        return "<" + id + "> present=" + Long.toBinaryString(presentMask);
+    }
+}
@@ -0,0 +1,136 @@
+package sandkev.differencer;
+
+import lombok.Getter;
+import lombok.ToString;
+import sandkev.differencer.api.LongComparisonResultHandler;
+
+import java.util.Arrays;
+
+/**
+ * Counts events and captures the added, dropped and changed keys in primitive long arrays, in the
+ * order they were reported, which is ascending key order for {@link LongKeyDifferencer}.
+ *
+ * <p>Unlike {@link ComparisonResultStats} this is not thread-safe; give each thread its own and
+ * {@link #merge} them.
+ */
+@ToString(onlyExplicitlyIncluded = true)
+public class LongComparisonResultStats<T> implements LongComparisonResultHandler<T> {
+    @Getter @ToString.Include
+    private long equalCount;
+    @Getter @ToString.Include
+    private long approximatelyEqualCount;
+    @Getter @ToString.Include
+    private long addedCount;
+    @Getter @ToString.Include
+    private long droppedCount;
+    @Getter @ToString.Include
+    private long changedCount;
+
+    private final LongList changedKeys = new LongList();
+    private final LongList addedKeys   = new LongList();
+    private final LongList droppedKeys = new LongList();
+
+    @Override
+    public void onEqual(long id) {
+        equalCount++;
+    }
+
+    @Override
+    public void onApproximatelyEqual(long id, DiffSummary diff) {
+        approximatelyEqualCount++;
+    }
+
+    @Override
+    public void onAdded(long id, T added) {
+        addedKeys.add(id);
+        addedCount++;
+    }
+
+    @Override
+    public void onDropped(long id, T dropped) {
+        droppedKeys.add(id);
+        droppedCount++;
+    }
+
+    @Override
+    public void onChanged(long id, DiffSummary diff) {
+        changedKeys.add(id);
+        changedCount++;
+    }
+
+    /**
+     * @return a copy of the changed keys
+     */
+    public long[] getChangedKeys() {
+        return changedKeys.toArray();
+    }
+
+    /**
+     * @return a copy of the added keys
+     */
+    public long[] getAddedKeys() {
+        return addedKeys.toArray();
+    }
+
+    /**
+     * @return a copy of the dropped keys
+     */
+    public long[] getDroppedKeys() {
+        return droppedKeys.toArray();
+    }
+
+    /**
+     * Folds the counts and captured keys of another stats instance into this one; the other
+     * instance's keys are appended after this one's.
+     */
+    public LongComparisonResultStats<T> merge(LongComparisonResultStats<T> other) {
+        equalCount += other.equalCount;
+        approximatelyEqualCount += other.approximatelyEqualCount;
+        addedCount += other.addedCount;
+        droppedCount += other.droppedCount;
+        changedCount += other.changedCount;
+        changedKeys.addAll(other.changedKeys);
+        addedKeys.addAll(other.addedKeys);
+        droppedKeys.addAll(other.droppedKeys);
+        return this;
+    }
+
+    public void reset() {
+        equalCount = 0;
+        approximatelyEqualCount = 0;
+        addedCount = 0;
+        droppedCount = 0;
+        changedCount = 0;
+        changedKeys.clear();
+        addedKeys.clear();
+        droppedKeys.clear();
+    }
+
+    private static final class LongList {
+        private long[] values = new long[16];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(LongList other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.LongComparisonResultHandler;
+
+import java.util.Iterator;
+import java.util.function.ToLongFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A one‑pass differ, like {@link RegularDifferencer}, for records keyed by a 64-bit id. Keys are
+ * extracted once per record as primitive longs and compared with {@link Long#compare}, and events go
+ * to a {@link LongComparisonResultHandler}, so no key is boxed.
+ *
+ * <p><strong>Preconditions:</strong> each source Iterable must be sorted strictly ascending by key
+ * (signed order), with no duplicate keys.
+ */
+public class LongKeyDifferencer<T> {
+
+    private final ToLongFunction<? super T> keyExtractor;
+    private final DiffComparator<? super T> dataComparator;
+    private final boolean validateInputs;
+
+    public LongKeyDifferencer(ToLongFunction<? super T> keyExtractor,
+                              DiffComparator<? super T> dataComparator) {
+        this(keyExtractor, dataComparator, false);
+    }
+
+    /**
+     * @param keyExtractor   gives the id of a record
+     * @param dataComparator used to compute field‑level diffs once keys match
+     * @param validateInputs if true, check as the inputs are read that keys strictly increase
+     */
+    public LongKeyDifferencer(ToLongFunction<? super T> keyExtractor,
+                              DiffComparator<? super T> dataComparator, boolean validateInputs) {
+        this.keyExtractor   = requireNonNull(keyExtractor);
+        this.dataComparator = requireNonNull(dataComparator);
+        this.validateInputs = validateInputs;
+    }
+
+    public static <T> LongKeyDifferencer<T> withValidation(ToLongFunction<? super T> keyExtractor,
+                                                           DiffComparator<? super T> dataComparator) {
+        return new LongKeyDifferencer<T>(keyExtractor, dataComparator, true);
+    }
+
+    /**
+     * Walks the two sorted iterables in one pass and fires an event per key.
+     *
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if validation is on and inputs are out‑of‑order or contain duplicates
+     */
+    public void computeDiff(Iterable<T> expected,
+                            Iterable<T> actual,
+                            LongComparisonResultHandler<T> handler) {
+        requireNonNull(expected, "expected iterable must not be null");
+        requireNonNull(actual,   "actual iterable must not be null");
+        requireNonNull(handler,  "handler must not be null");
+
+        Side<T> e = new Side<>(expected.iterator(), keyExtractor, validateInputs);
+        Side<T> a = new Side<>(actual.iterator(), keyExtractor, validateInputs);
+        boolean hasE = e.advance(), hasA = a.advance();
+
+        while (hasE && hasA) {
+            int cmp = Long.compare(a.key, e.key);
+            if (cmp == 0) {
+                reportMatch(handler, e.key, e.current, a.current);
+                hasA = a.advance();
+                hasE = e.advance();
+            } else if (cmp < 0) {
+                handler.onAdded(a.key, a.current);
+                hasA = a.advance();
+            } else {
+                handler.onDropped(e.key, e.current);
+                hasE = e.advance();
+            }
+        }
+
+        // flush remaining
+        while (hasE) {
+            handler.onDropped(e.key, e.current);
+            hasE = e.advance();
+        }
+        while (hasA) {
+            handler.onAdded(a.key, a.current);
+            hasA = a.advance();
+        }
+    }
+
+    /**
+     * Convenience method: runs the diff and returns the collected stats.
+     */
+    public LongComparisonResultStats<T> diffAndCollect(Iterable<T> expected, Iterable<T> actual) {
+        LongComparisonResultStats<T> stats = new LongComparisonResultStats<>();
+        computeDiff(expected, actual, stats);
+        return stats;
+    }
+
+    private void reportMatch(LongComparisonResultHandler<T> handler, long id, T e, T a) {
+        DiffSummary d = RegularDifferencer.diffOrNull(dataComparator, e, a);
+        switch (RegularDifferencer.outcome(d)) {
+            case Equal -> handler.onEqual(id);
+            case ApproximatelyEqual -> handler.onApproximatelyEqual(id, d);
+            case Changed -> handler.onChanged(id, d);
+        }
+    }
+
+    /**
+     * The current record of one input and its key.
+     */
+    private static final class Side<T> {
+        private final Iterator<T> iterator;
+        private final ToLongFunction<? super T> keyExtractor;
+        private final boolean validate;
+        T current;
+        long key;
+        private boolean started;
+
+        Side(Iterator<T> iterator, ToLongFunction<? super T> keyExtractor, boolean validate) {
+            this.iterator = iterator;
+            this.keyExtractor = keyExtractor;
+            this.validate = validate;
+        }
+
+        boolean advance() {
+            if (!iterator.hasNext()) {
+                current = null;
+                return false;
+            }
+            T next = iterator.next();
+            long nextKey = keyExtractor.applyAsLong(next);
+            if (validate && started) {
+                if (nextKey < key) {
+                    throw new IllegalArgumentException(String.format(
+                            "Out of order: key <%s> should come before <%s>", nextKey, key));
+                }
+                if (nextKey == key) {
+                    throw new IllegalArgumentException(String.format("Duplicate key detected: <%s>", nextKey));
+                }
+            }
+            current = next;
+            key = nextKey;
+            started = true;
+            return true;
+        }
+    }
+}
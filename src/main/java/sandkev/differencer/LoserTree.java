@@ -0,0 +1,104 @@
+package sandkev.differencer;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A tournament (loser) tree that k-way merges sorted iterators.
+ *
+ * <p>Each internal node remembers the loser of the match played there, so replacing the
+ * winner only replays the matches on its path to the root: log2(k) comparisons per element.
+ * Ties are won by the source with the lower index, which keeps the merge stable.
+ */
+class LoserTree<T> implements Iterator<T> {
+
+    private final List<? extends Iterator<? extends T>> sources;
+    private final Comparator<? super T> comparator;
+    private final Object[] heads;
+    private final boolean[] exhausted;
+    /** tree[0] is the current winner, tree[1..k-1] the losers of each internal node. */
+    private final int[] tree;
+    private final int k;
+    private int lastSource = -1;
+
+    LoserTree(List<? extends Iterator<? extends T>> sources, Comparator<? super T> comparator) {
+        this.sources = sources;
+        this.comparator = comparator;
+        this.k = sources.size();
+        this.heads = new Object[k];
+        this.exhausted = new boolean[k];
+        this.tree = new int[Math.max(k, 1)];
+        for (int i = 0; i < k; i++) {
+            advance(i);
+        }
+        // k stands for a virtual source that beats everything, so the initial adjustments
+        // push every real source into its place in the tree
+        Arrays.fill(tree, k);
+        for (int i = k - 1; i >= 0; i--) {
+            adjust(i);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return k > 0 && !exhausted[tree[0]];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int winner = tree[0];
+        T result = (T) heads[winner];
+        advance(winner);
+        adjust(winner);
+        lastSource = winner;
+        return result;
+    }
+
+    /**
+     * @return the index of the source that supplied the element last returned by next()
+     */
+    int lastSource() {
+        return lastSource;
+    }
+
+    private void advance(int source) {
+        Iterator<? extends T> it = sources.get(source);
+        if (it.hasNext()) {
+            heads[source] = it.next();
+        } else {
+            heads[source] = null;
+            exhausted[source] = true;
+        }
+    }
+
+    private void adjust(int source) {
+        int winner = source;
+        for (int node = (source + k) / 2; node > 0; node /= 2) {
+            if (beats(tree[node], winner)) {
+                int loser = winner;
+                winner = tree[node];
+                tree[node] = loser;
+            }
+        }
+        tree[0] = winner;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean beats(int a, int b) {
+        if (a == k || b == k) {
+            return a == k;
+        }
+        if (exhausted[a] || exhausted[b]) {
+            return !exhausted[a] || (exhausted[b] && a < b);
+        }
+        int cmp = comparator.compare((T) heads[a], (T) heads[b]);
+        return cmp < 0 || (cmp == 0 && a < b);
+    }
+}
@@ -0,0 +1,165 @@
+package sandkev.differencer;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A source over a file of delimited lines, already sorted by key, read through memory mapping
+ * rather than a Reader. Each line is handed out as a {@link MappedRecord} over the mapped bytes, so
+ * a record whose fields are never read is never decoded:
+ *
+ * <pre>{@code
+ * var source = new MappedFileSource<Long>(path, '|', record -> record.longField(0));
+ * differencer.computeDiff(expectedSource, source, handler);
+ * }</pre>
+ *
+ * The file is mapped a window at a time, so only a window's worth of address space is needed
+ * however large the file is, plus whatever windows are kept mapped by records still referenced.
+ * Lines end with \n or \r\n; the last may have no terminator. Fields are split on the delimiter
+ * with no quoting. A compressed file is read with {@link #decompressing} instead.
+ *
+ * @param <K> the key type
+ */
+public class MappedFileSource<K> implements Iterable<MappedRecord<K>> {
+
+    public static final long DEFAULT_WINDOW_SIZE = 64L << 20;
+
+    private final Path file;
+    private final Function<Path, ByteWindows> opener;
+    private final byte delimiter;
+    private final Function<? super MappedRecord<K>, ? extends K> keyDecoder;
+    private final long windowSize;
+
+    public MappedFileSource(Path file, char delimiter, Function<? super MappedRecord<K>, ? extends K> keyDecoder) {
+        this(file, delimiter, keyDecoder, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param file       the file, sorted by key
+     * @param delimiter  the ASCII field separator
+     * @param keyDecoder decodes a record's key from its fields
+     * @param windowSize how many bytes of the file to map at a time; a line longer than this is
+     *                   mapped in a larger window of its own
+     */
+    public MappedFileSource(Path file, char delimiter, Function<? super MappedRecord<K>, ? extends K> keyDecoder,
+                            long windowSize) {
+        this(file, MappedWindows::new, delimiter, keyDecoder, windowSize);
+    }
+
+    /**
+     * A source over a file that may be gzip or BGZF compressed, as {@link Decompression#open} judges,
+     * inflated as it is read into heap windows rather than mapped.
+     *
+     * @param threads how many threads inflate a BGZF file
+     * @param metrics where inflate time and sizes are recorded, or null
+     */
+    public static <K> MappedFileSource<K> decompressing(Path file, char delimiter,
+                                                        Function<? super MappedRecord<K>, ? extends K> keyDecoder,
+                                                        int threads, DiffMetrics metrics) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        return new MappedFileSource<>(file, path -> StreamWindows.decompressing(path, threads, metrics), delimiter,
+                keyDecoder, StreamWindows.DEFAULT_WINDOW_SIZE);
+    }
+
+    private MappedFileSource(Path file, Function<Path, ByteWindows> opener, char delimiter,
+                             Function<? super MappedRecord<K>, ? extends K> keyDecoder, long windowSize) {
+        this.opener = opener;
+        this.file = requireNonNull(file, "file must not be null");
+        this.keyDecoder = requireNonNull(keyDecoder, "keyDecoder must not be null");
+        if (delimiter >= 0x80 || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException("delimiter must be an ASCII character other than a line terminator");
+        }
+        if (windowSize < 1 || windowSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("windowSize must be between 1 and " + Integer.MAX_VALUE + ": " + windowSize);
+        }
+        this.delimiter = (byte) delimiter;
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Opens the file; it is closed when the iterator is exhausted or closed.
+     *
+     * @throws java.io.UncheckedIOException if the file cannot be opened
+     */
+    @Override
+    public CloseableIterator<MappedRecord<K>> iterator() {
+        return new LineIterator();
+    }
+
+    private class LineIterator implements CloseableIterator<MappedRecord<K>> {
+        private final ByteWindows windows = opener.apply(file);
+        private ByteBuffer window;
+        private long windowStart;
+        private int position;
+        private MappedRecord<K> next;
+        private boolean closed;
+
+        LineIterator() {
+            window = windows.map(0, windowSize);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !closed) {
+                next = readLine();
+                if (next == null) {
+                    close();
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public MappedRecord<K> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            MappedRecord<K> record = next;
+            next = null;
+            return record;
+        }
+
+        private MappedRecord<K> readLine() {
+            while (true) {
+                int limit = window.limit();
+                for (int i = position; i < limit; i++) {
+                    if (window.get(i) == '\n') {
+                        return line(i, i + 1);
+                    }
+                }
+                if (windows.endsAt(windowStart + limit)) {
+                    return position < limit ? line(limit, limit) : null;
+                }
+                // the line runs past the window: map the next window from its start, and if the
+                // line filled the whole window, a window twice the size
+                long length = position == 0 ? 2L * limit : windowSize;
+                windowStart += position;
+                window = windows.map(windowStart, length);
+                position = 0;
+            }
+        }
+
+        private MappedRecord<K> line(int end, int nextPosition) {
+            int start = position;
+            if (end > start && window.get(end - 1) == '\r') {
+                end--;
+            }
+            position = nextPosition;
+            return new MappedRecord<>(window, start, end, delimiter, keyDecoder);
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                windows.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.Identifiable;
+
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+/**
+ * One line of a {@link MappedFileSource}: a view over the mapped bytes rather than a copy of them.
+ * Nothing is decoded until asked for. The key is decoded on the first {@link #getId()} and kept,
+ * the field boundaries are found on the first field access, and each field is decoded as it is read.
+ * Compare fields with {@link #fieldEquals} to avoid decoding them at all.
+ *
+ * <p>A record keeps its window of the file mapped for as long as the record is referenced.
+ *
+ * @param <K> the key type
+ */
+public final class MappedRecord<K> implements Identifiable<K> {
+    private final ByteBuffer window;
+    private final int start;
+    private final int end;
+    private final byte delimiter;
+    private final Function<? super MappedRecord<K>, ? extends K> keyDecoder;
+    private K key;
+    /** the start of each field and, last, end + 1 */
+    private int[] fields;
+
+    MappedRecord(ByteBuffer window, int start, int end, byte delimiter,
+                 Function<? super MappedRecord<K>, ? extends K> keyDecoder) {
+        this.window = window;
+        this.start = start;
+        this.end = end;
+        this.delimiter = delimiter;
+        this.keyDecoder = keyDecoder;
+    }
+
+    @Override
+    public K getId() {
+        if (key == null) {
+            key = keyDecoder.apply(this);
+        }
+        return key;
+    }
+
+    /**
+     * @return the length of the line in bytes, without its line terminator
+     */
+    public int length() {
+        return end - start;
+    }
+
+    /**
+     * @return a read-only view of the line's bytes, without its line terminator
+     */
+    public ByteBuffer bytes() {
+        return window.slice(start, end - start).asReadOnlyBuffer();
+    }
+
+    public int fieldCount() {
+        return fields().length - 1;
+    }
+
+    /**
+     * @return the field, decoded as UTF-8
+     * @throws IndexOutOfBoundsException if the line has no such field
+     */
+    public String field(int index) {
+        return AsciiParsing.decode(window, fieldStart(index), fieldEnd(index));
+    }
+
+    /**
+     * @return the field parsed as a decimal long, without creating a String
+     * @throws NumberFormatException if the field is not an optionally signed run of ASCII digits
+     *         that fits in a long
+     */
+    public long longField(int index) {
+        return AsciiParsing.parseLong(window, fieldStart(index), fieldEnd(index));
+    }
+
+    /**
+     * @return whether the field has the same bytes as the same field of other
+     */
+    public boolean fieldEquals(int index, MappedRecord<?> other) {
+        int from = fieldStart(index), otherFrom = other.fieldStart(index);
+        int length = fieldEnd(index) - from;
+        return length == other.fieldEnd(index) - otherFrom
+                && window.slice(from, length).equals(other.window.slice(otherFrom, length));
+    }
+
+    /**
+     * @return whether the whole line has the same bytes as other's
+     */
+    public boolean contentEquals(MappedRecord<?> other) {
+        return length() == other.length()
+                && window.slice(start, length()).equals(other.window.slice(other.start, other.length()));
+    }
+
+    private int fieldStart(int index) {
+        int[] fields = fields();
+        if (index < 0 || index >= fields.length - 1) {
+            throw new IndexOutOfBoundsException("field " + index + " of " + (fields.length - 1));
+        }
+        return fields[index];
+    }
+
+    private int fieldEnd(int index) {
+        return fields[index + 1] - 1;
+    }
+
+    private int[] fields() {
+        if (fields == null) {
+            int count = 1;
+            for (int i = start; i < end; i++) {
+                if (window.get(i) == delimiter) {
+                    count++;
+                }
+            }
+            int[] found = new int[count + 1];
+            found[0] = start;
+            int n = 1;
+            for (int i = start; i < end; i++) {
+                if (window.get(i) == delimiter) {
+                    found[n++] = i + 1;
+                }
+            }
+            found[n] = end + 1;
+            fields = found;
+        }
+        return fields;
+    }
+
+    @Override
+    public String toString() {
+        return AsciiParsing.decode(window, start, end);
+    }
+}
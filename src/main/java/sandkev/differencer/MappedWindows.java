@@ -0,0 +1,57 @@
+package sandkev.differencer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Maps a file a window at a time, so a file larger than the address space set aside for it can still
+ * be read sequentially. A window stays mapped for as long as anything references it, whether or not
+ * the file has been closed.
+ */
+final class MappedWindows implements ByteWindows {
+    private final FileChannel channel;
+    private final long size;
+
+    MappedWindows(Path file) {
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if length is more than a buffer can address
+     */
+    @Override
+    public MappedByteBuffer map(long position, long length) {
+        long mapped = Math.min(length, size - position);
+        if (mapped > Integer.MAX_VALUE) {
+            throw new IllegalStateException("cannot map " + mapped + " bytes from " + position + " in one window");
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, mapped);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean endsAt(long position) {
+        return position == size;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.Identifiable;
+
+import java.util.Comparator;
+
+/**
+ * Validates both inputs of a merge from the comparisons the merge makes anyway.
+ *
+ * <p>Both sides are sorted and duplicate-free exactly when every step of the merge is for a key after
+ * the previous step's, so it is enough to check each step's key against the last one. Often the merge
+ * has already proved that: after a record is dropped for being before the actual one, the actual
+ * one is known to come after it, and the same the other way round. Only the record that replaced
+ * the last step's needs a comparison of its own, and then only if it comes first again. A merge whose
+ * sides interleave validates for free, while a run of records from one side, or of matched pairs,
+ * costs one comparison per step where a validating iterator per side would cost one per record.
+ */
+final class MergeOrderCheck<T extends Identifiable<?>> {
+    private final Comparator<? super T> keyComparator;
+    /** the record of the previous step */
+    private T last;
+    /** the previous record of each side, to say which side is at fault */
+    private T previousExpected, previousActual;
+    /** whether each side's current record is known to come after last */
+    private boolean expectedAfterLast, actualAfterLast;
+
+    MergeOrderCheck(Comparator<? super T> keyComparator) {
+        this.keyComparator = keyComparator;
+    }
+
+    /**
+     * For a resumed merge whose current records are known to come after last.
+     */
+    void startAfter(T last) {
+        this.last = last;
+        expectedAfterLast = actualAfterLast = true;
+    }
+
+    /**
+     * Checks the step the merge is about to take.
+     *
+     * @param cmp keyComparator.compare(a, e)
+     * @throws IllegalArgumentException if either side is out of order or has a duplicate
+     */
+    void step(T e, T a, int cmp) {
+        if (cmp == 0) {
+            if (!expectedAfterLast && !actualAfterLast && last != null && keyComparator.compare(e, last) <= 0) {
+                blame(e, previousExpected);
+                blame(a, previousActual);
+                throw outOfOrder(e, last);
+            }
+            last = e;
+            previousExpected = e;
+            previousActual = a;
+            expectedAfterLast = actualAfterLast = false;
+        } else if (cmp < 0) {
+            actual(a);
+            expectedAfterLast = true;
+        } else {
+            expected(e);
+            actualAfterLast = true;
+        }
+    }
+
+    /**
+     * Checks the step for an expected record alone, as when actual has run out.
+     */
+    void expected(T e) {
+        if (!expectedAfterLast && last != null && keyComparator.compare(e, last) <= 0) {
+            blame(e, previousExpected);
+            throw outOfOrder(e, last);
+        }
+        last = e;
+        previousExpected = e;
+        expectedAfterLast = false;
+    }
+
+    /**
+     * Checks the step for an actual record alone, as when expected has run out.
+     */
+    void actual(T a) {
+        if (!actualAfterLast && last != null && keyComparator.compare(a, last) <= 0) {
+            blame(a, previousActual);
+            throw outOfOrder(a, last);
+        }
+        last = a;
+        previousActual = a;
+        actualAfterLast = false;
+    }
+
+    /**
+     * Throws if current is not after previous, the record before it on the same side.
+     */
+    private void blame(T current, T previous) {
+        if (previous == null) {
+            return;
+        }
+        int cmp = keyComparator.compare(previous, current);
+        if (cmp > 0) {
+            throw outOfOrder(current, previous);
+        }
+        if (cmp == 0) {
+            throw new IllegalArgumentException(String.format("Duplicate key detected: <%s>", current.getId()));
+        }
+    }
+
+    private static IllegalArgumentException outOfOrder(Identifiable<?> current, Identifiable<?> previous) {
+        return new IllegalArgumentException(String.format(
+                "Out of order: key <%s> should come before <%s>", current.getId(), previous.getId()));
+    }
+}
@@ -0,0 +1,202 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.MerklePeer;
+import sandkev.differencer.api.MerklePeer.KeyRange;
+import sandkev.differencer.api.MerklePeer.RangeDigest;
+import sandkev.differencer.api.RowFingerprinter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Diffs local records against records held by a {@link MerklePeer}, typically in another process,
+ * while only moving the rows of ranges that differ.
+ *
+ * <p>Starting from the whole key space, each round sends the peer every still-unresolved key range
+ * and compares its digests with the local ones. Matching ranges are Equal throughout; mismatching
+ * ranges are split at their local middle key, until they hold at most leafSize local records. The
+ * rows of those leaves are fetched in one final round and run through a {@link RegularDifferencer}.
+ * That is about log2(n / leafSize) digest round trips, and transfer proportional to the number of
+ * differing leaves. Events are delivered in key order.
+ *
+ * <p>A range is taken to be Equal when its count and hash match, so a 64-bit hash collision could
+ * hide a change.
+ */
+public class MerkleDiffer<T extends Identifiable<K>,K> {
+
+    static final int DEFAULT_LEAF_SIZE = 256;
+
+    private enum State { OPEN, EQUAL, FETCH }
+
+    private static final class Node<K> {
+        final int from, to;
+        final KeyRange<K> range;
+        State state = State.OPEN;
+
+        Node(int from, int to, KeyRange<K> range) {
+            this.from = from;
+            this.to = to;
+            this.range = range;
+        }
+    }
+
+    private final Comparator<? super K> keyComparator;
+    private final RowFingerprinter<? super T> fingerprinter;
+    private final int leafSize;
+    private final RegularDifferencer<T,K> leafDifferencer;
+    private final Function<? super K, byte[]> keyEncoder;
+
+    public MerkleDiffer(Comparator<? super K> keyComparator,
+                        DiffComparator<? super T> dataComparator,
+                        RowFingerprinter<? super T> fingerprinter) {
+        this(keyComparator, dataComparator, fingerprinter, DEFAULT_LEAF_SIZE);
+    }
+
+    /**
+     * @param keyComparator  the key order of both sides
+     * @param dataComparator used to compute field‑level diffs for the rows of mismatching ranges
+     * @param fingerprinter  hashes a record's content; the peer must use the same one
+     * @param leafSize       stop splitting a mismatching range once it holds this many local records
+     */
+    public MerkleDiffer(Comparator<? super K> keyComparator,
+                        DiffComparator<? super T> dataComparator,
+                        RowFingerprinter<? super T> fingerprinter,
+                        int leafSize) {
+        this.keyComparator = requireNonNull(keyComparator);
+        this.fingerprinter = requireNonNull(fingerprinter);
+        if (leafSize < 1) {
+            throw new IllegalArgumentException("leafSize must be positive: " + leafSize);
+        }
+        this.leafSize = leafSize;
+        Comparator<T> byKey = (a, b) -> keyComparator.compare(a.getId(), b.getId());
+        this.leafDifferencer = new RegularDifferencer<T,K>(byKey, requireNonNull(dataComparator));
+        this.keyEncoder = null;
+    }
+
+    private MerkleDiffer(MerkleDiffer<T,K> other, Function<? super K, byte[]> keyEncoder) {
+        this.keyComparator = other.keyComparator;
+        this.fingerprinter = other.fingerprinter;
+        this.leafSize = other.leafSize;
+        this.leafDifferencer = other.leafDifferencer;
+        this.keyEncoder = keyEncoder;
+    }
+
+    /**
+     * Returns a copy that indexes expected records hashing each key by its encoding, for keys that
+     * are not strings or boxed primitives; the peer's tree must use the same encoder.
+     *
+     * @see MerkleTree#MerkleTree(List, Comparator, RowFingerprinter, Function)
+     */
+    public MerkleDiffer<T,K> withKeyEncoder(Function<? super K, byte[]> keyEncoder) {
+        return new MerkleDiffer<>(this, requireNonNull(keyEncoder, "keyEncoder must not be null"));
+    }
+
+    /**
+     * Indexes the expected records and diffs them against the peer's.
+     *
+     * @param expected sorted strictly by key
+     * @param actual   the peer holding the actual records
+     * @throws IllegalArgumentException if expected is out‑of‑order or contains duplicates, or its keys
+     *                                  need a key encoder and none was given
+     * @throws UncheckedIOException if talking to the peer fails
+     */
+    public void computeDiff(Iterable<T> expected, MerklePeer<T,K> actual, ComparisonResultHandler<T,K> handler) {
+        requireNonNull(expected, "expected iterable must not be null");
+        computeDiff(keyEncoder == null
+                ? MerkleTree.of(expected, keyComparator, fingerprinter)
+                : MerkleTree.of(expected, keyComparator, fingerprinter, keyEncoder), actual, handler);
+    }
+
+    /**
+     * Diffs an already indexed set of expected records against the peer's; the tree must have been
+     * built with the same fingerprinter and key encoder as the peer's.
+     */
+    public void computeDiff(MerkleTree<T,K> expected, MerklePeer<T,K> actual, ComparisonResultHandler<T,K> handler) {
+        requireNonNull(expected, "expected tree must not be null");
+        requireNonNull(actual,   "actual peer must not be null");
+        requireNonNull(handler,  "handler must not be null");
+        try {
+            List<Node<K>> nodes = resolve(expected, actual);
+            deliver(expected, actual, nodes, handler);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Descends level by level until every range is known to be equal or is a leaf to fetch.
+     *
+     * @return the ranges in key order
+     */
+    private List<Node<K>> resolve(MerkleTree<T,K> local, MerklePeer<T,K> peer) throws IOException {
+        List<Node<K>> nodes = new ArrayList<>();
+        nodes.add(new Node<>(0, local.size(), new KeyRange<>(null, null)));
+        List<Node<K>> open = nodes;
+        while (!open.isEmpty()) {
+            List<KeyRange<K>> ranges = new ArrayList<>(open.size());
+            for (Node<K> node : open) {
+                ranges.add(node.range);
+            }
+            Iterator<RangeDigest> remote = peer.digest(ranges).iterator();
+
+            List<Node<K>> next = new ArrayList<>(nodes.size());
+            List<Node<K>> nextOpen = new ArrayList<>();
+            for (Node<K> node : nodes) {
+                if (node.state != State.OPEN) {
+                    next.add(node);
+                } else if (local.digest(node.from, node.to).equals(remote.next())) {
+                    node.state = State.EQUAL;
+                    next.add(node);
+                } else if (node.to - node.from <= leafSize) {
+                    node.state = State.FETCH;
+                    next.add(node);
+                } else {
+                    int mid = (node.from + node.to) >>> 1;
+                    K split = local.get(mid).getId();
+                    Node<K> left = new Node<>(node.from, mid, new KeyRange<>(node.range.from(), split));
+                    Node<K> right = new Node<>(mid, node.to, new KeyRange<>(split, node.range.to()));
+                    next.add(left);
+                    next.add(right);
+                    nextOpen.add(left);
+                    nextOpen.add(right);
+                }
+            }
+            nodes = next;
+            open = nextOpen;
+        }
+        return nodes;
+    }
+
+    private void deliver(MerkleTree<T,K> local, MerklePeer<T,K> peer, List<Node<K>> nodes,
+                         ComparisonResultHandler<T,K> handler) throws IOException {
+        List<KeyRange<K>> leaves = new ArrayList<>();
+        for (Node<K> node : nodes) {
+            if (node.state == State.FETCH) {
+                leaves.add(node.range);
+            }
+        }
+        Iterator<List<T>> fetched = leaves.isEmpty()
+                ? List.<List<T>>of().iterator()
+                : peer.fetch(leaves).iterator();
+
+        for (Node<K> node : nodes) {
+            if (node.state == State.EQUAL) {
+                for (T record : local.rows(node.from, node.to)) {
+                    handler.onEqual(record.getId());
+                }
+            } else {
+                leafDifferencer.computeDiff(local.rows(node.from, node.to), fetched.next(), handler);
+            }
+        }
+    }
+}
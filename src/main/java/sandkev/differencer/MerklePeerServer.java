@@ -0,0 +1,130 @@
+package sandkev.differencer;
+
+import lombok.extern.slf4j.Slf4j;
+import sandkev.differencer.api.MerklePeer;
+import sandkev.differencer.api.MerklePeer.KeyRange;
+import sandkev.differencer.api.MerklePeer.RangeDigest;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Serves a {@link MerklePeer}, usually a {@link MerkleTree}, to {@link SocketMerklePeer} clients over
+ * TCP, one virtual thread per connection.
+ */
+@Slf4j
+public class MerklePeerServer<T,K> implements Closeable {
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final MerklePeer<T,K> peer;
+    private final RecordSerializer<T> rowSerializer;
+    private final RecordSerializer<K> keySerializer;
+    private final ServerSocket serverSocket;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Starts listening on the loopback address.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     */
+    public MerklePeerServer(MerklePeer<T,K> peer, RecordSerializer<T> rowSerializer,
+                            RecordSerializer<K> keySerializer, int port) throws IOException {
+        this(peer, rowSerializer, keySerializer, new ServerSocket(port, 50, InetAddress.getLoopbackAddress()));
+    }
+
+    /**
+     * Serves on an already bound server socket, which is closed with this server.
+     */
+    public MerklePeerServer(MerklePeer<T,K> peer, RecordSerializer<T> rowSerializer,
+                            RecordSerializer<K> keySerializer, ServerSocket serverSocket) {
+        this.peer = requireNonNull(peer, "peer must not be null");
+        this.rowSerializer = requireNonNull(rowSerializer, "rowSerializer must not be null");
+        this.keySerializer = requireNonNull(keySerializer, "keySerializer must not be null");
+        this.serverSocket = requireNonNull(serverSocket, "serverSocket must not be null");
+        Thread.ofVirtual().name("merkle-accept-" + serverSocket.getLocalPort()).start(this::accept);
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                Thread.ofVirtual().name("merkle-serve-" + socket.getPort()).start(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("accept failed", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             var in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), IO_BUFFER_SIZE));
+             var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), IO_BUFFER_SIZE))) {
+            while (true) {
+                byte op = in.readByte();
+                if (op == MerkleProtocol.BYE) {
+                    return;
+                }
+                List<KeyRange<K>> ranges = MerkleProtocol.readRanges(keySerializer, in);
+                switch (op) {
+                    case MerkleProtocol.DIGEST -> {
+                        for (RangeDigest digest : peer.digest(ranges)) {
+                            out.writeInt(digest.count());
+                            out.writeLong(digest.hash());
+                        }
+                    }
+                    case MerkleProtocol.FETCH -> {
+                        for (List<T> rows : peer.fetch(ranges)) {
+                            out.writeInt(rows.size());
+                            for (T row : rows) {
+                                rowSerializer.write(row, out);
+                            }
+                        }
+                    }
+                    default -> throw new IOException("unknown request: " + op);
+                }
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // client went away
+        } catch (IOException | RuntimeException e) {
+            if (!serverSocket.isClosed()) {
+                log.warn("connection from {} failed", socket.getRemoteSocketAddress(), e);
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    /**
+     * Stops accepting and drops any open connections.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.MerklePeer.KeyRange;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The wire format shared by {@link MerklePeerServer} and {@link SocketMerklePeer}. A request is an
+ * opcode followed by a count and that many key ranges; a digest reply is a count and hash per range,
+ * and a fetch reply is a row count and the rows for each range.
+ */
+final class MerkleProtocol {
+
+    static final byte BYE = 0;
+    static final byte DIGEST = 1;
+    static final byte FETCH = 2;
+
+    private MerkleProtocol() {
+    }
+
+    static <K> void writeRanges(List<KeyRange<K>> ranges, RecordSerializer<K> keySerializer, DataOutput out) throws IOException {
+        out.writeInt(ranges.size());
+        for (KeyRange<K> range : ranges) {
+            writeBound(range.from(), keySerializer, out);
+            writeBound(range.to(), keySerializer, out);
+        }
+    }
+
+    static <K> List<KeyRange<K>> readRanges(RecordSerializer<K> keySerializer, DataInput in) throws IOException {
+        int count = in.readInt();
+        List<KeyRange<K>> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            K from = readBound(keySerializer, in);
+            K to = readBound(keySerializer, in);
+            ranges.add(new KeyRange<>(from, to));
+        }
+        return ranges;
+    }
+
+    private static <K> void writeBound(K key, RecordSerializer<K> keySerializer, DataOutput out) throws IOException {
+        out.writeBoolean(key != null);
+        if (key != null) {
+            keySerializer.write(key, out);
+        }
+    }
+
+    private static <K> K readBound(RecordSerializer<K> keySerializer, DataInput in) throws IOException {
+        return in.readBoolean() ? keySerializer.read(in) : null;
+    }
+}
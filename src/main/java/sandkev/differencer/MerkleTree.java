@@ -0,0 +1,184 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.MerklePeer;
+import sandkev.differencer.api.RowFingerprinter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A hash index over key-sorted records that can digest any key range in O(log n).
+ *
+ * <p>Each row hashes its key together with its fingerprint, and a range's hash is the sum of its
+ * row hashes. Keeping prefix sums of those hashes makes every range of the implicit tree, whichever
+ * keys the other side splits on, as cheap as its root, so the two sides never have to agree on a
+ * tree shape up front. It answers {@link MerklePeer} queries directly, for an in-process peer, or
+ * behind a {@link MerklePeerServer}.
+ *
+ * <p>Both sides must hash a key the same way, in whatever JVM they run. Strings and boxed longs,
+ * ints, doubles and booleans are hashed by value; any other key type needs a key encoder, such as
+ * a {@link KeyEncoder}'s {@code encode}, since its hashCode may differ from one JVM to the next.
+ */
+public class MerkleTree<T extends Identifiable<K>,K> implements MerklePeer<T,K> {
+
+    private final List<T> records;
+    private final Comparator<? super K> keyComparator;
+    private final long[] prefixHashes;
+
+    /**
+     * @param records       sorted strictly ascending by key; not copied, so do not modify it afterwards
+     * @param keyComparator the key order
+     * @param fingerprinter hashes a record's content; both sides must use the same one
+     * @throws IllegalArgumentException if records are out of order or contain duplicate keys, or a
+     *                                  key is not of a type hashed by value
+     */
+    public MerkleTree(List<T> records, Comparator<? super K> keyComparator, RowFingerprinter<? super T> fingerprinter) {
+        this(records, keyComparator, fingerprinter, (ToLongFunction<K>) MerkleTree::valueKeyHash);
+    }
+
+    /**
+     * @param keyEncoder turns a key into bytes that are the same in every JVM; both sides must use
+     *                   the same one
+     * @see #MerkleTree(List, Comparator, RowFingerprinter)
+     */
+    public MerkleTree(List<T> records, Comparator<? super K> keyComparator, RowFingerprinter<? super T> fingerprinter,
+                      Function<? super K, byte[]> keyEncoder) {
+        this(records, keyComparator, fingerprinter,
+                encodedKeyHash(requireNonNull(keyEncoder, "keyEncoder must not be null")));
+    }
+
+    private MerkleTree(List<T> records, Comparator<? super K> keyComparator, RowFingerprinter<? super T> fingerprinter,
+                       ToLongFunction<? super K> keyHash) {
+        this.records = requireNonNull(records, "records must not be null");
+        this.keyComparator = requireNonNull(keyComparator, "keyComparator must not be null");
+        requireNonNull(fingerprinter, "fingerprinter must not be null");
+        this.prefixHashes = new long[records.size() + 1];
+        K previous = null;
+        for (int i = 0; i < records.size(); i++) {
+            T record = records.get(i);
+            K key = record.getId();
+            if (i > 0) {
+                int cmp = keyComparator.compare(previous, key);
+                if (cmp > 0) {
+                    throw new IllegalArgumentException(String.format(
+                            "Out of order: key <%s> should come before <%s>", key, previous));
+                }
+                if (cmp == 0) {
+                    throw new IllegalArgumentException(String.format("Duplicate key detected: <%s>", key));
+                }
+            }
+            prefixHashes[i + 1] = prefixHashes[i] + rowHash(keyHash.applyAsLong(key), record, fingerprinter);
+            previous = key;
+        }
+    }
+
+    /**
+     * Copies the records into a list and indexes them.
+     */
+    public static <T extends Identifiable<K>,K> MerkleTree<T,K> of(Iterable<T> records,
+                                                                   Comparator<? super K> keyComparator,
+                                                                   RowFingerprinter<? super T> fingerprinter) {
+        return new MerkleTree<>(copy(records), keyComparator, fingerprinter);
+    }
+
+    /**
+     * Copies the records into a list and indexes them, hashing keys by their encoding.
+     */
+    public static <T extends Identifiable<K>,K> MerkleTree<T,K> of(Iterable<T> records,
+                                                                   Comparator<? super K> keyComparator,
+                                                                   RowFingerprinter<? super T> fingerprinter,
+                                                                   Function<? super K, byte[]> keyEncoder) {
+        return new MerkleTree<>(copy(records), keyComparator, fingerprinter, keyEncoder);
+    }
+
+    private static <T> List<T> copy(Iterable<T> records) {
+        List<T> list = new ArrayList<>();
+        records.forEach(list::add);
+        return list;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the key's hash could differ between JVMs
+     */
+    private static long valueKeyHash(Object key) {
+        if (key != null && !(key instanceof CharSequence || key instanceof Long || key instanceof Integer
+                || key instanceof Double || key instanceof Boolean)) {
+            throw new IllegalArgumentException(String.format(
+                    "Key <%s> of %s is not hashed by value; pass a key encoder", key, key.getClass().getName()));
+        }
+        return Fingerprints.add(Fingerprints.SEED, key);
+    }
+
+    private static <K> ToLongFunction<K> encodedKeyHash(Function<? super K, byte[]> keyEncoder) {
+        return key -> Fingerprints.add(Fingerprints.SEED, keyEncoder.apply(key));
+    }
+
+    private static <T> long rowHash(long keyHash, T record, RowFingerprinter<? super T> fingerprinter) {
+        long hash = Fingerprints.add(keyHash, fingerprinter.fingerprint(record));
+        hash = Fingerprints.add(hash, fingerprinter.fingerprintHigh(record));
+        return Fingerprints.finish(hash);
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    T get(int index) {
+        return records.get(index);
+    }
+
+    List<T> rows(int from, int to) {
+        return records.subList(from, to);
+    }
+
+    RangeDigest digest(int from, int to) {
+        return new RangeDigest(to - from, prefixHashes[to] - prefixHashes[from]);
+    }
+
+    /**
+     * @return the index of the first record whose key is not less than key; size() for a null key
+     */
+    int indexOf(K key) {
+        if (key == null) {
+            return records.size();
+        }
+        int lo = 0, hi = records.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keyComparator.compare(records.get(mid).getId(), key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int fromIndex(KeyRange<K> range) {
+        return range.from() == null ? 0 : indexOf(range.from());
+    }
+
+    @Override
+    public List<RangeDigest> digest(List<KeyRange<K>> ranges) {
+        List<RangeDigest> digests = new ArrayList<>(ranges.size());
+        for (KeyRange<K> range : ranges) {
+            digests.add(digest(fromIndex(range), indexOf(range.to())));
+        }
+        return digests;
+    }
+
+    @Override
+    public List<List<T>> fetch(List<KeyRange<K>> ranges) {
+        List<List<T>> rows = new ArrayList<>(ranges.size());
+        for (KeyRange<K> range : ranges) {
+            rows.add(rows(fromIndex(range), indexOf(range.to())));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,84 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.MultiSourceHandler;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Diffs N sorted sources in one pass each: a {@link LoserTree} k-way merges them on the key, and the
+ * records for each key are gathered into a {@link KeyGroup} that says which sources hold it and,
+ * on demand, which of them differ.
+ *
+ * <p><strong>Preconditions:</strong> each source must be sorted strictly by the keyComparator,
+ * without duplicates. Both are checked as the sources are read.
+ */
+public class MultiSourceDifferencer<T extends Identifiable<K>,K> {
+
+    static final int MAX_SOURCES = Long.SIZE;
+
+    private final Comparator<? super T> keyComparator;
+    private final DiffComparator<? super T> dataComparator;
+
+    /**
+     * @param keyComparator  used to order and identify equality of T instances
+     * @param dataComparator used to compare the records sources hold for the same key
+     */
+    public MultiSourceDifferencer(Comparator<? super T> keyComparator,
+                                  DiffComparator<? super T> dataComparator) {
+        this.keyComparator  = requireNonNull(keyComparator);
+        this.dataComparator = requireNonNull(dataComparator);
+    }
+
+    /**
+     * Reads every source once and calls the handler once per distinct key, in key order.
+     *
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if there are more than 64 sources, or a source is out of order
+     *                                  or contains duplicates
+     */
+    public void computeDiff(List<? extends Iterable<T>> sources, MultiSourceHandler<T,K> handler) {
+        requireNonNull(sources, "sources must not be null");
+        requireNonNull(handler, "handler must not be null");
+        if (sources.size() > MAX_SOURCES) {
+            throw new IllegalArgumentException("at most " + MAX_SOURCES + " sources are supported: " + sources.size());
+        }
+        List<Iterator<T>> iterators = new ArrayList<>(sources.size());
+        for (Iterable<T> source : sources) {
+            iterators.add(requireNonNull(source, "source must not be null").iterator());
+        }
+        LoserTree<T> merged = new LoserTree<>(iterators, keyComparator);
+        KeyGroup<T,K> group = new KeyGroup<>(sources.size(), dataComparator);
+
+        T head = null;
+        while (merged.hasNext()) {
+            T record = merged.next();
+            int source = merged.lastSource();
+            int cmp = head == null ? 1 : keyComparator.compare(record, head);
+            if (cmp < 0) {
+                throw new IllegalArgumentException(String.format(
+                        "Out of order: key <%s> in source %d should come before <%s>", record.getId(), source, head.getId()));
+            }
+            if (cmp > 0) {
+                if (head != null) {
+                    handler.onKey(group);
+                }
+                head = record;
+                group.reset(record.getId());
+            }
+            if (!group.add(source, record)) {
+                throw new IllegalArgumentException(String.format(
+                        "Duplicate key detected: <%s> in source %d", record.getId(), source));
+            }
+        }
+        if (head != null) {
+            handler.onKey(group);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package sandkev.differencer;
+
+import java.util.function.BiConsumer;
+
+/**
+ * An open-addressing (linear probing) hash table from key to record that remembers which
+ * entries have been matched, so the unmatched leftovers can be walked once probing is done.
+ *
+ * <p>Keys and records live in flat arrays, so an entry costs two references and a bit rather
+ * than the node object a HashMap allocates. Entries are never removed. Not thread-safe.
+ */
+class OpenHashIndex<K,T> {
+
+    private static final int MIN_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private Object[] keys;
+    private Object[] records;
+    private long[] matched;
+    private int size;
+
+    OpenHashIndex(int expectedSize) {
+        allocate(capacityFor(Math.max(expectedSize, 1)));
+    }
+
+    private static int capacityFor(int entries) {
+        long needed = (long) Math.ceil(entries / LOAD_FACTOR);
+        int capacity = MIN_CAPACITY;
+        while (capacity < needed) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        records = new Object[capacity];
+        matched = new long[(capacity + 63) >>> 6];
+    }
+
+    private static int spread(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return false, leaving the table unchanged, if the key is already present
+     */
+    boolean put(K key, T record) {
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        int mask = keys.length - 1;
+        for (int i = spread(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == null) {
+                keys[i] = key;
+                records[i] = record;
+                size++;
+                return true;
+            }
+            if (keys[i].equals(key)) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * @return the slot holding the key, or -1 if it is absent
+     */
+    int find(K key) {
+        int mask = keys.length - 1;
+        for (int i = spread(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == null) {
+                return -1;
+            }
+            if (keys[i].equals(key)) {
+                return i;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    T recordAt(int slot) {
+        return (T) records[slot];
+    }
+
+    /**
+     * @return false if the slot had already been matched
+     */
+    boolean markMatched(int slot) {
+        long bit = 1L << slot;
+        long word = matched[slot >>> 6];
+        matched[slot >>> 6] = word | bit;
+        return (word & bit) == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachUnmatched(BiConsumer<? super K, ? super T> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null && (matched[i >>> 6] & (1L << i)) == 0) {
+                action.accept((K) keys[i], (T) records[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize() {
+        Object[] oldKeys = keys, oldRecords = records;
+        long[] oldMatched = matched;
+        allocate(oldKeys.length << 1);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                put((K) oldKeys[i], (T) oldRecords[i]);
+                if ((oldMatched[i >>> 6] & (1L << i)) != 0) {
+                    markMatched(find((K) oldKeys[i]));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffComparator;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Takes merge events in key order, evaluates the data comparator for matched pairs on a worker pool
+ * a batch at a time, and delivers the outcomes to the handler in the original order.
+ *
+ * <p>Batches are chained so each is delivered only after the one before it, which makes the chain
+ * the reorder buffer: handler callbacks come from pool threads, but one at a time and in key order.
+ * A fixed set of batches is recycled, so the merge thread only blocks when all of them are in flight.
+ */
+class ParallelMatchPipeline<T,K> implements RegularDifferencer.MergeSink<T,K> {
+
+    private enum Kind { ADDED, DROPPED, MATCHED, EQUAL }
+
+    private final DiffComparator<? super T> dataComparator;
+    private final ComparisonResultHandler<T,K> handler;
+    private final Executor executor;
+    private final BlockingQueue<Batch> free;
+    private Batch filling;
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+    private volatile boolean cancelled;
+
+    ParallelMatchPipeline(DiffComparator<? super T> dataComparator,
+                          ComparisonResultHandler<T,K> handler,
+                          Executor executor,
+                          int batchSize,
+                          int maxInFlight) {
+        this.dataComparator = dataComparator;
+        this.handler = handler;
+        this.executor = executor;
+        this.free = new ArrayBlockingQueue<>(maxInFlight);
+        for (int i = 0; i < maxInFlight; i++) {
+            free.add(new Batch(batchSize));
+        }
+    }
+
+    @Override
+    public void added(K id, T actual) {
+        add(Kind.ADDED, id, null, actual);
+    }
+
+    @Override
+    public void dropped(K id, T expected) {
+        add(Kind.DROPPED, id, expected, null);
+    }
+
+    @Override
+    public void matched(K id, T expected, T actual) {
+        add(Kind.MATCHED, id, expected, actual);
+    }
+
+    @Override
+    public void equal(K id, T expected, T actual) {
+        add(Kind.EQUAL, id, null, null);
+    }
+
+    private void add(Kind kind, K id, T expected, T actual) {
+        if (filling == null) {
+            filling = takeFree();
+        }
+        filling.add(kind, id, expected, actual);
+        if (filling.isFull()) {
+            submit();
+        }
+    }
+
+    private Batch takeFree() {
+        try {
+            Batch batch = free.take();
+            if (tail.isCompletedExceptionally()) {
+                free.add(batch);
+                awaitDelivery();
+            }
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for comparisons", e);
+        }
+    }
+
+    private void submit() {
+        Batch batch = filling;
+        filling = null;
+        CompletableFuture<Void> evaluated = CompletableFuture.runAsync(batch::evaluate, executor);
+        tail = tail.thenCombine(evaluated, (previous, ignored) -> batch)
+                .thenAccept(Batch::deliver)
+                .whenComplete((ignored, failure) -> {
+                    batch.clear();
+                    free.add(batch);
+                });
+    }
+
+    /**
+     * Submits the last partial batch and waits until every event has been delivered.
+     *
+     * @throws RuntimeException whatever the comparator or the handler threw first
+     */
+    void finish() {
+        if (filling != null) {
+            submit();
+        }
+        awaitDelivery();
+    }
+
+    /**
+     * Drops whatever has not been delivered yet and waits for the workers to finish with it; for when
+     * the merge loop itself has failed.
+     */
+    void cancel() {
+        cancelled = true;
+        try {
+            tail.join();
+        } catch (CompletionException ignored) {
+            // the merge failure is the one to report
+        }
+    }
+
+    private void awaitDelivery() {
+        try {
+            tail.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw e;
+        }
+    }
+
+    private class Batch {
+        private final Kind[] kinds;
+        private final Object[] ids;
+        private final Object[] expected;
+        private final Object[] actual;
+        private final DiffSummary[] diffs;
+        private int size;
+
+        Batch(int capacity) {
+            kinds = new Kind[capacity];
+            ids = new Object[capacity];
+            expected = new Object[capacity];
+            actual = new Object[capacity];
+            diffs = new DiffSummary[capacity];
+        }
+
+        boolean isFull() {
+            return size == kinds.length;
+        }
+
+        void add(Kind kind, K id, T e, T a) {
+            kinds[size] = kind;
+            ids[size] = id;
+            expected[size] = e;
+            actual[size] = a;
+            size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        void evaluate() {
+            for (int i = 0; i < size && !cancelled; i++) {
+                if (kinds[i] == Kind.MATCHED) {
+                    diffs[i] = RegularDifferencer.diffOrNull(dataComparator, (T) expected[i], (T) actual[i]);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void deliver() {
+            for (int i = 0; i < size && !cancelled; i++) {
+                K id = (K) ids[i];
+                switch (kinds[i]) {
+                    case ADDED -> handler.onAdded(id, (T) actual[i]);
+                    case DROPPED -> handler.onDropped(id, (T) expected[i]);
+                    case MATCHED -> RegularDifferencer.reportOutcome(handler, id, diffs[i]);
+                    case EQUAL -> handler.onEqual(id);
+                }
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                ids[i] = null;
+                expected[i] = null;
+                actual[i] = null;
+                diffs[i] = null;
+            }
+            size = 0;
+        }
+    }
+}
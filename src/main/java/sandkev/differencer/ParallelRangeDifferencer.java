@@ -0,0 +1,297 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffAlgorithm;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A range-partitioned differ that spreads the sorted merge of two sources over a ForkJoinPool.
+ *
+ * <p>The key space is cut into ranges that contain the same keys on both sides, and each
+ * range is diffed by a {@link RegularDifferencer}. Ranges that are still too large are
+ * halved again inside the pool, so idle workers steal the pieces of skewed ranges.
+ * <ul>
+ *   <li>Random-access lists are sampled for split keys, and each side is cut with a binary search.</li>
+ *   <li>Any other Iterable is read once on the calling thread and cut into ranges as it goes.</li>
+ * </ul>
+ *
+ * <p>By default handler callbacks arrive concurrently from the pool's workers, so the handler
+ * must be thread-safe (as {@link ComparisonResultStats} is). In key order mode each range
+ * is buffered and replayed on the calling thread in global key order.
+ *
+ * <p><strong>Preconditions:</strong> the same as {@link RegularDifferencer}. Validation, if
+ * enabled, only applies within each range.
+ */
+public class ParallelRangeDifferencer<T extends Identifiable<K>,K>
+  implements DiffAlgorithm<T,K> {
+
+    static final int DEFAULT_RANGE_SIZE = 1 << 16;
+    private static final int RANGES_PER_WORKER = 4;
+    private static final int SAMPLES_PER_RANGE = 16;
+
+    private final Comparator<? super T> keyComparator;
+    private final RegularDifferencer<T,K> rangeDifferencer;
+    private final ForkJoinPool pool;
+    private final int targetRangeSize;
+    private final boolean keyOrdered;
+
+    public ParallelRangeDifferencer(Comparator<? super T> keyComparator,
+                                    DiffComparator<? super T> dataComparator) {
+        this(keyComparator, dataComparator, ForkJoinPool.commonPool(), DEFAULT_RANGE_SIZE, false);
+    }
+
+    /**
+     * @param keyComparator   used to order and identify equality of T instances
+     * @param dataComparator  used to compute field‑level diffs once keys match
+     * @param pool            where the ranges are diffed
+     * @param targetRangeSize ranges holding more records than this (both sides together) are split further
+     * @param keyOrdered      if true, replay events to the handler in global key order
+     */
+    public ParallelRangeDifferencer(Comparator<? super T> keyComparator,
+                                    DiffComparator<? super T> dataComparator,
+                                    ForkJoinPool pool,
+                                    int targetRangeSize,
+                                    boolean keyOrdered) {
+        this.keyComparator    = requireNonNull(keyComparator);
+        this.rangeDifferencer = new RegularDifferencer<T,K>(keyComparator, dataComparator);
+        this.pool             = requireNonNull(pool);
+        if (targetRangeSize < 1) {
+            throw new IllegalArgumentException("targetRangeSize must be positive: " + targetRangeSize);
+        }
+        this.targetRangeSize  = targetRangeSize;
+        this.keyOrdered       = keyOrdered;
+    }
+
+    public static <T extends Identifiable<K>,K> ParallelRangeDifferencer<T,K> inKeyOrder(Comparator<? super T> keyComparator,
+                                                                                         DiffComparator<? super T> dataComparator) {
+        return new ParallelRangeDifferencer<T,K>(keyComparator, dataComparator, ForkJoinPool.commonPool(), DEFAULT_RANGE_SIZE, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any argument is null
+     */
+    @Override
+    public void computeDiff(Iterable<T> expected,
+                            Iterable<T> actual,
+                            ComparisonResultHandler<T,K> handler) {
+        requireNonNull(expected, "expected iterable must not be null");
+        requireNonNull(actual,   "actual iterable must not be null");
+        requireNonNull(handler,  "handler must not be null");
+
+        if (keyOrdered) {
+            diffRanges(expected, actual, ComparisonResultRecorder::new, recorder -> recorder.replayTo(handler));
+        } else {
+            diffRanges(expected, actual, () -> handler, h -> {});
+        }
+    }
+
+    /**
+     * Collects each range into its own ComparisonResultStats and merges them as the ranges complete,
+     * so the workers never contend on shared counters.
+     */
+    @Override
+    public ComparisonResultStats diffAndCollect(Iterable<T> expected,
+                                                Iterable<T> actual) {
+        requireNonNull(expected, "expected iterable must not be null");
+        requireNonNull(actual,   "actual iterable must not be null");
+
+        ComparisonResultStats<T,K> total = new ComparisonResultStats<>();
+        diffRanges(expected, actual, ComparisonResultStats<T,K>::new, total::merge);
+        return total;
+    }
+
+    private <H extends ComparisonResultHandler<T,K>> void diffRanges(Iterable<T> expected,
+                                                                     Iterable<T> actual,
+                                                                     Supplier<H> handlerPerRange,
+                                                                     Consumer<H> onRangeDone) {
+        Deque<RangeTask<H>> inFlight = new ArrayDeque<>();
+        int maxInFlight = pool.getParallelism() * RANGES_PER_WORKER;
+        Consumer<RangeTask<H>> submit = task -> {
+            if (inFlight.size() >= maxInFlight) {
+                complete(inFlight.poll(), onRangeDone);
+            }
+            pool.execute(task);
+            inFlight.add(task);
+        };
+
+        if (expected instanceof List<T> e && e instanceof RandomAccess
+                && actual instanceof List<T> a && a instanceof RandomAccess) {
+            splitByBinarySearch(e, a, handlerPerRange, submit);
+        } else {
+            splitWhileReading(expected.iterator(), actual.iterator(), handlerPerRange, submit);
+        }
+        while (!inFlight.isEmpty()) {
+            complete(inFlight.poll(), onRangeDone);
+        }
+    }
+
+    private <H extends ComparisonResultHandler<T,K>> void complete(RangeTask<H> task, Consumer<H> onRangeDone) {
+        task.join().forEach(onRangeDone);
+    }
+
+    private <H extends ComparisonResultHandler<T,K>> void splitByBinarySearch(List<T> expected,
+                                                                              List<T> actual,
+                                                                              Supplier<H> handlerPerRange,
+                                                                              Consumer<RangeTask<H>> submit) {
+        int fromE = 0, fromA = 0;
+        for (T splitKey : splitKeys(expected, actual)) {
+            int toE = lowerBound(expected, splitKey, fromE);
+            int toA = lowerBound(actual, splitKey, fromA);
+            submit.accept(new RangeTask<>(expected.subList(fromE, toE), actual.subList(fromA, toA), handlerPerRange));
+            fromE = toE;
+            fromA = toA;
+        }
+        submit.accept(new RangeTask<>(expected.subList(fromE, expected.size()),
+                actual.subList(fromA, actual.size()), handlerPerRange));
+    }
+
+    /**
+     * Picks strictly increasing split keys from evenly spaced samples of both sides, which for
+     * sorted lists are quantile estimates of the combined key distribution.
+     */
+    List<T> splitKeys(List<T> expected, List<T> actual) {
+        int total = expected.size() + actual.size();
+        int ranges = Math.min(pool.getParallelism() * RANGES_PER_WORKER, total / targetRangeSize);
+        if (ranges < 2) {
+            return List.of();
+        }
+        List<T> sample = new ArrayList<>();
+        sampleInto(expected, ranges * SAMPLES_PER_RANGE, sample);
+        sampleInto(actual,   ranges * SAMPLES_PER_RANGE, sample);
+        sample.sort(keyComparator);
+
+        List<T> splitKeys = new ArrayList<>(ranges - 1);
+        for (int i = 1; i < ranges; i++) {
+            T candidate = sample.get(i * sample.size() / ranges);
+            if (splitKeys.isEmpty() || keyComparator.compare(splitKeys.get(splitKeys.size() - 1), candidate) < 0) {
+                splitKeys.add(candidate);
+            }
+        }
+        return splitKeys;
+    }
+
+    private static <T> void sampleInto(List<T> source, int samples, List<T> sample) {
+        int n = Math.min(samples, source.size());
+        for (int i = 0; i < n; i++) {
+            sample.add(source.get((int) ((long) i * source.size() / n)));
+        }
+    }
+
+    /**
+     * Reads half a range from each side, then cuts both at the smaller of the two last keys; the
+     * records of the other side beyond that key are carried over into the next range.
+     */
+    private <H extends ComparisonResultHandler<T,K>> void splitWhileReading(Iterator<T> itE,
+                                                                            Iterator<T> itA,
+                                                                            Supplier<H> handlerPerRange,
+                                                                            Consumer<RangeTask<H>> submit) {
+        int half = Math.max(1, targetRangeSize / 2);
+        List<T> bufE = new ArrayList<>(), bufA = new ArrayList<>();
+        while (true) {
+            fill(itE, bufE, half);
+            fill(itA, bufA, half);
+            if (!itE.hasNext() && !itA.hasNext()) {
+                break;
+            }
+            // only a side with unread records bounds the cut; an exhausted side is complete
+            T cut;
+            if (!itE.hasNext()) {
+                cut = bufA.get(bufA.size() - 1);
+            } else if (!itA.hasNext()) {
+                cut = bufE.get(bufE.size() - 1);
+            } else {
+                T lastE = bufE.get(bufE.size() - 1), lastA = bufA.get(bufA.size() - 1);
+                cut = keyComparator.compare(lastE, lastA) < 0 ? lastE : lastA;
+            }
+            List<T> carryE = tailAbove(bufE, cut);
+            List<T> carryA = tailAbove(bufA, cut);
+            submit.accept(new RangeTask<>(bufE, bufA, handlerPerRange));
+            bufE = new ArrayList<>(carryE);
+            bufA = new ArrayList<>(carryA);
+        }
+        submit.accept(new RangeTask<>(bufE, bufA, handlerPerRange));
+    }
+
+    private static <T> void fill(Iterator<T> it, List<T> buffer, int size) {
+        while (buffer.size() < size && it.hasNext()) {
+            buffer.add(it.next());
+        }
+    }
+
+    /**
+     * Removes and returns the records greater than key from the end of the buffer.
+     */
+    private List<T> tailAbove(List<T> buffer, T key) {
+        int r = Collections.binarySearch(buffer, key, keyComparator);
+        int from = r >= 0 ? r + 1 : -r - 1;
+        List<T> tail = buffer.subList(from, buffer.size());
+        List<T> copy = List.copyOf(tail);
+        tail.clear();
+        return copy;
+    }
+
+    private int lowerBound(List<T> list, T key, int from) {
+        int r = Collections.binarySearch(list.subList(from, list.size()), key, keyComparator);
+        return from + (r >= 0 ? r : -r - 1);
+    }
+
+    /**
+     * Diffs one key range, halving it around the middle key of its larger side while it exceeds
+     * twice the target size. Returns the range handlers in key order.
+     */
+    private class RangeTask<H extends ComparisonResultHandler<T,K>> extends RecursiveTask<List<H>> {
+        private final List<T> expected;
+        private final List<T> actual;
+        private final Supplier<H> handlerPerRange;
+
+        RangeTask(List<T> expected, List<T> actual, Supplier<H> handlerPerRange) {
+            this.expected = expected;
+            this.actual = actual;
+            this.handlerPerRange = handlerPerRange;
+        }
+
+        @Override
+        protected List<H> compute() {
+            if (expected.size() + actual.size() <= 2 * targetRangeSize) {
+                H handler = handlerPerRange.get();
+                rangeDifferencer.computeDiff(expected, actual, handler);
+                return List.of(handler);
+            }
+            boolean splitExpected = expected.size() >= actual.size();
+            List<T> larger  = splitExpected ? expected : actual;
+            List<T> smaller = splitExpected ? actual : expected;
+            int mid = larger.size() / 2;
+            int cut = lowerBound(smaller, larger.get(mid), 0);
+
+            RangeTask<H> left = splitExpected
+                    ? new RangeTask<>(larger.subList(0, mid), smaller.subList(0, cut), handlerPerRange)
+                    : new RangeTask<>(smaller.subList(0, cut), larger.subList(0, mid), handlerPerRange);
+            RangeTask<H> right = splitExpected
+                    ? new RangeTask<>(larger.subList(mid, larger.size()), smaller.subList(cut, smaller.size()), handlerPerRange)
+                    : new RangeTask<>(smaller.subList(cut, smaller.size()), larger.subList(mid, larger.size()), handlerPerRange);
+            left.fork();
+            List<H> rightResult = right.compute();
+            List<H> result = new ArrayList<>(left.join());
+            result.addAll(rightResult);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffAlgorithm;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A grace hash differ for unsorted inputs that are too big for one hash table.
+ *
+ * <p>Both sides are hash-partitioned by key into spill files, so a key can only ever meet itself
+ * in the matching partition of the other side. Matching partitions are then diffed in parallel
+ * with a {@link HashJoinDifferencer}, building on the smaller of the two. A partition pair whose
+ * smaller side still exceeds the memory budget is re-partitioned with a different hash seed, so
+ * nothing is ever sorted.
+ *
+ * <p>Partitions are diffed concurrently, so handler callbacks arrive from several threads and in no
+ * particular order; the handler must be thread-safe (as {@link ComparisonResultStats} is).
+ *
+ * <p><strong>Preconditions:</strong>
+ * <ul>
+ *   <li>Each source may be in any order.</li>
+ *   <li>Keys must implement equals and hashCode, and be unique within each source. This is only
+ *       partly checked; see {@link #computeDiff}.</li>
+ * </ul>
+ */
+public class PartitionedHashDifferencer<T extends Identifiable<K>,K>
+  implements DiffAlgorithm<T,K> {
+
+    static final int DEFAULT_PARTITIONS = 32;
+    /** past this depth the keys' hash codes collide too much for re-partitioning to help */
+    private static final int MAX_DEPTH = 6;
+    private static final int IO_BUFFER_SIZE = 1 << 13;
+
+    private final DiffComparator<? super T> dataComparator;
+    private final RecordSerializer<T> serializer;
+    private final int maxRecordsPerPartition;
+    private final int partitions;
+    private final int parallelism;
+    private final Path tempDir;
+
+    public PartitionedHashDifferencer(DiffComparator<? super T> dataComparator,
+                                      RecordSerializer<T> serializer,
+                                      int maxRecordsInMemory) {
+        this(dataComparator, serializer, maxRecordsInMemory, DEFAULT_PARTITIONS,
+                Runtime.getRuntime().availableProcessors(), Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param dataComparator     used to compute field‑level diffs once keys match
+     * @param serializer         how records are written to and read from partition files
+     * @param maxRecordsInMemory the most records held in hash tables at once, shared by all workers
+     * @param partitions         how many partitions each side is split into per pass
+     * @param parallelism        how many partition pairs are diffed concurrently
+     * @param tempDir            where partitions are spilled
+     */
+    public PartitionedHashDifferencer(DiffComparator<? super T> dataComparator,
+                                      RecordSerializer<T> serializer,
+                                      int maxRecordsInMemory,
+                                      int partitions,
+                                      int parallelism,
+                                      Path tempDir) {
+        this.dataComparator = requireNonNull(dataComparator);
+        this.serializer = requireNonNull(serializer);
+        if (partitions < 2 || parallelism < 1 || maxRecordsInMemory < parallelism) {
+            throw new IllegalArgumentException(String.format(
+                    "need partitions >= 2, parallelism >= 1 and maxRecordsInMemory >= parallelism, got %d, %d and %d",
+                    partitions, parallelism, maxRecordsInMemory));
+        }
+        this.maxRecordsPerPartition = maxRecordsInMemory / parallelism;
+        this.partitions = partitions;
+        this.parallelism = parallelism;
+        this.tempDir = requireNonNull(tempDir);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The inputs need not be sorted, and events are not delivered in key order.
+     *
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if the side a partition is built on contains a duplicate key, or
+     *                                  the other side repeats a key that is present in it; other
+     *                                  duplicates go undetected, as they do in {@link HashJoinDifferencer}
+     * @throws UncheckedIOException if a partition cannot be spilled or read back
+     */
+    @Override
+    public void computeDiff(Iterable<T> expected,
+                            Iterable<T> actual,
+                            ComparisonResultHandler<T,K> handler) {
+        requireNonNull(expected, "expected iterable must not be null");
+        requireNonNull(actual,   "actual iterable must not be null");
+        requireNonNull(handler,  "handler must not be null");
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Future<List<SpillFile<T>>> actualPartitioning = executor.submit(() -> partition(actual, 0));
+        List<SpillFile<T>> expectedParts = List.of(), actualParts = List.of();
+        try {
+            expectedParts = partition(expected, 0);
+            actualParts = await(actualPartitioning);
+
+            List<Future<?>> pending = new ArrayList<>(partitions);
+            for (int i = 0; i < partitions; i++) {
+                SpillFile<T> e = expectedParts.get(i), a = actualParts.get(i);
+                pending.add(executor.submit(() -> diffPartition(e, a, handler, 1)));
+            }
+            for (Future<?> future : pending) {
+                await(future);
+            }
+        } finally {
+            if (actualParts.isEmpty()) {
+                // expected failed to partition, but actual may still succeed and leave files behind
+                actualParts = awaitQuietly(actualPartitioning);
+            }
+            // after a failure the other partitions must stop reading before their files are deleted
+            executor.shutdownNow();
+            awaitTermination(executor);
+            close(expectedParts, actualParts);
+        }
+    }
+
+    private void diffPartition(SpillFile<T> expected, SpillFile<T> actual,
+                               ComparisonResultHandler<T,K> handler, int depth) {
+        boolean buildOnExpected = expected.count() <= actual.count();
+        long buildSize = Math.min(expected.count(), actual.count());
+        if (buildSize <= maxRecordsPerPartition || depth > MAX_DEPTH) {
+            new HashJoinDifferencer<T,K>(dataComparator,
+                    buildOnExpected ? HashJoinDifferencer.BuildSide.EXPECTED : HashJoinDifferencer.BuildSide.ACTUAL)
+                    .computeDiff(expected, actual, handler);
+            return;
+        }
+        List<SpillFile<T>> expectedParts = partition(expected, depth), actualParts = List.of();
+        try {
+            actualParts = partition(actual, depth);
+            for (int i = 0; i < partitions; i++) {
+                diffPartition(expectedParts.get(i), actualParts.get(i), handler, depth + 1);
+            }
+        } finally {
+            close(expectedParts, actualParts);
+        }
+    }
+
+    private static void close(List<? extends SpillFile<?>> expectedParts, List<? extends SpillFile<?>> actualParts) {
+        try {
+            SpillFile.closeAll(expectedParts);
+            SpillFile.closeAll(actualParts);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<SpillFile<T>> partition(Iterable<T> source, int depth) {
+        List<SpillFile<T>> parts = new ArrayList<>(partitions);
+        try {
+            for (int i = 0; i < partitions; i++) {
+                parts.add(SpillFile.create(tempDir, "diff-part-", serializer, IO_BUFFER_SIZE));
+            }
+            for (T record : source) {
+                parts.get(partitionOf(record.getId(), depth)).append(record);
+            }
+            parts.forEach(SpillFile::finish);
+            return parts;
+        } catch (RuntimeException e) {
+            try {
+                SpillFile.closeAll(parts);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Mixes the key's hash with a per-depth seed, so a partition that is re-partitioned spreads
+     * over all the new partitions instead of landing in one of them again.
+     */
+    int partitionOf(Object id, int depth) {
+        long h = id.hashCode() + 0x9E3779B97F4A7C15L * (depth + 1);
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (int) Math.floorMod(h, (long) partitions);
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting, a worker finishes the partition it is on before it stops
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <V> List<V> awaitQuietly(Future<List<V>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (ExecutionException e) {
+            return List.of();
+        }
+    }
+
+    private static <V> V await(Future<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while diffing partitions", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package sandkev.differencer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Inflates a gzip stream on a thread of its own, a chunk ahead of the reader, so inflating overlaps
+ * with whatever the reader does with the bytes. A gzip stream cannot be split without inflating
+ * it, so unlike {@link BgzfInputStream} this uses one thread. Concatenated gzip members are read
+ * as one stream.
+ *
+ * <p>The time spent inflating is added to the metrics, if given, apart from the time spent
+ * reading the compressed stream.
+ */
+public class PipelinedGzipInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 1 << 18;
+    private static final int CHUNKS_AHEAD = 4;
+    private static final byte[] EMPTY = new byte[0];
+    private static final Object END = new Object();
+
+    private record Failure(Throwable cause) {}
+
+    private final BlockingQueue<Object> chunks = new ArrayBlockingQueue<>(CHUNKS_AHEAD);
+    private final Thread inflater;
+    private final InputStream in;
+    private byte[] current = EMPTY;
+    private int position;
+    private boolean eof;
+
+    /**
+     * @param in      the compressed stream, closed with this one
+     * @param metrics where inflate time and sizes are recorded, or null
+     */
+    public PipelinedGzipInputStream(InputStream in, DiffMetrics metrics) {
+        this.in = requireNonNull(in, "in must not be null");
+        this.inflater = Thread.ofPlatform().daemon().name("gzip-inflate").start(() -> inflate(metrics));
+    }
+
+    private void inflate(DiffMetrics metrics) {
+        TimedInputStream compressed = new TimedInputStream(in);
+        // the first chunk's share includes the header, read when the GZIPInputStream is created
+        long start = System.nanoTime();
+        long readNanos = 0;
+        long readBytes = 0;
+        try (GZIPInputStream gzip = new GZIPInputStream(compressed, 1 << 16)) {
+            int n;
+            do {
+                byte[] chunk = new byte[CHUNK_SIZE];
+                n = gzip.readNBytes(chunk, 0, CHUNK_SIZE);
+                if (metrics != null) {
+                    metrics.recordInflate(System.nanoTime() - start - (compressed.nanos - readNanos),
+                            compressed.bytes - readBytes, n);
+                    readNanos = compressed.nanos;
+                    readBytes = compressed.bytes;
+                }
+                if (n > 0) {
+                    chunks.put(n < CHUNK_SIZE ? Arrays.copyOf(chunk, n) : chunk);
+                }
+                // time spent waiting for the reader to make room is not inflating
+                start = System.nanoTime();
+            } while (n == CHUNK_SIZE);
+            chunks.put(END);
+        } catch (InterruptedException e) {
+            // closed by the reader
+        } catch (Throwable t) {
+            try {
+                chunks.put(new Failure(t));
+            } catch (InterruptedException ignored) {
+                // closed by the reader
+            }
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return fill() ? current[position++] & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current.length - position;
+    }
+
+    private boolean fill() throws IOException {
+        if (position < current.length) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        Object next;
+        try {
+            next = chunks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while waiting for " + inflater.getName(), e);
+        }
+        if (next instanceof Failure failure) {
+            eof = true;
+            if (failure.cause() instanceof IOException io) throw io;
+            if (failure.cause() instanceof RuntimeException re) throw re;
+            if (failure.cause() instanceof Error err) throw err;
+            throw new IOException(failure.cause());
+        }
+        if (next == END) {
+            eof = true;
+            return false;
+        }
+        current = (byte[]) next;
+        position = 0;
+        return true;
+    }
+
+    /**
+     * Stops the inflating thread and closes the compressed stream.
+     */
+    @Override
+    public void close() throws IOException {
+        eof = true;
+        current = EMPTY;
+        inflater.interrupt();
+        in.close();
+    }
+
+    /**
+     * Counts the bytes read through it and the time spent reading them.
+     */
+    private static final class TimedInputStream extends FilterInputStream {
+        private long bytes;
+        private long nanos;
+
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            nanos += System.nanoTime() - start;
+            if (b >= 0) {
+                bytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            int n = super.read(b, off, len);
+            nanos += System.nanoTime() - start;
+            if (n > 0) {
+                bytes += n;
+            }
+            return n;
+        }
+    }
+}
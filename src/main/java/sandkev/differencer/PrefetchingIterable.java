@@ -0,0 +1,156 @@
+package sandkev.differencer;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Wraps an existing Iterable<T> so that each iterator drains the source on its own virtual thread
+ * into a bounded ring buffer, and next() takes from the buffer.
+ *
+ * <p>A slow, I/O-bound source then keeps reading while the consumer is busy. Each iterator records how
+ * long the consumer waited on an empty buffer (the source is the bottleneck) and how long the reader
+ * waited on a full one (the consumer is the bottleneck). Exceptions thrown by the source are rethrown
+ * by the consumer when it reaches them.
+ */
+public class PrefetchingIterable<T> implements Iterable<T> {
+    private final Iterable<T> source;
+    private final int depth;
+    private final String name;
+
+    /**
+     * @param source the iterable to read ahead of the consumer
+     * @param depth  how many elements may be buffered
+     * @param name   used to name the reader thread
+     */
+    public PrefetchingIterable(Iterable<T> source, int depth, String name) {
+        this.source = Objects.requireNonNull(source, "source must not be null");
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be positive: " + depth);
+        }
+        this.depth = depth;
+        this.name = Objects.requireNonNull(name, "name must not be null");
+    }
+
+    @Override
+    public PrefetchingIterator<T> iterator() {
+        return new PrefetchingIterator<>(source, depth, name);
+    }
+
+    /**
+     * An iterator fed by a reader thread. Close it if you stop iterating early, so the reader stops too.
+     */
+    public static class PrefetchingIterator<T> implements Iterator<T>, AutoCloseable {
+        private static final Object END = new Object();
+        private static final Object NULL = new Object();
+
+        private record Failure(Throwable cause) {}
+
+        private final BlockingQueue<Object> buffer;
+        private final Thread reader;
+        private Object next;
+        private volatile long readerWaitNanos;
+        private long consumerWaitNanos;
+
+        PrefetchingIterator(Iterable<T> source, int depth, String name) {
+            this.buffer = new ArrayBlockingQueue<>(depth);
+            this.reader = Thread.ofVirtual().name("prefetch-" + name).start(() -> drain(source));
+        }
+
+        private void drain(Iterable<T> source) {
+            Iterator<T> it = null;
+            try {
+                it = source.iterator();
+                while (it.hasNext()) {
+                    T element = it.next();
+                    put(element == null ? NULL : element);
+                }
+                put(END);
+            } catch (InterruptedException e) {
+                // closed by the consumer
+            } catch (Throwable t) {
+                try {
+                    put(new Failure(t));
+                } catch (InterruptedException ignored) {
+                    // closed by the consumer
+                }
+            } finally {
+                // release whatever a closeable source iterator holds, such as a connection
+                if (it instanceof AutoCloseable closeable) {
+                    try {
+                        closeable.close();
+                    } catch (Exception ignored) {
+                        // the elements read are unaffected
+                    }
+                }
+            }
+        }
+
+        private void put(Object element) throws InterruptedException {
+            if (!buffer.offer(element)) {
+                long start = System.nanoTime();
+                buffer.put(element);
+                readerWaitNanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = buffer.poll();
+                if (next == null) {
+                    long start = System.nanoTime();
+                    try {
+                        next = buffer.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("interrupted while waiting for " + reader.getName(), e);
+                    } finally {
+                        consumerWaitNanos += System.nanoTime() - start;
+                    }
+                }
+            }
+            if (next instanceof Failure failure) {
+                if (failure.cause() instanceof RuntimeException re) throw re;
+                if (failure.cause() instanceof Error err) throw err;
+                throw new IllegalStateException(failure.cause());
+            }
+            return next != END;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Object element = next;
+            next = null;
+            return element == NULL ? null : (T) element;
+        }
+
+        /**
+         * @return nanoseconds the consumer spent waiting for the source
+         */
+        public long getConsumerWaitNanos() {
+            return consumerWaitNanos;
+        }
+
+        /**
+         * @return nanoseconds the reader spent waiting for the consumer to make room
+         */
+        public long getReaderWaitNanos() {
+            return readerWaitNanos;
+        }
+
+        /**
+         * Stops the reader thread; the buffered elements are discarded.
+         */
+        @Override
+        public void close() {
+            reader.interrupt();
+        }
+    }
+}
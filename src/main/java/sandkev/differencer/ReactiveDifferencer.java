@@ -0,0 +1,269 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+
+import java.util.Comparator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A one‑pass differ, like {@link RegularDifferencer}, over two {@link Flow.Publisher} sources that
+ * publishes its events as a Flow.Publisher, without blocking or holding a thread of its own.
+ *
+ * <p>The merge runs on whichever thread delivers the signal that lets it advance, and only while
+ * the subscriber has outstanding demand. Each source is asked for batchSize records up front, and
+ * topped up by half a batch whenever the merge has consumed that many of its records, so a source
+ * that is ahead of the other is not asked for more. Backpressure therefore runs from the
+ * subscriber back to both sources.
+ *
+ * <p><strong>Preconditions:</strong> each source must publish records sorted strictly by the
+ * keyComparator, without duplicates.
+ */
+public class ReactiveDifferencer<T extends Identifiable<K>,K> {
+
+    static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final Comparator<? super T> keyComparator;
+    private final DiffComparator<? super T> dataComparator;
+    private final int batchSize;
+
+    public ReactiveDifferencer(Comparator<? super T> keyComparator,
+                               DiffComparator<? super T> dataComparator) {
+        this(keyComparator, dataComparator, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param keyComparator  used to order and identify equality of T instances
+     * @param dataComparator used to compute field‑level diffs once keys match
+     * @param batchSize      how many records to request from a source at a time
+     */
+    public ReactiveDifferencer(Comparator<? super T> keyComparator,
+                               DiffComparator<? super T> dataComparator, int batchSize) {
+        this.keyComparator  = requireNonNull(keyComparator);
+        this.dataComparator = requireNonNull(dataComparator);
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Returns a publisher of the diff events, in key order. It accepts one subscriber, and subscribes
+     * to both sources when that subscriber arrives.
+     */
+    public Flow.Publisher<DiffEvent<T,K>> diff(Flow.Publisher<T> expected, Flow.Publisher<T> actual) {
+        requireNonNull(expected, "expected publisher must not be null");
+        requireNonNull(actual,   "actual publisher must not be null");
+        AtomicBoolean subscribed = new AtomicBoolean();
+        return subscriber -> {
+            requireNonNull(subscriber, "subscriber must not be null");
+            if (!subscribed.compareAndSet(false, true)) {
+                subscriber.onSubscribe(new Flow.Subscription() {
+                    @Override public void request(long n) { }
+                    @Override public void cancel() { }
+                });
+                subscriber.onError(new IllegalStateException("a diff publisher accepts only one subscriber"));
+                return;
+            }
+            Merge merge = new Merge(subscriber);
+            subscriber.onSubscribe(merge);
+            expected.subscribe(merge.expected);
+            actual.subscribe(merge.actual);
+        };
+    }
+
+    /**
+     * The subscription handed downstream. All merging happens in {@link #drain()}, which one thread at
+     * a time runs on behalf of every signal that arrives meanwhile.
+     */
+    private class Merge implements Flow.Subscription {
+        private final Flow.Subscriber<? super DiffEvent<T,K>> downstream;
+        private final Side expected = new Side();
+        private final Side actual = new Side();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile Throwable requestError;
+        private long emitted;
+        private boolean finished;
+
+        Merge(Flow.Subscriber<? super DiffEvent<T,K>> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                requestError = new IllegalArgumentException("non-positive request: " + n);
+            } else {
+                requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                if (!finished) {
+                    step();
+                } else {
+                    // a source may subscribe after the merge has stopped
+                    expected.cancel();
+                    actual.cancel();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void step() {
+            while (true) {
+                if (cancelled) {
+                    stop();
+                    return;
+                }
+                Throwable error = requestError != null ? requestError
+                        : expected.upstreamError != null ? expected.upstreamError : actual.upstreamError;
+                if (error != null) {
+                    stop();
+                    downstream.onError(error);
+                    return;
+                }
+                if (emitted == requested.get()) {
+                    return;
+                }
+                // read done before peeking: once a source is done, all its records are queued
+                boolean expectedDone = expected.done, actualDone = actual.done;
+                T e = expected.peek(), a = actual.peek();
+                if (e == null && !expectedDone) {
+                    expected.start();
+                    return;
+                }
+                if (a == null && !actualDone) {
+                    actual.start();
+                    return;
+                }
+                DiffEvent<T,K> event;
+                if (e == null && a == null) {
+                    finished = true;
+                    downstream.onComplete();
+                    return;
+                }
+                int cmp = e == null ? -1 : a == null ? 1 : keyComparator.compare(a, e);
+                if (cmp == 0) {
+                    expected.poll();
+                    actual.poll();
+                    DiffSummary d;
+                    try {
+                        d = RegularDifferencer.diffOrNull(dataComparator, e, a);
+                    } catch (RuntimeException ex) {
+                        stop();
+                        downstream.onError(ex);
+                        return;
+                    }
+                    event = new DiffEvent<>(RegularDifferencer.outcome(d), e.getId(), null, d);
+                } else if (cmp < 0) {
+                    actual.poll();
+                    event = new DiffEvent<>(ComparisonResult.Added, a.getId(), a, null);
+                } else {
+                    expected.poll();
+                    event = new DiffEvent<>(ComparisonResult.Dropped, e.getId(), e, null);
+                }
+                emitted++;
+                downstream.onNext(event);
+            }
+        }
+
+        private void stop() {
+            finished = true;
+            expected.cancel();
+            actual.cancel();
+        }
+
+        /**
+         * Buffers one source's records until the merge takes them.
+         */
+        private class Side implements Flow.Subscriber<T> {
+            private final Queue<T> queue = new ConcurrentLinkedQueue<>();
+            private final int replenish = Math.max(1, batchSize / 2);
+            private volatile Flow.Subscription upstream;
+            private volatile boolean done;
+            private volatile Throwable upstreamError;
+            private boolean started;
+            private boolean cancelled;
+            private int consumed;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                upstream = subscription;
+                drain();
+            }
+
+            @Override
+            public void onNext(T item) {
+                queue.offer(item);
+                drain();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                upstreamError = throwable;
+                drain();
+            }
+
+            @Override
+            public void onComplete() {
+                done = true;
+                drain();
+            }
+
+            T peek() {
+                return queue.peek();
+            }
+
+            /**
+             * Asks for the first batch once the merge needs this side; a no-op until then and after.
+             */
+            void start() {
+                Flow.Subscription subscription = upstream;
+                if (!started && subscription != null) {
+                    started = true;
+                    subscription.request(batchSize);
+                }
+            }
+
+            void poll() {
+                queue.poll();
+                if (++consumed == replenish) {
+                    consumed = 0;
+                    upstream.request(replenish);
+                }
+            }
+
+            void cancel() {
+                Flow.Subscription subscription = upstream;
+                if (!cancelled && subscription != null) {
+                    cancelled = true;
+                    subscription.cancel();
+                }
+                queue.clear();
+            }
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package sandkev.differencer;
 
+import sandkev.differencer.api.BatchComparisonResultHandler;
+import sandkev.differencer.api.CheckpointableHandler;
+import sandkev.differencer.api.ComparisonResult;
 import sandkev.differencer.api.ComparisonResultHandler;
 import sandkev.differencer.api.DiffAlgorithm;
 import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.FieldDiffComparator;
 import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.RecordSerializer;
+import sandkev.differencer.api.RowFingerprinter;
+import sandkev.differencer.api.SeekableIterator;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.Comparator;
+import java.util.EnumSet;
 import java.util.Iterator;
-import java.util.function.Consumer;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 import static java.util.Objects.requireNonNull;
 
@@ -18,19 +32,35 @@ import static java.util.Objects.requireNonNull;
  * <p><strong>Preconditions:</strong>
  * <ul>
  *   <li>Each source Iterable must be sorted strictly by the provided keyComparator.</li>
- *   <li>No two items in a source may be “equal” under that same comparator.</li>
+ *   <li>No two items in a source may be “equal” under that same comparator, unless duplicate keys
+ *       are allowed with {@link #withDuplicateKeys}.</li>
  * </ul>
  */
 public class RegularDifferencer<T extends Identifiable<K>,K>
   implements DiffAlgorithm<T,K> {
 
+    static final int DEFAULT_BATCH_SIZE = 1024;
+    static final int DEFAULT_COMPARISON_BATCH_SIZE = 256;
+    static final int DEFAULT_MAX_GROUP_IN_MEMORY = 4096;
+
     private final Comparator<? super T> keyComparator;
     private final DiffComparator<? super T> dataComparator;
     /**
-     * @param validateInputs if true, wraps each input in a ValidatingIterable that
-     *                       enforces sortedness & uniqueness at iteration time.
+     * @param validateInputs if true, enforces sortedness & uniqueness at iteration time, in the merge
+     *                       loop itself or with a ValidatingIterable around each input.
      */
     private final boolean validateInputs;
+    /** if positive, each input is read ahead on its own thread into a buffer of this many records */
+    private final int prefetchDepth;
+    /** if not null, matched pairs are compared on this executor rather than on the merge thread */
+    private final Executor comparisonExecutor;
+    private final int comparisonBatchSize;
+    private final int comparisonBatchesInFlight;
+    /** if not null, progress is saved as the merge goes, and a failed run can be resumed */
+    private final Checkpointer<T,K> checkpointer;
+    /** if not null, keys may repeat and each run of equal keys is matched as a group */
+    private final DuplicateKeyGroups<T,K> duplicateKeys;
+    private final DiffMetrics metrics = new DiffMetrics();
 
     public RegularDifferencer(Comparator<? super T> keyComparator,
                               DiffComparator<? super T> dataComparator) {
@@ -43,9 +73,23 @@ public class RegularDifferencer<T extends Identifiable<K>,K>
      */
     public RegularDifferencer(Comparator<? super T> keyComparator,
                               DiffComparator<? super T> dataComparator, boolean validateInputs) {
+        this(keyComparator, dataComparator, validateInputs, 0, null, 0, 0, null, null);
+    }
+
+    private RegularDifferencer(Comparator<? super T> keyComparator,
+                               DiffComparator<? super T> dataComparator, boolean validateInputs,
+                               int prefetchDepth,
+                               Executor comparisonExecutor, int comparisonBatchSize, int comparisonBatchesInFlight,
+                               Checkpointer<T,K> checkpointer, DuplicateKeyGroups<T,K> duplicateKeys) {
         this.keyComparator  = requireNonNull(keyComparator);
         this.dataComparator = requireNonNull(dataComparator);
         this.validateInputs = validateInputs;
+        this.prefetchDepth  = prefetchDepth;
+        this.comparisonExecutor        = comparisonExecutor;
+        this.comparisonBatchSize       = comparisonBatchSize;
+        this.comparisonBatchesInFlight = comparisonBatchesInFlight;
+        this.checkpointer              = checkpointer;
+        this.duplicateKeys             = duplicateKeys;
     }
 
     public static <T extends Identifiable<K>,K> RegularDifferencer<T,K> withValidation(Comparator<? super T> keyComparator,
@@ -57,11 +101,153 @@ public class RegularDifferencer<T extends Identifiable<K>,K>
         return new RegularDifferencer<T,K>(keyComparator, dataComparator, false);
     }
 
+    /**
+     * Returns a copy of this differencer that drains expected and actual on their own virtual threads
+     * into bounded buffers, so the merge loop only waits when a side has fallen behind. How long it
+     * waited on each side is added to {@link #getMetrics()}.
+     *
+     * @param depth how many records to buffer per side
+     */
+    public RegularDifferencer<T,K> withPrefetch(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be positive: " + depth);
+        }
+        return new RegularDifferencer<T,K>(keyComparator, dataComparator, validateInputs, depth,
+                comparisonExecutor, comparisonBatchSize, comparisonBatchesInFlight, checkpointer, duplicateKeys);
+    }
+
+    /**
+     * Returns a copy of this differencer that reports a matched pair Equal straight away when their
+     * fingerprints match, and only runs the data comparator when they do not. Use
+     * {@link RowFingerprinter#precomputed()} for records that carry stored fingerprints, or a
+     * fingerprinter built with {@link Fingerprints} to compute them as the pairs are matched.
+     *
+     * <p>A fingerprint collision would hide a change, so the fingerprint should cover every field the
+     * data comparator looks at; use a 128-bit fingerprint where the odds matter.
+     */
+    public RegularDifferencer<T,K> withFingerprinter(RowFingerprinter<? super T> fingerprinter) {
+        requireNonNull(fingerprinter, "fingerprinter must not be null");
+        return new RegularDifferencer<T,K>(keyComparator, new FingerprintingComparator<T>(dataComparator, fingerprinter),
+                validateInputs, prefetchDepth, comparisonExecutor, comparisonBatchSize, comparisonBatchesInFlight, checkpointer,
+                duplicateKeys);
+    }
+
+    /**
+     * Returns a copy of this differencer that runs the data comparator on the given executor, with
+     * {@value #DEFAULT_COMPARISON_BATCH_SIZE} events per batch and two batches in flight per processor.
+     *
+     * @see #withParallelComparison(Executor, int, int)
+     */
+    public RegularDifferencer<T,K> withParallelComparison(Executor executor) {
+        return withParallelComparison(executor, DEFAULT_COMPARISON_BATCH_SIZE,
+                2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Returns a copy of this differencer whose merge loop only pairs records by key; matched pairs are
+     * queued in batches and compared on the executor. Events are still delivered in key order, from
+     * one thread at a time, though not necessarily the calling thread. The merge loop only stops
+     * when batchesInFlight batches are waiting to be compared or delivered.
+     *
+     * <p>Worth it when the data comparator is expensive relative to reading and matching keys.
+     *
+     * @param executor        runs the comparisons and the deliveries; it is not shut down
+     * @param batchSize       how many events go in one batch
+     * @param batchesInFlight how many batches may be queued before the merge loop waits
+     */
+    public RegularDifferencer<T,K> withParallelComparison(Executor executor, int batchSize, int batchesInFlight) {
+        requireNonNull(executor, "executor must not be null");
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        if (batchesInFlight < 1) {
+            throw new IllegalArgumentException("batchesInFlight must be positive: " + batchesInFlight);
+        }
+        if (checkpointer != null) {
+            throw new IllegalStateException("parallel comparison cannot be combined with checkpoints");
+        }
+        return new RegularDifferencer<T,K>(keyComparator, dataComparator, validateInputs, prefetchDepth,
+                executor, batchSize, batchesInFlight, null, duplicateKeys);
+    }
+
+    /**
+     * Returns a copy of this differencer that saves its progress as it goes: the last fully processed
+     * record and the handler's state, which must then be a {@link CheckpointableHandler}. The
+     * checkpoint is deleted once a diff completes; after a failure, {@link #resumeDiff} carries on from
+     * it. Time spent on checkpoints is added to {@link #getMetrics()}.
+     *
+     * @throws IllegalStateException if this differencer compares in parallel, since its handler then
+     *                               lags behind the merge, or allows duplicate keys, since a
+     *                               checkpoint could fall inside a group
+     */
+    public RegularDifferencer<T,K> withCheckpoints(Checkpointer<T,K> checkpointer) {
+        requireNonNull(checkpointer, "checkpointer must not be null");
+        if (comparisonExecutor != null) {
+            throw new IllegalStateException("parallel comparison cannot be combined with checkpoints");
+        }
+        if (duplicateKeys != null) {
+            throw new IllegalStateException("duplicate keys cannot be combined with checkpoints");
+        }
+        return new RegularDifferencer<T,K>(keyComparator, dataComparator, validateInputs, prefetchDepth,
+                null, 0, 0, checkpointer, null);
+    }
+
+    /**
+     * Returns a copy of this differencer that accepts repeated keys, matching the records of each key
+     * by the data comparator and spilling groups larger than {@value #DEFAULT_MAX_GROUP_IN_MEMORY}
+     * records to the default temp directory.
+     *
+     * @see #withDuplicateKeys(Comparator, int, RecordSerializer, Path)
+     */
+    public RegularDifferencer<T,K> withDuplicateKeys(RecordSerializer<T> serializer) {
+        return withDuplicateKeys(null, DEFAULT_MAX_GROUP_IN_MEMORY, serializer,
+                Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Returns a copy of this differencer for inputs whose keys may repeat, such as feeds with small
+     * groups of records per key. Each run of records with the same key is collected from both sides
+     * and the two groups are matched as bags: pairs are compared as usual and the records left over
+     * are reported added or dropped, all under the group's key. Validation then checks the order only.
+     * How many keys had duplicates is added to {@link #getMetrics()}, and a warning logged.
+     *
+     * @param groupOrder       orders the records of a group, so that records which tie on it are the
+     *                         pairs; or null to pair records that the data comparator finds equal
+     *                         first, and the rest in arrival order
+     * @param maxGroupInMemory the most records of one side's group held in the heap; larger groups
+     *                         spill to disk, and are sorted there if there is a group order
+     * @param serializer       how spilled records are written and read back
+     * @param tempDir          where large groups are spilled
+     * @throws IllegalStateException if this differencer saves checkpoints
+     */
+    public RegularDifferencer<T,K> withDuplicateKeys(Comparator<? super T> groupOrder, int maxGroupInMemory,
+                                                     RecordSerializer<T> serializer, Path tempDir) {
+        requireNonNull(serializer, "serializer must not be null");
+        requireNonNull(tempDir, "tempDir must not be null");
+        if (maxGroupInMemory < 2) {
+            throw new IllegalArgumentException("maxGroupInMemory must be at least 2: " + maxGroupInMemory);
+        }
+        if (checkpointer != null) {
+            throw new IllegalStateException("duplicate keys cannot be combined with checkpoints");
+        }
+        return new RegularDifferencer<T,K>(keyComparator, dataComparator, validateInputs, prefetchDepth,
+                comparisonExecutor, comparisonBatchSize, comparisonBatchesInFlight, null,
+                new DuplicateKeyGroups<T,K>(groupOrder, maxGroupInMemory, serializer, tempDir));
+    }
+
+    /**
+     * @return timings accumulated over every run of this instance
+     */
+    public DiffMetrics getMetrics() {
+        return metrics;
+    }
+
     /**
      * {@inheritDoc}
      *
      * @throws NullPointerException if any argument is null
-     * @throws IllegalArgumentException if validation is on and inputs are out‑of‑order or contain duplicates
+     * @throws IllegalArgumentException if validation is on and inputs are out‑of‑order or contain duplicates,
+     *                                  or checkpoints are on and the handler is not a CheckpointableHandler
      */
     @Override
     public void computeDiff(Iterable<T> expected,
@@ -71,62 +257,667 @@ public class RegularDifferencer<T extends Identifiable<K>,K>
         requireNonNull(expected, "expected iterable must not be null");
         requireNonNull(actual,   "actual iterable must not be null");
         requireNonNull(handler,  "handler must not be null");
+        if (checkpointer != null && !(handler instanceof CheckpointableHandler)) {
+            throw new IllegalArgumentException("checkpoints need a CheckpointableHandler, not " + handler.getClass().getName());
+        }
+        run(expected, actual, handler, null, null);
+    }
 
-        //optionally decorate the iterators with validation that they are sorted sets
-        Iterable<T> expectedIterable = validateInputs
-                ? new ValidatingIterable<>(expected, keyComparator)
+    /**
+     * Runs the diff but only reports the wanted kinds of result. Records that could only lead to
+     * unwanted results are not passed to the handler, and matched pairs are not compared at all unless
+     * Equal, ApproximatelyEqual or Changed is wanted.
+     *
+     * <p>When Added is not wanted and the actual side is a {@link SeekableIterator}, the merge seeks
+     * it to the next expected key rather than stepping through the records in between, and stops
+     * reading it once expected runs out; likewise the expected side when Dropped is not wanted. A
+     * diff of a small extract against a large indexed table then costs in proportion to the extract.
+     * Validation keeps a side seekable; prefetch does not, since its reader has already read ahead,
+     * and nothing is sought when duplicate keys are allowed.
+     *
+     * @param wanted the kinds of result to report
+     * @throws IllegalArgumentException if wanted is empty, or as for
+     *                                  {@link #computeDiff(Iterable, Iterable, ComparisonResultHandler)}
+     */
+    public void computeDiff(Iterable<T> expected,
+                            Iterable<T> actual,
+                            ComparisonResultHandler<T,K> handler,
+                            Set<ComparisonResult> wanted) {
+        requireNonNull(expected, "expected iterable must not be null");
+        requireNonNull(actual,   "actual iterable must not be null");
+        requireNonNull(handler,  "handler must not be null");
+        requireNonNull(wanted,   "wanted must not be null");
+        if (wanted.isEmpty()) {
+            throw new IllegalArgumentException("wanted must not be empty");
+        }
+        if (checkpointer != null && !(handler instanceof CheckpointableHandler)) {
+            throw new IllegalArgumentException("checkpoints need a CheckpointableHandler, not " + handler.getClass().getName());
+        }
+        run(expected, actual, handler, null, EnumSet.copyOf(wanted));
+    }
+
+    /**
+     * Carries on from the last checkpoint: restores the handler's saved state, skips both inputs past
+     * the last processed key and diffs the rest. Starts from the beginning if there is no checkpoint.
+     * The inputs must be the same as those of the run that saved it.
+     *
+     * @throws IllegalStateException if checkpoints are not on
+     * @throws UncheckedIOException if the checkpoint cannot be read
+     */
+    public void resumeDiff(Iterable<T> expected,
+                           Iterable<T> actual,
+                           CheckpointableHandler<T,K> handler) {
+        requireNonNull(expected, "expected iterable must not be null");
+        requireNonNull(actual,   "actual iterable must not be null");
+        requireNonNull(handler,  "handler must not be null");
+        if (checkpointer == null) {
+            throw new IllegalStateException("checkpoints are not on; see withCheckpoints");
+        }
+        Checkpointer.Checkpoint<T> checkpoint;
+        try {
+            checkpoint = checkpointer.load(handler);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        run(expected, actual, handler, checkpoint, null);
+    }
+
+    /**
+     * @param wanted the kinds of result to report, or null for all of them
+     */
+    private void run(Iterable<T> expected, Iterable<T> actual, ComparisonResultHandler<T,K> handler,
+                     Checkpointer.Checkpoint<T> resumeFrom, Set<ComparisonResult> wanted) {
+        //optionally decorate the iterators with validation that they are sorted sets,
+        //unless the merge loop validates them itself
+        boolean wrap = validateInputs && !fusesValidation();
+        Iterable<T> expectedIterable = wrap
+                ? new ValidatingIterable<>(expected, keyComparator, duplicateKeys != null)
                 : expected;
-        Iterable<T> actualIterable   = validateInputs
-                ? new ValidatingIterable<>(actual,   keyComparator)
+        Iterable<T> actualIterable   = wrap
+                ? new ValidatingIterable<>(actual,   keyComparator, duplicateKeys != null)
                 : actual;
-        final Iterator<T> itE = expectedIterable.iterator();
-        final Iterator<T> itA = actualIterable.iterator();
+        if (prefetchDepth > 0) {
+            // validation, when on, runs on the reader threads too
+            try (var itE = new PrefetchingIterable<>(expectedIterable, prefetchDepth, "expected").iterator();
+                 var itA = new PrefetchingIterable<>(actualIterable,   prefetchDepth, "actual").iterator()) {
+                try {
+                    merge(itE, itA, handler, resumeFrom, wanted);
+                } finally {
+                    // a failed run is the one whose waits are most worth seeing
+                    metrics.recordPrefetch(itE, itA);
+                }
+            }
+        } else {
+            // a source iterator holding a connection or a file is released however the merge ends
+            Iterator<T> itE = expectedIterable.iterator();
+            try (Release releaseE = () -> CloseableIterator.closeIfCloseable(itE)) {
+                Iterator<T> itA = actualIterable.iterator();
+                try (Release releaseA = () -> CloseableIterator.closeIfCloseable(itA)) {
+                    merge(itE, itA, handler, resumeFrom, wanted);
+                }
+            }
+        }
+    }
+
+    /**
+     * A close that throws no checked exception, for releasing resources in a try-with-resources.
+     */
+    private interface Release extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private void merge(Iterator<T> itE, Iterator<T> itA, ComparisonResultHandler<T,K> handler,
+                       Checkpointer.Checkpoint<T> resumeFrom, Set<ComparisonResult> wanted) {
+        ComparisonResultHandler<T,K> target = wanted == null ? handler : new WantedResultsHandler<>(handler, wanted);
+        if (checkpointer != null) {
+            T resumeAfter = null;
+            long processed = 0;
+            if (resumeFrom != null) {
+                resumeAfter = resumeFrom.lastRecord();
+                processed = resumeFrom.recordsProcessed();
+            }
+            merge(itE, itA, new CheckpointingSink(new DirectSink(target), (CheckpointableHandler<T,K>) handler, processed),
+                    wanted, resumeAfter);
+            try {
+                checkpointer.delete();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        if (comparisonExecutor == null) {
+            mergeKeys(itE, itA, directSink(target), wanted);
+            return;
+        }
+        ParallelMatchPipeline<T,K> pipeline = new ParallelMatchPipeline<>(dataComparator, target,
+                comparisonExecutor, comparisonBatchSize, comparisonBatchesInFlight);
+        try {
+            mergeKeys(itE, itA, pipeline, wanted);
+        } catch (RuntimeException | Error e) {
+            pipeline.cancel();
+            throw e;
+        }
+        pipeline.finish();
+    }
+
+    /**
+     * @return the handler itself if it takes the merge loop's findings directly, as the batching one
+     *         does, otherwise a sink that compares pairs and calls it per event
+     */
+    @SuppressWarnings("unchecked")
+    private MergeSink<T,K> directSink(ComparisonResultHandler<T,K> handler) {
+        return handler instanceof MergeSink<?,?> sink ? (MergeSink<T,K>) sink : new DirectSink(handler);
+    }
+
+    private void mergeKeys(Iterator<T> itE, Iterator<T> itA, MergeSink<T,K> sink, Set<ComparisonResult> wanted) {
+        if (duplicateKeys != null) {
+            // the handler filters the results; groups are always read whole
+            duplicateKeys.merge(itE, itA, sink, keyComparator, dataComparator, metrics);
+        } else {
+            merge(itE, itA, sink, wanted, null);
+        }
+    }
+
+    /**
+     * @param wanted      the kinds of result to pass to the sink, or null for all of them
+     * @param resumeAfter if not null, records up to and including this one's key are skipped
+     */
+    private void merge(Iterator<T> itE, Iterator<T> itA, MergeSink<T,K> sink,
+                       Set<ComparisonResult> wanted, T resumeAfter) {
+        boolean wantAdded   = wanted == null || wanted.contains(ComparisonResult.Added);
+        boolean wantDropped = wanted == null || wanted.contains(ComparisonResult.Dropped);
+        boolean wantMatched = wanted == null || wanted.contains(ComparisonResult.Equal)
+                || wanted.contains(ComparisonResult.ApproximatelyEqual) || wanted.contains(ComparisonResult.Changed);
+        // a side is only sought past records it would not report
+        SeekableIterator<T,K> seekE = wantDropped ? null : seekable(itE);
+        SeekableIterator<T,K> seekA = wantAdded   ? null : seekable(itA);
+        long seeks = 0;
+        MergeOrderCheck<T> order = fusesValidation() ? new MergeOrderCheck<>(keyComparator) : null;
 
         T e = poll(itE), a = poll(itA);
+        if (resumeAfter != null) {
+            e = skipThrough(itE, e, resumeAfter);
+            a = skipThrough(itA, a, resumeAfter);
+            if (order != null) {
+                order.startAfter(resumeAfter);
+            }
+        }
 
         while (e != null && a != null) {
             int cmp = keyComparator.compare(a, e);
+            if (order != null) {
+                order.step(e, a, cmp);
+            }
             if (cmp == 0) {
-                handleMatch(handler, e, a);
+                if (wantMatched) {
+                    sink.matched(e.getId(), e, a);
+                }
                 a = poll(itA);
                 e = poll(itE);
             } else if (cmp < 0) {
-                handler.onAdded(a.getId(), a);
+                if (wantAdded) {
+                    sink.added(a.getId(), a);
+                } else if (seekA != null) {
+                    seekA.seekTo(e.getId());
+                    seeks++;
+                }
                 a = poll(itA);
             } else {
-                handler.onDropped(e.getId(), e);
+                if (wantDropped) {
+                    sink.dropped(e.getId(), e);
+                } else if (seekE != null) {
+                    seekE.seekTo(a.getId());
+                    seeks++;
+                }
                 e = poll(itE);
             }
         }
+        metrics.recordSeeks(seeks);
 
         // flush remaining
-        if (e != null) {
-            handler.onDropped(e.getId(), e);
-            itE.forEachRemaining(drop(handler));
+        if (e != null && wantDropped) {
+            if (order == null) {
+                sink.dropped(e.getId(), e);
+                itE.forEachRemaining(rem -> sink.dropped(rem.getId(), rem));
+            } else {
+                for (; e != null; e = poll(itE)) {
+                    order.expected(e);
+                    sink.dropped(e.getId(), e);
+                }
+            }
         }
-        if (a != null) {
-            handler.onAdded(a.getId(), a);
-            itA.forEachRemaining(add(handler));
+        if (a != null && wantAdded) {
+            if (order == null) {
+                sink.added(a.getId(), a);
+                itA.forEachRemaining(rem -> sink.added(rem.getId(), rem));
+            } else {
+                for (; a != null; a = poll(itA)) {
+                    order.actual(a);
+                    sink.added(a.getId(), a);
+                }
+            }
         }
     }
 
-    private void handleMatch(ComparisonResultHandler<T, K> handler, T e, T a) {
-        DiffSummary d = dataComparator.compare(a, e);
-        switch (d.getComparisonResult()) {
-            case Equal -> handler.onEqual(e.getId());
-            case ApproximatelyEqual -> handler.onApproximatelyEqual(e.getId(), d);
-            case Changed -> handler.onChanged(e.getId(), d);
+    /**
+     * Whether validation, when on, is done by the merge loop from its own comparisons rather than by
+     * a {@link ValidatingIterable} around each input. With prefetch the wrappers run on the reader
+     * threads instead, off the merge thread, and groups of duplicate keys are read by their own loop.
+     */
+    private boolean fusesValidation() {
+        return validateInputs && prefetchDepth == 0 && duplicateKeys == null;
+    }
+
+    /**
+     * @return the first record of it, starting with first, whose key comes after last's
+     */
+    private T skipThrough(Iterator<T> it, T first, T last) {
+        if (first != null && keyComparator.compare(first, last) < 0) {
+            SeekableIterator<T,K> seekable = seekable(it);
+            if (seekable != null) {
+                seekable.seekTo(last.getId());
+                first = poll(it);
+            }
         }
+        while (first != null && keyComparator.compare(first, last) <= 0) {
+            first = poll(it);
+        }
+        return first;
     }
 
-    private static <T> T poll(Iterator<T> it) {
-        return it.hasNext() ? it.next() : null;
+    @SuppressWarnings("unchecked")
+    private static <T,K> SeekableIterator<T,K> seekable(Iterator<T> it) {
+        return it instanceof SeekableIterator<?,?> seekable ? (SeekableIterator<T,K>) seekable : null;
     }
-    private Consumer<T> drop(ComparisonResultHandler<T,K> h ) {
-        return rem -> h.onDropped(rem.getId(), rem);
+
+    /**
+     * Receives what the merge loop finds, before any data comparison.
+     */
+    interface MergeSink<T,K> {
+        void added(K id, T actual);
+        void dropped(K id, T expected);
+        void matched(K id, T expected, T actual);
+
+        /**
+         * Takes a matched pair the caller has already compared and found equal.
+         */
+        void equal(K id, T expected, T actual);
     }
-    private Consumer<T> add( ComparisonResultHandler<T,K> h ) {
-        return rem -> h.onAdded(rem.getId(), rem);
+
+    /**
+     * Saves a checkpoint every so often, after the handler has seen every key up to the current one.
+     */
+    private class CheckpointingSink implements MergeSink<T,K> {
+        private final MergeSink<T,K> delegate;
+        private final CheckpointableHandler<T,K> handler;
+        private long processed;
+        private long sinceLast;
+        private long lastSaved = System.nanoTime();
+
+        CheckpointingSink(MergeSink<T,K> delegate, CheckpointableHandler<T,K> handler, long processed) {
+            this.delegate = delegate;
+            this.handler = handler;
+            this.processed = processed;
+        }
+
+        @Override
+        public void added(K id, T actual) {
+            delegate.added(id, actual);
+            progress(actual);
+        }
+
+        @Override
+        public void dropped(K id, T expected) {
+            delegate.dropped(id, expected);
+            progress(expected);
+        }
+
+        @Override
+        public void matched(K id, T expected, T actual) {
+            delegate.matched(id, expected, actual);
+            progress(expected);
+        }
+
+        @Override
+        public void equal(K id, T expected, T actual) {
+            delegate.equal(id, expected, actual);
+            progress(expected);
+        }
+
+        private void progress(T last) {
+            processed++;
+            if (++sinceLast < checkpointer.getEveryRecords()) {
+                return;
+            }
+            sinceLast = 0;
+            long start = System.nanoTime();
+            if (start - lastSaved < checkpointer.getMinIntervalNanos()) {
+                return;
+            }
+            try {
+                checkpointer.save(last, processed, handler);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            lastSaved = System.nanoTime();
+            metrics.recordCheckpoint(lastSaved - start);
+        }
+    }
+
+    /**
+     * Compares matched pairs on the merge thread and fires the events straight away.
+     */
+    private class DirectSink implements MergeSink<T,K> {
+        private final ComparisonResultHandler<T,K> handler;
+
+        DirectSink(ComparisonResultHandler<T,K> handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void added(K id, T actual) {
+            handler.onAdded(id, actual);
+        }
+
+        @Override
+        public void dropped(K id, T expected) {
+            handler.onDropped(id, expected);
+        }
+
+        @Override
+        public void matched(K id, T expected, T actual) {
+            reportMatch(dataComparator, handler, id, expected, actual);
+        }
+
+        @Override
+        public void equal(K id, T expected, T actual) {
+            handler.onEqual(id);
+        }
+    }
+
+    /**
+     * Passes on only the wanted kinds of event.
+     */
+    private static class WantedResultsHandler<T,K> implements ComparisonResultHandler<T,K> {
+        private final ComparisonResultHandler<T,K> delegate;
+        private final Set<ComparisonResult> wanted;
+
+        WantedResultsHandler(ComparisonResultHandler<T,K> delegate, Set<ComparisonResult> wanted) {
+            this.delegate = delegate;
+            this.wanted = wanted;
+        }
+
+        @Override
+        public void onEqual(K id) {
+            if (wanted.contains(ComparisonResult.Equal)) {
+                delegate.onEqual(id);
+            }
+        }
+
+        @Override
+        public void onApproximatelyEqual(K id, DiffSummary diff) {
+            if (wanted.contains(ComparisonResult.ApproximatelyEqual)) {
+                delegate.onApproximatelyEqual(id, diff);
+            }
+        }
+
+        @Override
+        public void onAdded(K id, T added) {
+            if (wanted.contains(ComparisonResult.Added)) {
+                delegate.onAdded(id, added);
+            }
+        }
+
+        @Override
+        public void onDropped(K id, T dropped) {
+            if (wanted.contains(ComparisonResult.Dropped)) {
+                delegate.onDropped(id, dropped);
+            }
+        }
+
+        @Override
+        public void onChanged(K id, DiffSummary diff) {
+            if (wanted.contains(ComparisonResult.Changed)) {
+                delegate.onChanged(id, diff);
+            }
+        }
+    }
+
+    /**
+     * Returns the diff as a lazy stream that merges one step per event pulled, on the consumer's
+     * thread, with a new DiffEvent for each.
+     *
+     * @see #iterator(Iterable, Iterable, boolean)
+     */
+    @Override
+    public Stream<DiffEvent<T,K>> stream(Iterable<T> expected, Iterable<T> actual) {
+        return stream(expected, actual, false);
+    }
+
+    /**
+     * @see #iterator(Iterable, Iterable, boolean)
+     */
+    public Stream<DiffEvent<T,K>> stream(Iterable<T> expected, Iterable<T> actual, boolean reuseEvents) {
+        CloseableIterator<DiffEvent<T,K>> events = iterator(expected, actual, reuseEvents);
+        return DiffEvents.stream(events, events);
+    }
+
+    /**
+     * Returns the diff as an iterator that reads the inputs and compares a matched pair only when the
+     * next event is asked for, so the consumer sets the pace. Validation and prefetch apply as for
+     * computeDiff; parallel comparison and checkpoints do not. When duplicate keys are allowed, the
+     * diff instead runs on its own thread and hands its events over, and every event is a new one.
+     * Close it if you stop early.
+     *
+     * @param reuseEvents if true, every event is the same {@link DiffEvent} instance refilled, valid
+     *                    until the next call to hasNext or next
+     */
+    public CloseableIterator<DiffEvent<T,K>> iterator(Iterable<T> expected, Iterable<T> actual, boolean reuseEvents) {
+        requireNonNull(expected, "expected iterable must not be null");
+        requireNonNull(actual,   "actual iterable must not be null");
+        if (duplicateKeys != null) {
+            Stream<DiffEvent<T,K>> events = DiffEvents.handoff(this, expected, actual);
+            Iterator<DiffEvent<T,K>> it = events.iterator();
+            return new CloseableIterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public DiffEvent<T,K> next() {
+                    return it.next();
+                }
+
+                @Override
+                public void close() {
+                    events.close();
+                }
+            };
+        }
+        Iterable<T> expectedIterable = validateInputs
+                ? new ValidatingIterable<>(expected, keyComparator)
+                : expected;
+        Iterable<T> actualIterable   = validateInputs
+                ? new ValidatingIterable<>(actual,   keyComparator)
+                : actual;
+        if (prefetchDepth > 0) {
+            return new PullIterator(new PrefetchingIterable<>(expectedIterable, prefetchDepth, "expected"),
+                    new PrefetchingIterable<>(actualIterable, prefetchDepth, "actual"), reuseEvents);
+        }
+        return new PullIterator(expectedIterable, actualIterable, reuseEvents);
+    }
+
+    /**
+     * The merge loop turned inside out: each step yields the event for the smaller current key.
+     */
+    private class PullIterator implements CloseableIterator<DiffEvent<T,K>> {
+        private final Iterable<T> expected;
+        private final Iterable<T> actual;
+        private final DiffEvent<T,K> flyweight;
+        private Iterator<T> itE, itA;
+        private T e, a;
+        private DiffEvent<T,K> next;
+
+        PullIterator(Iterable<T> expected, Iterable<T> actual, boolean reuseEvents) {
+            this.expected = expected;
+            this.actual = actual;
+            this.flyweight = reuseEvents ? new DiffEvent<>() : null;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (itE == null) {
+                itE = expected.iterator();
+                itA = actual.iterator();
+                e = poll(itE);
+                a = poll(itA);
+            }
+            if (next == null) {
+                next = step();
+            }
+            return next != null;
+        }
+
+        @Override
+        public DiffEvent<T,K> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            DiffEvent<T,K> event = next;
+            next = null;
+            return event;
+        }
+
+        private DiffEvent<T,K> step() {
+            int cmp;
+            if (e != null && a != null) {
+                cmp = keyComparator.compare(a, e);
+            } else if (e != null) {
+                cmp = 1;
+            } else if (a != null) {
+                cmp = -1;
+            } else {
+                return null;
+            }
+            if (cmp == 0) {
+                K id = e.getId();
+                DiffSummary d = diffOrNull(dataComparator, e, a);
+                e = poll(itE);
+                a = poll(itA);
+                return event(outcome(d), id, null, d);
+            }
+            if (cmp < 0) {
+                T added = a;
+                a = poll(itA);
+                return event(ComparisonResult.Added, added.getId(), added, null);
+            }
+            T dropped = e;
+            e = poll(itE);
+            return event(ComparisonResult.Dropped, dropped.getId(), dropped, null);
+        }
+
+        private DiffEvent<T,K> event(ComparisonResult type, K id, T record, DiffSummary diff) {
+            return flyweight != null
+                    ? flyweight.set(type, id, record, diff)
+                    : new DiffEvent<>(type, id, record, diff);
+        }
+
+        @Override
+        public void close() {
+            try {
+                CloseableIterator.closeIfCloseable(itE);
+            } finally {
+                CloseableIterator.closeIfCloseable(itA);
+            }
+        }
+    }
+
+    /**
+     * Runs the diff and delivers the events in batches of {@link #DEFAULT_BATCH_SIZE}.
+     *
+     * @see #computeDiff(Iterable, Iterable, BatchComparisonResultHandler, int)
+     */
+    public void computeDiff(Iterable<T> expected,
+                            Iterable<T> actual,
+                            BatchComparisonResultHandler<T,K> handler) {
+        computeDiff(expected, actual, handler, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Runs the diff and delivers the events in key order, in blocks of up to batchSize, through one
+     * reused {@link ComparisonResultBatch}, so no per-event objects are created for the delivery.
+     * Unless comparison is parallel, the merge loop writes each event straight into the batch, with
+     * no per-event handler call.
+     *
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if batchSize is not positive, or validation is on and inputs are
+     *                                  out‑of‑order or contain duplicates
+     */
+    public void computeDiff(Iterable<T> expected,
+                            Iterable<T> actual,
+                            BatchComparisonResultHandler<T,K> handler,
+                            int batchSize) {
+        requireNonNull(handler, "handler must not be null");
+        BatchingResultHandler<T,K> batching = new BatchingResultHandler<>(handler, batchSize, dataComparator);
+        computeDiff(expected, actual, batching);
+        batching.flush();
+    }
+
+    /**
+     * Compares a matched pair and fires the event for its outcome; shared by the engines that
+     * pair records by other means than a sorted merge.
+     */
+    static <T,K> void reportMatch(DiffComparator<? super T> dataComparator,
+                                  ComparisonResultHandler<T,K> handler, K id, T e, T a) {
+        reportOutcome(handler, id, diffOrNull(dataComparator, e, a));
+    }
+
+    /**
+     * Fires the event for a compared pair.
+     *
+     * @param d the differences, or null if the pair is equal
+     */
+    static <T,K> void reportOutcome(ComparisonResultHandler<T,K> handler, K id, DiffSummary d) {
+        switch (outcome(d)) {
+            case Equal -> handler.onEqual(id);
+            case ApproximatelyEqual -> handler.onApproximatelyEqual(id, d);
+            case Changed -> handler.onChanged(id, d);
+        }
+    }
+
+    /**
+     * Classifies a compared pair, for every engine that reports one.
+     *
+     * @param d the differences, or null if the pair is equal
+     * @return Equal, ApproximatelyEqual or Changed
+     */
+    static ComparisonResult outcome(DiffSummary d) {
+        return d == null ? ComparisonResult.Equal : d.getComparisonResult();
+    }
+
+    /**
+     * Compares a matched pair. A {@link FieldDiffComparator} writes into this thread's reusable buffer,
+     * so no DiffSummary is created for an equal pair, and a fingerprinted pair that matches is not
+     * compared at all.
+     *
+     * @return null if the pair is equal, otherwise its differences
+     */
+    @SuppressWarnings("unchecked")
+    static <T> DiffSummary diffOrNull(DiffComparator<? super T> dataComparator, T e, T a) {
+        if (dataComparator instanceof FingerprintingComparator<?> fingerprinting) {
+            return ((FingerprintingComparator<? super T>) fingerprinting).diffOrNull(e, a);
+        }
+        if (dataComparator instanceof FieldDiffComparator<?> fieldComparator) {
+            return FieldDiffBuffer.forCurrentThread().compare((FieldDiffComparator<? super T>) fieldComparator, a, e);
+        }
+        DiffSummary d = dataComparator.compare(a, e);
+        return d.getComparisonResult() == ComparisonResult.Equal ? null : d;
+    }
+
+    private static <T> T poll(Iterator<T> it) {
+        return it.hasNext() ? it.next() : null;
     }
 
     boolean isValidationOn() {
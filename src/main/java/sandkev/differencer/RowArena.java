@@ -0,0 +1,324 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Rows kept serialized in direct (off-heap) buffers, for engines that would otherwise hold large
+ * numbers of row objects in the heap. The heap only holds an offset per row, and with a
+ * {@link KeyEncoder} the first eight bytes of its normalized key, so rows can be ordered by key
+ * without being read back.
+ *
+ * <p>Rows are read back with the serializer on each {@link #get}. The buffers are kept across
+ * {@link #clear()} for reuse; direct memory is returned when the arena is garbage collected. Not
+ * thread-safe.
+ *
+ * @param <T> the row type
+ */
+public final class RowArena<T> implements Iterable<T> {
+
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+    private final RecordSerializer<T> serializer;
+    private final KeyEncoder<? super T> keyEncoder;
+    private final int chunkSize;
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int current = -1;
+    private final Scratch scratch = new Scratch();
+    private final DataOutputStream out = new DataOutputStream(scratch);
+    /** chunk index in the high int, position in the low int */
+    private long[] offsets = new long[256];
+    private long[] prefixes;
+    private int size;
+    private long bytesUsed;
+
+    public RowArena(RecordSerializer<T> serializer) {
+        this(serializer, null, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param serializer how rows are written to and read from the buffers
+     * @param keyEncoder if not null, each row's normalized key is stored with it, for {@link #sortedByKey}
+     * @param chunkSize  the size of each direct buffer; a row larger than this gets a buffer of its own
+     */
+    public RowArena(RecordSerializer<T> serializer, KeyEncoder<? super T> keyEncoder, int chunkSize) {
+        this.serializer = requireNonNull(serializer, "serializer must not be null");
+        this.keyEncoder = keyEncoder;
+        if (chunkSize < 64) {
+            throw new IllegalArgumentException("chunkSize must be at least 64: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.prefixes = keyEncoder != null ? new long[offsets.length] : null;
+    }
+
+    /**
+     * @return the row number of the appended row, counting from 0
+     * @throws UncheckedIOException if the serializer fails
+     */
+    public int append(T row) {
+        byte[] key = keyEncoder != null ? keyEncoder.encode(row) : null;
+        scratch.reset();
+        try {
+            serializer.write(row, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int length = scratch.size();
+        int need = (key != null ? Integer.BYTES + key.length : 0) + Integer.BYTES + length;
+        ByteBuffer chunk = chunkFor(need);
+        if (size == offsets.length) {
+            offsets = Arrays.copyOf(offsets, size * 2);
+            if (prefixes != null) {
+                prefixes = Arrays.copyOf(prefixes, size * 2);
+            }
+        }
+        offsets[size] = ((long) current << 32) | chunk.position();
+        if (key != null) {
+            chunk.putInt(key.length).put(key);
+            prefixes[size] = KeyEncoder.prefix(key);
+        }
+        chunk.putInt(length).put(scratch.bytes(), 0, length);
+        bytesUsed += need;
+        return size++;
+    }
+
+    private ByteBuffer chunkFor(int need) {
+        if (current >= 0 && chunks.get(current).remaining() >= need) {
+            return chunks.get(current);
+        }
+        if (current + 1 < chunks.size() && chunks.get(current + 1).capacity() >= need) {
+            return chunks.get(++current);
+        }
+        ByteBuffer chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, need));
+        // a new chunk goes after the ones in use, ahead of any cleared ones still to be reused
+        chunks.add(++current, chunk);
+        return chunk;
+    }
+
+    /**
+     * @return the row, read back with the serializer
+     */
+    public T get(int row) {
+        ByteBuffer chunk = chunkOf(row);
+        int position = rowPosition(chunk, row);
+        int length = chunk.getInt(position);
+        try {
+            return serializer.read(new DataInputStream(new BufferInputStream(chunk.slice(position + Integer.BYTES, length))));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return a read-only view of the row's serialized bytes, valid until the arena is cleared
+     */
+    public ByteBuffer serialized(int row) {
+        ByteBuffer chunk = chunkOf(row);
+        int position = rowPosition(chunk, row);
+        return chunk.slice(position + Integer.BYTES, chunk.getInt(position)).asReadOnlyBuffer();
+    }
+
+    private ByteBuffer chunkOf(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+        return chunks.get((int) (offsets[row] >>> 32));
+    }
+
+    private int rowPosition(ByteBuffer chunk, int row) {
+        int position = (int) offsets[row];
+        return keyEncoder != null ? position + Integer.BYTES + chunk.getInt(position) : position;
+    }
+
+    private ByteBuffer key(int row) {
+        ByteBuffer chunk = chunkOf(row);
+        int position = (int) offsets[row];
+        return chunk.slice(position + Integer.BYTES, chunk.getInt(position));
+    }
+
+    /**
+     * Compares two rows by their normalized keys: the prefixes, and then the keys in the buffers.
+     *
+     * @throws IllegalStateException if the arena has no key encoder
+     */
+    public int compareKeys(int row1, int row2) {
+        if (keyEncoder == null) {
+            throw new IllegalStateException("the arena has no key encoder");
+        }
+        int cmp = Long.compareUnsigned(prefixes[row1], prefixes[row2]);
+        if (cmp != 0) {
+            return cmp;
+        }
+        ByteBuffer k1 = key(row1), k2 = key(row2);
+        int mismatch = k1.mismatch(k2);
+        if (mismatch < 0) {
+            return 0;
+        }
+        if (mismatch < k1.limit() && mismatch < k2.limit()) {
+            return Byte.compareUnsigned(k1.get(mismatch), k2.get(mismatch));
+        }
+        return Integer.compare(k1.limit(), k2.limit());
+    }
+
+    /**
+     * @return the row numbers in key order, equal keys in the order they were appended
+     * @throws IllegalStateException if the arena has no key encoder
+     */
+    public int[] sortedByKey() {
+        if (keyEncoder == null) {
+            throw new IllegalStateException("the arena has no key encoder");
+        }
+        int[] rows = new int[size];
+        for (int i = 0; i < size; i++) {
+            rows[i] = i;
+        }
+        mergeSort(rows, new int[size], 0, size);
+        return rows;
+    }
+
+    private void mergeSort(int[] rows, int[] work, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(rows, work, from, mid);
+        mergeSort(rows, work, mid, to);
+        if (compareKeys(rows[mid - 1], rows[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(rows, from, work, from, to - from);
+        int i = from, j = mid, k = from;
+        while (i < mid && j < to) {
+            rows[k++] = compareKeys(work[j], work[i]) < 0 ? work[j++] : work[i++];
+        }
+        while (i < mid) rows[k++] = work[i++];
+        while (j < to) rows[k++] = work[j++];
+    }
+
+    /**
+     * @return the rows in key order, read back as they are iterated
+     */
+    public Iterable<T> inKeyOrder() {
+        int[] rows = sortedByKey();
+        return () -> rows(rows);
+    }
+
+    /**
+     * @return the rows in the order they were appended
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return rows(null);
+    }
+
+    private Iterator<T> rows(int[] order) {
+        int count = size;
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int row = order != null ? order[next] : next;
+                next++;
+                return get(row);
+            }
+        };
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return bytes of direct memory taken by rows and keys, including their length fields
+     */
+    public long bytesUsed() {
+        return bytesUsed;
+    }
+
+    /**
+     * @return bytes of direct memory allocated, used or not
+     */
+    public long capacity() {
+        long capacity = 0;
+        for (ByteBuffer chunk : chunks) {
+            capacity += chunk.capacity();
+        }
+        return capacity;
+    }
+
+    /**
+     * Forgets every row, keeping the buffers for the rows appended next.
+     */
+    public void clear() {
+        for (ByteBuffer chunk : chunks) {
+            chunk.clear();
+        }
+        current = chunks.isEmpty() ? -1 : 0;
+        size = 0;
+        bytesUsed = 0;
+    }
+
+    private static final class Scratch extends ByteArrayOutputStream {
+        Scratch() {
+            super(256);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
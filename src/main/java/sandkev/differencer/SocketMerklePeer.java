@@ -0,0 +1,100 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.MerklePeer;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link MerklePeer} at the other end of a TCP connection to a {@link MerklePeerServer}. Not
+ * thread-safe: one diff at a time per connection.
+ */
+public class SocketMerklePeer<T,K> implements MerklePeer<T,K>, Closeable {
+
+    private static final int IO_BUFFER_SIZE = 64 * 1024;
+
+    private final RecordSerializer<T> rowSerializer;
+    private final RecordSerializer<K> keySerializer;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private long roundTrips;
+    private long rowsReceived;
+
+    public SocketMerklePeer(String host, int port, RecordSerializer<T> rowSerializer,
+                            RecordSerializer<K> keySerializer) throws IOException {
+        this.rowSerializer = requireNonNull(rowSerializer, "rowSerializer must not be null");
+        this.keySerializer = requireNonNull(keySerializer, "keySerializer must not be null");
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), IO_BUFFER_SIZE));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), IO_BUFFER_SIZE));
+    }
+
+    @Override
+    public List<RangeDigest> digest(List<KeyRange<K>> ranges) throws IOException {
+        send(MerkleProtocol.DIGEST, ranges);
+        List<RangeDigest> digests = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            digests.add(new RangeDigest(in.readInt(), in.readLong()));
+        }
+        return digests;
+    }
+
+    @Override
+    public List<List<T>> fetch(List<KeyRange<K>> ranges) throws IOException {
+        send(MerkleProtocol.FETCH, ranges);
+        List<List<T>> result = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            int count = in.readInt();
+            List<T> rows = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                rows.add(rowSerializer.read(in));
+            }
+            rowsReceived += count;
+            result.add(rows);
+        }
+        return result;
+    }
+
+    private void send(byte op, List<KeyRange<K>> ranges) throws IOException {
+        out.writeByte(op);
+        MerkleProtocol.writeRanges(ranges, keySerializer, out);
+        out.flush();
+        roundTrips++;
+    }
+
+    /**
+     * @return how many requests have been sent so far
+     */
+    public long getRoundTrips() {
+        return roundTrips;
+    }
+
+    /**
+     * @return how many rows have been fetched so far
+     */
+    public long getRowsReceived() {
+        return rowsReceived;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            out.writeByte(MerkleProtocol.BYE);
+            out.flush();
+        } finally {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.SeekableIterable;
+import sandkev.differencer.api.SeekableIterator;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A seekable source over an in-memory list already sorted by key. A seek gallops from the current
+ * position, probing 1, 2, 4, 8... records ahead and then binary searching the last step, so it costs
+ * O(log d) key comparisons to skip d records however large the list is.
+ *
+ * @param <T> the record type
+ * @param <K> the key type
+ */
+public class SortedListSource<T extends Identifiable<K>,K> implements SeekableIterable<T,K> {
+    private final List<T> records;
+    private final Comparator<? super K> keyOrder;
+
+    /**
+     * @param records  sorted strictly by keyOrder; the list is not copied
+     * @param keyOrder the order of the keys
+     * @throws IllegalArgumentException if the list does not support fast random access
+     */
+    public SortedListSource(List<T> records, Comparator<? super K> keyOrder) {
+        this.records = requireNonNull(records, "records must not be null");
+        this.keyOrder = requireNonNull(keyOrder, "keyOrder must not be null");
+        if (!(records instanceof RandomAccess)) {
+            throw new IllegalArgumentException("records must be a RandomAccess list, not " + records.getClass().getName());
+        }
+    }
+
+    @Override
+    public SeekableIterator<T,K> iterator() {
+        return new GallopingIterator();
+    }
+
+    private class GallopingIterator implements SeekableIterator<T,K> {
+        private int position;
+
+        @Override
+        public boolean hasNext() {
+            return position < records.size();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return records.get(position++);
+        }
+
+        @Override
+        public void seekTo(K key) {
+            int size = records.size();
+            if (position >= size || !before(position, key)) {
+                return;
+            }
+            // records[low] is before key; find high with records[high] at or past it, or the end
+            int low = position;
+            int step = 1;
+            int high = low + step;
+            while (high < size && before(high, key)) {
+                low = high;
+                step <<= 1;
+                high = low + step;
+            }
+            high = Math.min(high, size);
+            while (high - low > 1) {
+                int mid = (low + high) >>> 1;
+                if (before(mid, key)) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+            position = high;
+        }
+
+        private boolean before(int index, K key) {
+            return keyOrder.compare(records.get(index).getId(), key) < 0;
+        }
+    }
+}
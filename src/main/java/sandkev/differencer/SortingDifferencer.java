@@ -0,0 +1,87 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffAlgorithm;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Comparator;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A differ for unsorted inputs (use case 2 in the readme).
+ *
+ * <p>Each side is sorted by the keyComparator with an {@link ExternalSorter}, spilling compressed
+ * runs to local temp files when it exceeds the in-heap budget, and the merged runs are fed straight
+ * into the sorted-merge loop of a validating {@link RegularDifferencer}.
+ *
+ * <p><strong>Preconditions:</strong>
+ * <ul>
+ *   <li>Each source may be in any order.</li>
+ *   <li>No two items in a source may be “equal” under the keyComparator; duplicates end up
+ *       adjacent after sorting and are reported with an IllegalArgumentException.</li>
+ * </ul>
+ */
+public class SortingDifferencer<T extends Identifiable<K>,K>
+  implements DiffAlgorithm<T,K> {
+
+    private final ExternalSorter<T> sorter;
+    private final RegularDifferencer<T,K> mergeDifferencer;
+
+    /**
+     * Sorts with one spill thread per core into the default temp directory.
+     */
+    public SortingDifferencer(Comparator<? super T> keyComparator,
+                              DiffComparator<? super T> dataComparator,
+                              RecordSerializer<T> serializer,
+                              int maxRecordsInMemory) {
+        this(keyComparator, dataComparator, serializer, maxRecordsInMemory,
+                Runtime.getRuntime().availableProcessors(), Path.of(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param keyComparator      used to sort, order and identify equality of T instances
+     * @param dataComparator     used to compute field‑level diffs once keys match
+     * @param serializer         how records are written to and read from sorted run files
+     * @param maxRecordsInMemory the most records held in the heap by the sort of one side
+     * @param parallelism        how many runs are sorted and spilled concurrently
+     * @param tempDir            where sorted runs are spilled
+     */
+    public SortingDifferencer(Comparator<? super T> keyComparator,
+                              DiffComparator<? super T> dataComparator,
+                              RecordSerializer<T> serializer,
+                              int maxRecordsInMemory,
+                              int parallelism,
+                              Path tempDir) {
+        this.sorter = new ExternalSorter<>(keyComparator, serializer, maxRecordsInMemory, parallelism, tempDir);
+        this.mergeDifferencer = RegularDifferencer.<T,K>withValidation(keyComparator, dataComparator);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if either input contains duplicate keys
+     * @throws UncheckedIOException if the sorted runs cannot be spilled or read back
+     */
+    @Override
+    public void computeDiff(Iterable<T> expected,
+                            Iterable<T> actual,
+                            ComparisonResultHandler<T,K> handler) {
+        requireNonNull(expected, "expected iterable must not be null");
+        requireNonNull(actual,   "actual iterable must not be null");
+        requireNonNull(handler,  "handler must not be null");
+
+        try (ExternalSorter.SortedRuns<T> sortedExpected = sorter.sort(expected);
+             ExternalSorter.SortedRuns<T> sortedActual   = sorter.sort(actual)) {
+            mergeDifferencer.computeDiff(sortedExpected, sortedActual, handler);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
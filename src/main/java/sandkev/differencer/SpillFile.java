@@ -0,0 +1,185 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A gzip-compressed temp file of serialized records: appended to once, then iterated any number
+ * of times until it is closed, which deletes it.
+ *
+ * <p>I/O failures surface as UncheckedIOException since they happen inside Iterators.
+ */
+class SpillFile<T> implements Iterable<T>, Closeable {
+
+    private final Path file;
+    private final RecordSerializer<T> serializer;
+    private final int bufferSize;
+    private final List<Closeable> openReaders = new ArrayList<>();
+    private DataOutputStream out;
+    private long count;
+
+    private SpillFile(Path file, RecordSerializer<T> serializer, int bufferSize) throws IOException {
+        this.file = file;
+        this.serializer = serializer;
+        this.bufferSize = bufferSize;
+        this.out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(Files.newOutputStream(file), bufferSize), bufferSize));
+    }
+
+    static <T> SpillFile<T> create(Path dir, String prefix, RecordSerializer<T> serializer, int bufferSize) {
+        try {
+            Path file = Files.createTempFile(dir, prefix, ".gz");
+            try {
+                return new SpillFile<>(file, serializer, bufferSize);
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void append(T record) {
+        try {
+            serializer.write(record, out);
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends a record already serialized with this file's serializer.
+     */
+    void appendSerialized(ByteBuffer record) {
+        try {
+            if (record.hasArray()) {
+                out.write(record.array(), record.arrayOffset() + record.position(), record.remaining());
+            } else {
+                byte[] copy = new byte[record.remaining()];
+                record.get(record.position(), copy);
+                out.write(copy);
+            }
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Flushes and closes the writer; the file can be iterated from now on.
+     */
+    SpillFile<T> finish() {
+        try {
+            out.close();
+            out = null;
+            return this;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long count() {
+        return count;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (out != null) {
+            throw new IllegalStateException("spill file has not been finished: " + file);
+        }
+        Reader reader = new Reader();
+        openReaders.add(reader);
+        return reader;
+    }
+
+    /**
+     * Closes the writer and any open readers, then deletes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        for (Closeable reader : openReaders) {
+            reader.close();
+        }
+        openReaders.clear();
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Closes every file, keeping the first failure, for cleanup paths that must not stop halfway.
+     */
+    static void closeAll(Iterable<? extends SpillFile<?>> files) throws IOException {
+        IOException failure = null;
+        for (SpillFile<?> file : files) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private class Reader implements Iterator<T>, Closeable {
+        private final DataInputStream in;
+        private long remaining = count;
+
+        Reader() {
+            try {
+                this.in = new DataInputStream(new BufferedInputStream(
+                        new GZIPInputStream(Files.newInputStream(file), bufferSize), bufferSize));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public T next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            try {
+                T record = serializer.read(in);
+                if (--remaining == 0) {
+                    close();
+                }
+                return record;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package sandkev.differencer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * Windows read from a stream into heap buffers. Each window is a new buffer, holding the unread tail
+ * of the previous one and then as much of the stream as fits, since records handed out over the
+ * previous window may still be referenced.
+ */
+final class StreamWindows implements ByteWindows {
+    /** smaller than a mapped window, since each window is a new heap buffer */
+    static final long DEFAULT_WINDOW_SIZE = 1L << 20;
+
+    private final InputStream in;
+    private ByteBuffer window = ByteBuffer.allocate(0);
+    private long windowStart;
+    private boolean eof;
+
+    StreamWindows(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * @return windows over the file's bytes, inflated if it is compressed
+     * @throws UncheckedIOException if the file cannot be opened
+     * @see Decompression#open
+     */
+    static StreamWindows decompressing(Path file, int threads, DiffMetrics metrics) {
+        try {
+            return new StreamWindows(Decompression.open(file, threads, metrics));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @throws IllegalStateException if position is outside the last window
+     */
+    @Override
+    public ByteBuffer map(long position, long length) {
+        long windowEnd = windowStart + window.limit();
+        if (position < windowStart || position > windowEnd) {
+            throw new IllegalStateException("a stream is read forward: cannot go from " + windowStart + " to " + position);
+        }
+        int kept = (int) (windowEnd - position);
+        byte[] bytes = new byte[(int) Math.max(kept, Math.min(length, Integer.MAX_VALUE - 8))];
+        window.get(window.limit() - kept, bytes, 0, kept);
+        int filled = kept;
+        try {
+            while (filled < bytes.length && !eof) {
+                int read = in.read(bytes, filled, bytes.length - filled);
+                if (read < 0) {
+                    eof = true;
+                } else {
+                    filled += read;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        window = ByteBuffer.wrap(bytes, 0, filled).slice();
+        windowStart = position;
+        return window;
+    }
+
+    @Override
+    public boolean endsAt(long position) {
+        return eof && position == windowStart + window.limit();
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.ThreeWayOutcome;
+import sandkev.differencer.api.ThreeWayResultHandler;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Classifies each key of two sorted versions, left and right, against their common sorted base in a
+ * single pass over the three, holding only the current key's records.
+ *
+ * <p>Each side is compared with the base, and the two sides are compared with each other only when
+ * both have changed, to tell a shared change from a conflict. Approximately equal records count as
+ * the same, as they do in a two-way diff.
+ *
+ * <p><strong>Preconditions:</strong> each source must be sorted strictly by the keyComparator,
+ * without duplicates. Both are checked as the sources are read.
+ */
+public class ThreeWayDifferencer<T extends Identifiable<K>,K> {
+
+    private static final int BASE = 0, LEFT = 1, RIGHT = 2;
+
+    private final MultiSourceDifferencer<T,K> merger;
+
+    /**
+     * @param keyComparator  used to order and identify equality of T instances
+     * @param dataComparator used to decide whether two versions of a record are equal
+     */
+    public ThreeWayDifferencer(Comparator<? super T> keyComparator,
+                               DiffComparator<? super T> dataComparator) {
+        this.merger = new MultiSourceDifferencer<T,K>(keyComparator, dataComparator);
+    }
+
+    /**
+     * @throws NullPointerException if any argument is null
+     * @throws IllegalArgumentException if a source is out‑of‑order or contains duplicates
+     */
+    public void computeDiff(Iterable<T> base, Iterable<T> left, Iterable<T> right,
+                            ThreeWayResultHandler<T,K> handler) {
+        requireNonNull(base,    "base iterable must not be null");
+        requireNonNull(left,    "left iterable must not be null");
+        requireNonNull(right,   "right iterable must not be null");
+        requireNonNull(handler, "handler must not be null");
+        merger.computeDiff(List.of(base, left, right), group -> handler.onKey(group.getId(), classify(group),
+                group.record(BASE), group.record(LEFT), group.record(RIGHT)));
+    }
+
+    private static ThreeWayOutcome classify(KeyGroup<?,?> group) {
+        boolean leftChanged = !same(group, BASE, LEFT);
+        boolean rightChanged = !same(group, BASE, RIGHT);
+        if (!leftChanged) {
+            return rightChanged ? ThreeWayOutcome.ChangedRightOnly : ThreeWayOutcome.Unchanged;
+        }
+        if (!rightChanged) {
+            return ThreeWayOutcome.ChangedLeftOnly;
+        }
+        return same(group, LEFT, RIGHT) ? ThreeWayOutcome.ChangedBothSame : ThreeWayOutcome.Conflict;
+    }
+
+    /**
+     * @return true if neither source has the key, or both have equal or approximately equal records for it
+     */
+    private static boolean same(KeyGroup<?,?> group, int source, int other) {
+        boolean present = group.isPresent(source);
+        if (present != group.isPresent(other)) {
+            return false;
+        }
+        return !present || RegularDifferencer.outcome(group.diff(source, other)) != ComparisonResult.Changed;
+    }
+}
@@ -1,6 +1,7 @@
 package sandkev.differencer;
 
 import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.SeekableIterator;
 
 import java.util.Comparator;
 import java.util.Iterator;
@@ -12,30 +13,49 @@ import java.util.Objects;
  *  2) no duplicates (i.e. comparator.compare(prev,cur) != 0)
  *
  * Throws IllegalArgumentException at first out‑of‑order or duplicate.
+ * Duplicates may be allowed, so that only the order is checked.
+ * If the source's iterator is a {@link SeekableIterator}, so is the validating one, and closing the
+ * validating iterator closes the source's if it is {@link AutoCloseable}.
  */
 public class ValidatingIterable<T> implements Iterable<T> {
     private final Iterable<T> source;
     private final Comparator<? super T> comparator;
+    private final boolean allowDuplicates;
 
     public ValidatingIterable(Iterable<T> source, Comparator<? super T> comparator) {
+        this(source, comparator, false);
+    }
+
+    /**
+     * @param allowDuplicates if true, consecutive equal keys are accepted
+     */
+    public ValidatingIterable(Iterable<T> source, Comparator<? super T> comparator, boolean allowDuplicates) {
         this.source = Objects.requireNonNull(source, "source must not be null");
         this.comparator = Objects.requireNonNull(comparator, "comparator must not be null");
+        this.allowDuplicates = allowDuplicates;
     }
 
     @Override
-    public Iterator<T> iterator() {
-        return new ValidatingIterator<>(source.iterator(), comparator);
+    @SuppressWarnings("unchecked")
+    public CloseableIterator<T> iterator() {
+        Iterator<T> inner = source.iterator();
+        if (inner instanceof SeekableIterator<?,?> seekable) {
+            return new SeekableValidatingIterator<>((SeekableIterator<T,Object>) seekable, comparator, allowDuplicates);
+        }
+        return new ValidatingIterator<>(inner, comparator, allowDuplicates);
     }
 
-    private static class ValidatingIterator<T> implements Iterator<T> {
+    private static class ValidatingIterator<T> implements CloseableIterator<T> {
         private final Iterator<T> inner;
         private final Comparator<? super T> comparator;
+        private final boolean allowDuplicates;
         private T previous;
         private boolean hasPrevious = false;
 
-        ValidatingIterator(Iterator<T> inner, Comparator<? super T> comparator) {
+        ValidatingIterator(Iterator<T> inner, Comparator<? super T> comparator, boolean allowDuplicates) {
             this.inner = inner;
             this.comparator = comparator;
+            this.allowDuplicates = allowDuplicates;
         }
 
         @Override
@@ -54,7 +74,7 @@ public class ValidatingIterable<T> implements Iterable<T> {
                             extractId(current), extractId(previous)
                     ));
                 }
-                if (cmp == 0) {
+                if (cmp == 0 && !allowDuplicates) {
                     throw new IllegalArgumentException(
                             String.format("Duplicate key detected: <%s>", extractId(current))
                     );
@@ -65,6 +85,11 @@ public class ValidatingIterable<T> implements Iterable<T> {
             return current;
         }
 
+        @Override
+        public void close() {
+            CloseableIterator.closeIfCloseable(inner);
+        }
+
         /**
          * Helper to pull out an identifier for logging;
          * you can adapt this to your Identifiable interface.
@@ -76,5 +101,19 @@ public class ValidatingIterable<T> implements Iterable<T> {
             return item.toString();
         }
     }
-}
 
+    private static class SeekableValidatingIterator<T,K> extends ValidatingIterator<T> implements SeekableIterator<T,K> {
+        private final SeekableIterator<T,K> seekable;
+
+        SeekableValidatingIterator(SeekableIterator<T,K> seekable, Comparator<? super T> comparator,
+                                   boolean allowDuplicates) {
+            super(seekable, comparator, allowDuplicates);
+            this.seekable = seekable;
+        }
+
+        @Override
+        public void seekTo(K key) {
+            seekable.seekTo(key);
+        }
+    }
+}
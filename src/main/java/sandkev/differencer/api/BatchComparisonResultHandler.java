@@ -0,0 +1,23 @@
+package sandkev.differencer.api;
+
+import sandkev.differencer.ComparisonResultBatch;
+
+/**
+ * callback for comparison events delivered a block at a time, for sinks where one interface
+ * call per event is too expensive.
+ */
+@FunctionalInterface
+public interface BatchComparisonResultHandler<T,K> {
+
+    /**
+     * @param batch the next events in delivery order; only valid until this method returns
+     */
+    void onBatch(ComparisonResultBatch<T,K> batch);
+
+    /**
+     * Adapts a per-event handler, such as ComparisonResultStats, to receive batches.
+     */
+    static <T,K> BatchComparisonResultHandler<T,K> adapt(ComparisonResultHandler<T,K> handler) {
+        return batch -> batch.replayTo(handler);
+    }
+}
@@ -0,0 +1,22 @@
+package sandkev.differencer.api;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * A handler whose accumulated state can be saved with a checkpoint and restored when a diff is
+ * resumed, so the resumed run ends in the same state as an uninterrupted one.
+ *
+ * @param <T> the record type
+ * @param <K> the key type
+ */
+public interface CheckpointableHandler<T,K> extends ComparisonResultHandler<T,K> {
+
+    void saveState(DataOutput out, RecordSerializer<K> keySerializer) throws IOException;
+
+    /**
+     * Replaces the current state with the saved one.
+     */
+    void restoreState(DataInput in, RecordSerializer<K> keySerializer) throws IOException;
+}
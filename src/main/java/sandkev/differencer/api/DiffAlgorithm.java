@@ -1,6 +1,10 @@
 package sandkev.differencer.api;
 
 import sandkev.differencer.ComparisonResultStats;
+import sandkev.differencer.DiffEvent;
+import sandkev.differencer.DiffEvents;
+
+import java.util.stream.Stream;
 
 /**
  * A functional interface that computes the diff between two
@@ -36,4 +40,16 @@ public interface DiffAlgorithm<T extends Identifiable<K>, K> {
         computeDiff(expected, actual, stats);
         return stats;
     }
+
+    /**
+     * Returns the diff as a lazy, ordered stream of events, computed as the consumer pulls them.
+     * Close the stream if you stop before the end.
+     *
+     * <p>This default runs computeDiff on a virtual thread that blocks once it is a bounded number of
+     * events ahead of the consumer; engines that can merge step by step override it.
+     */
+    default Stream<DiffEvent<T,K>> stream(Iterable<T> expected,
+                                         Iterable<T> actual) {
+        return DiffEvents.handoff(this, expected, actual);
+    }
 }
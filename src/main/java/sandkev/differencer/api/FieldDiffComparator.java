@@ -0,0 +1,23 @@
+package sandkev.differencer.api;
+
+import sandkev.differencer.DiffSummary;
+
+/**
+ * A DiffComparator that reports differences into a sink rather than building a DiffSummary, so the
+ * engines can reuse one sink per thread and only create a summary for records that differ.
+ */
+@FunctionalInterface
+public interface FieldDiffComparator<T> extends DiffComparator<T> {
+
+    /**
+     * Reports each field that differs between o1 and o2 to sink; reports nothing when they are equal.
+     */
+    void compare(T o1, T o2, FieldDiffSink sink);
+
+    @Override
+    default DiffSummary compare(T o1, T o2) {
+        DiffSummary summary = new DiffSummary();
+        compare(o1, o2, summary);
+        return summary;
+    }
+}
@@ -0,0 +1,8 @@
+package sandkev.differencer.api;
+
+/**
+ * receives the field-level differences found by a {@link FieldDiffComparator}.
+ */
+public interface FieldDiffSink {
+    void addDiff(String fieldName, Object expectedValue, Object actualValue, ComparisonResult diffType);
+}
@@ -0,0 +1,20 @@
+package sandkev.differencer.api;
+
+/**
+ * A record that carries a precomputed hash of its content, e.g. one stored with a snapshot, so
+ * identical records can be recognised without comparing their fields.
+ */
+public interface Fingerprinted {
+
+    /**
+     * @return the fingerprint, or its low 64 bits for a 128-bit fingerprint
+     */
+    long getFingerprint();
+
+    /**
+     * @return the high 64 bits of a 128-bit fingerprint; 0 for a 64-bit one
+     */
+    default long getFingerprintHigh() {
+        return 0L;
+    }
+}
@@ -0,0 +1,14 @@
+package sandkev.differencer.api;
+
+import sandkev.differencer.DiffSummary;
+
+/**
+ * callback for comparison events on records keyed by a primitive long, so no key is boxed.
+ */
+public interface LongComparisonResultHandler<T> {
+    void onEqual(long id);
+    void onApproximatelyEqual(long id, DiffSummary diff);
+    void onAdded(long id, T added);
+    void onDropped(long id, T dropped);
+    void onChanged(long id, DiffSummary diff);
+}
@@ -0,0 +1,34 @@
+package sandkev.differencer.api;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The remote side of a Merkle diff: answers hash and row queries over key ranges of its own sorted
+ * records. Each call carries a whole level of ranges, so a diff takes one round trip per tree level.
+ *
+ * @param <T> the record type
+ * @param <K> the key type
+ */
+public interface MerklePeer<T,K> {
+
+    /**
+     * @return the digest of each range, in the same order
+     */
+    List<RangeDigest> digest(List<KeyRange<K>> ranges) throws IOException;
+
+    /**
+     * @return the records in each range, in key order
+     */
+    List<List<T>> fetch(List<KeyRange<K>> ranges) throws IOException;
+
+    /**
+     * Keys from {@code from} inclusive to {@code to} exclusive; a null bound is unbounded.
+     */
+    record KeyRange<K>(K from, K to) {}
+
+    /**
+     * How many records a range holds and a hash of their keys and contents.
+     */
+    record RangeDigest(int count, long hash) {}
+}
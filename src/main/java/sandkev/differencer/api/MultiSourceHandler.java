@@ -0,0 +1,17 @@
+package sandkev.differencer.api;
+
+import sandkev.differencer.KeyGroup;
+
+/**
+ * callback for an N-way diff: called once per key, in key order, with the records each source holds
+ * for it.
+ */
+@FunctionalInterface
+public interface MultiSourceHandler<T,K> {
+
+    /**
+     * @param group the key's records; the same instance is refilled for every key, so copy out
+     *              anything you keep after this method returns
+     */
+    void onKey(KeyGroup<T,K> group);
+}
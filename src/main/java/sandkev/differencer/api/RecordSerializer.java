@@ -0,0 +1,52 @@
+package sandkev.differencer.api;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+
+/**
+ * Writes records to, and reads them back from, the binary files engines spill to local disk.
+ *
+ * @param <T> the record type
+ */
+public interface RecordSerializer<T> {
+
+    void write(T record, DataOutput out) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    /**
+     * A fallback that uses Java serialization for each record. It works for any Serializable
+     * type but is slow and bulky; prefer a hand-written serializer for large volumes.
+     */
+    static <T extends Serializable> RecordSerializer<T> javaSerialization() {
+        return new RecordSerializer<>() {
+            @Override
+            public void write(T record, DataOutput out) throws IOException {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                    oos.writeObject(record);
+                }
+                out.writeInt(bytes.size());
+                out.write(bytes.toByteArray());
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T read(DataInput in) throws IOException {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    return (T) ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package sandkev.differencer.api;
+
+/**
+ * Computes a content hash for a record. Two records whose fields a DiffComparator would report as
+ * Equal must get the same fingerprint; records that differ should, with high probability, not.
+ */
+@FunctionalInterface
+public interface RowFingerprinter<T> {
+
+    /**
+     * @return the fingerprint, or its low 64 bits for a 128-bit fingerprint
+     */
+    long fingerprint(T record);
+
+    /**
+     * @return the high 64 bits of a 128-bit fingerprint; 0 for a 64-bit one
+     */
+    default long fingerprintHigh(T record) {
+        return 0L;
+    }
+
+    /**
+     * Uses the fingerprints the records already carry.
+     */
+    static <T extends Fingerprinted> RowFingerprinter<T> precomputed() {
+        return new RowFingerprinter<>() {
+            @Override
+            public long fingerprint(T record) {
+                return record.getFingerprint();
+            }
+
+            @Override
+            public long fingerprintHigh(T record) {
+                return record.getFingerprintHigh();
+            }
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package sandkev.differencer.api;
+
+/**
+ * A sorted source whose iterators can seek.
+ *
+ * @param <T> the record type
+ * @param <K> the key type
+ */
+public interface SeekableIterable<T,K> extends Iterable<T> {
+
+    @Override
+    SeekableIterator<T,K> iterator();
+}
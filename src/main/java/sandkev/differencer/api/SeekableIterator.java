@@ -0,0 +1,23 @@
+package sandkev.differencer.api;
+
+import java.util.Iterator;
+
+/**
+ * An iterator over records sorted by key that can skip ahead without returning the records in
+ * between, for sources backed by an index, a sorted file or a database cursor.
+ *
+ * <p>The merge calls {@link #seekTo} each time one side is behind the other, often to a key only a
+ * few records ahead, so a short seek should be cheap: check the next record first and gallop, and
+ * only reposition the underlying source for long gaps.
+ *
+ * @param <T> the record type
+ * @param <K> the key type
+ */
+public interface SeekableIterator<T,K> extends Iterator<T> {
+
+    /**
+     * Skips forward so that the next record returned is the first whose key is not before key, or
+     * there is none. Never goes back: does nothing if the next record's key is already at or past it.
+     */
+    void seekTo(K key);
+}
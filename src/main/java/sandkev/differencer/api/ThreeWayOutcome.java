@@ -0,0 +1,18 @@
+package sandkev.differencer.api;
+
+/**
+ * How a key's left and right versions relate to its base version. Adding or removing a record
+ * counts as a change.
+ */
+public enum ThreeWayOutcome {
+    /** neither side changed the base */
+    Unchanged,
+    /** only the left side changed the base */
+    ChangedLeftOnly,
+    /** only the right side changed the base */
+    ChangedRightOnly,
+    /** both sides made the same change */
+    ChangedBothSame,
+    /** both sides changed the base, differently */
+    Conflict
+}
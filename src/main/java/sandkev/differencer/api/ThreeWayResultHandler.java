@@ -0,0 +1,15 @@
+package sandkev.differencer.api;
+
+/**
+ * callback for three-way diff outcomes, called once per key in key order.
+ */
+@FunctionalInterface
+public interface ThreeWayResultHandler<T,K> {
+
+    /**
+     * @param base  the base record, or null if the key is not in the base
+     * @param left  the left record, or null if the key is not on the left
+     * @param right the right record, or null if the key is not on the right
+     */
+    void onKey(K id, ThreeWayOutcome outcome, T base, T left, T right);
+}
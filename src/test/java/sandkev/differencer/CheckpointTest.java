@@ -0,0 +1,133 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class CheckpointTest {
+
+    private static final RecordSerializer<Long> KEY_SERIALIZER = new RecordSerializer<>() {
+        @Override
+        public void write(Long key, DataOutput out) throws IOException {
+            out.writeLong(key);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    @TempDir
+    Path tempDir;
+
+    private final List<Row> expected = new ArrayList<>();
+    private final List<Row> actual = new ArrayList<>();
+
+    CheckpointTest() {
+        for (long id = 0; id < 10_000; id++) {
+            if (id % 13 != 0) expected.add(new Row(id, "v" + id));
+            if (id % 17 != 0) actual.add(new Row(id, id % 19 == 0 ? "changed" : "v" + id));
+        }
+    }
+
+    private Checkpointer<Row,Long> checkpointer() {
+        return new Checkpointer<>(tempDir.resolve("diff.ckpt"), SERIALIZER, KEY_SERIALIZER, 500, Duration.ZERO);
+    }
+
+    /**
+     * Iterates the rows but fails once it has handed out failAfter of them.
+     */
+    private static Iterable<Row> failingAfter(List<Row> rows, int failAfter) {
+        return () -> new Iterator<>() {
+            private final Iterator<Row> it = rows.iterator();
+            private int served;
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Row next() {
+                if (served++ == failAfter) {
+                    throw new IllegalStateException("source died");
+                }
+                return it.next();
+            }
+        };
+    }
+
+    @Test
+    void resumedRunEndsInTheSameStateAsAnUninterruptedOne() {
+        var uninterrupted = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).diffAndCollect(expected, actual);
+
+        var checkpointer = checkpointer();
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).withCheckpoints(checkpointer);
+        var firstAttempt = new ComparisonResultStats<Row,Long>();
+        assertThrows(IllegalStateException.class,
+                () -> differencer.computeDiff(failingAfter(expected, 7_000), actual, firstAttempt));
+        assertTrue(Files.exists(checkpointer.getFile()));
+        assertTrue(differencer.getMetrics().getCheckpointCount().get() > 0);
+
+        var resumed = new ComparisonResultStats<Row,Long>();
+        differencer.resumeDiff(expected, actual, resumed);
+
+        assertEquals(uninterrupted.getEqualCount().get(), resumed.getEqualCount().get());
+        assertEquals(uninterrupted.getAddedCount().get(), resumed.getAddedCount().get());
+        assertEquals(uninterrupted.getDroppedCount().get(), resumed.getDroppedCount().get());
+        assertEquals(uninterrupted.getChangedKeys(), resumed.getChangedKeys());
+        assertEquals(uninterrupted.getAddedKeys(), resumed.getAddedKeys());
+        assertEquals(uninterrupted.getDroppedKeys(), resumed.getDroppedKeys());
+        assertFalse(Files.exists(checkpointer.getFile()), "the checkpoint should be removed once the diff completes");
+    }
+
+    @Test
+    void resumeWithoutCheckpointStartsFromTheBeginning() {
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).withCheckpoints(checkpointer());
+        var stats = new ComparisonResultStats<Row,Long>();
+
+        differencer.resumeDiff(expected, actual, stats);
+
+        var uninterrupted = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).diffAndCollect(expected, actual);
+        assertEquals(uninterrupted.getEqualCount().get(), stats.getEqualCount().get());
+        assertEquals(uninterrupted.getChangedKeys(), stats.getChangedKeys());
+    }
+
+    @Test
+    void minIntervalRationsCheckpoints() {
+        var rare = new Checkpointer<>(tempDir.resolve("rare.ckpt"), SERIALIZER, KEY_SERIALIZER, 1, Duration.ofHours(1));
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).withCheckpoints(rare);
+
+        differencer.computeDiff(expected, actual, new ComparisonResultStats<>());
+
+        assertEquals(0, differencer.getMetrics().getCheckpointCount().get());
+    }
+
+    @Test
+    void rejectsHandlersWithoutStateAndParallelComparison() {
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).withCheckpoints(checkpointer());
+        assertThrows(IllegalArgumentException.class,
+                () -> differencer.computeDiff(expected, actual, new ComparisonResultRecorder<>()));
+        var pool = Executors.newSingleThreadExecutor();
+        try {
+            assertThrows(IllegalStateException.class, () -> differencer.withParallelComparison(pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
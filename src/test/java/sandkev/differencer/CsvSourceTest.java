@@ -0,0 +1,181 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.DiffComparator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.recording;
+
+class CsvSourceTest {
+
+    private static final CsvSchema SCHEMA = CsvSchema.create()
+            .withColumn("book", CsvSchema.Type.STRING)
+            .withColumn("id", CsvSchema.Type.LONG)
+            .withColumn("price", CsvSchema.Type.DECIMAL)
+            .withColumn("date", CsvSchema.Type.DATE)
+            .withColumn("note", CsvSchema.Type.STRING)
+            .withKey("book", "id");
+
+    private static final DiffComparator<CsvRecord> DATA_COMPARATOR = (o1, o2) -> {
+        DiffSummary diffs = new DiffSummary();
+        for (String column : List.of("price", "date", "note")) {
+            int index = SCHEMA.indexOf(column);
+            if (!o1.fieldEquals(index, o2)) {
+                diffs.addDiff(column, o2.getString(index), o1.getString(index), ComparisonResult.Changed);
+            }
+        }
+        return diffs;
+    };
+
+    @TempDir
+    Path tempDir;
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(tempDir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static List<List<String>> read(CsvSource source) {
+        List<List<String>> records = new ArrayList<>();
+        for (CsvRecord record : source) {
+            List<String> fields = new ArrayList<>();
+            for (int i = 0; i < record.fieldCount(); i++) {
+                fields.add(record.getString(i));
+            }
+            records.add(fields);
+        }
+        return records;
+    }
+
+    @Test
+    void decodesTypedFields() throws IOException {
+        Path file = write("typed.csv", "ABC,42,-12.345,2024-02-29,plain\n\"A,B\",-7,1E+3,1999-12-31,\n");
+        CloseableIterator<CsvRecord> it = new CsvSource(file, SCHEMA).iterator();
+        CsvRecord first = it.next();
+        assertEquals("ABC", first.getString("book"));
+        assertEquals(42, first.getLong("id"));
+        assertEquals(new BigDecimal("-12.345"), first.getDecimal("price"));
+        assertEquals(LocalDate.of(2024, 2, 29), first.getDate("date"));
+        assertEquals("ABC", first.getId().get(0));
+        assertEquals(42L, first.getId().get(1));
+
+        CsvRecord second = it.next();
+        assertEquals("A,B", second.getString(0));
+        assertEquals(-7, second.getLong(1));
+        assertEquals(0, new BigDecimal("1000").compareTo(second.getDecimal(2)));
+        assertTrue(second.isNull(4));
+        assertNull(second.getString(4));
+        assertThrows(NumberFormatException.class, () -> second.getLong(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> second.getString(5));
+        assertTrue(first.getId().compareTo(second.getId()) > 0);
+        assertFalse(it.hasNext());
+        it.close();
+    }
+
+    @Test
+    void handlesQuotesEscapesAndLineBreaksInsideFields() throws IOException {
+        String content = "\"say \"\"hi\"\"\",1,,,\"two\r\nlines\"\r\n"
+                + "\"\",2,,,\"a,b\"\n"
+                + "\n"
+                + "x,3,,,\"\"\"\"";
+        List<List<String>> expected = List.of(
+                Arrays.asList("say \"hi\"", "1", null, null, "two\r\nlines"),
+                Arrays.asList("", "2", null, null, "a,b"),
+                Arrays.asList("x", "3", null, null, "\""));
+        Path file = write("quoted.csv", content);
+        assertEquals(expected, read(new CsvSource(file, SCHEMA)));
+        for (int window = 1; window < 12; window++) {
+            assertEquals(expected, read(new CsvSource(file, SCHEMA, window)), "window " + window);
+        }
+    }
+
+    @Test
+    void anEmptyLineIsANullRecordWithOneColumn() throws IOException {
+        CsvSchema oneColumn = CsvSchema.create().withColumn("name", CsvSchema.Type.STRING).withKey("name");
+        Path file = write("one-column.csv", "\na\r\n\r\n\"\"\nb\n");
+        List<List<String>> expected = List.of(
+                Arrays.asList((String) null), List.of("a"), Arrays.asList((String) null), List.of(""), List.of("b"));
+        for (int window = 1; window < 8; window++) {
+            assertEquals(expected, read(new CsvSource(file, oneColumn, window)), "window " + window);
+        }
+    }
+
+    @Test
+    void readsLargeFilesAcrossWindowsAndMatchesANaiveSplit() throws IOException {
+        Random random = new Random(7);
+        StringBuilder content = new StringBuilder();
+        List<List<String>> expected = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            String book = "book" + random.nextInt(1000);
+            String price = random.nextInt(5) == 0 ? "" : BigDecimal.valueOf(random.nextLong(-1_000_000, 1_000_000), 2).toPlainString();
+            String note = "n".repeat(random.nextInt(40));
+            content.append(String.join(",", book, String.valueOf(i), price, "2020-01-01", note)).append('\n');
+            expected.add(Arrays.asList(book, String.valueOf(i), price.isEmpty() ? null : price, "2020-01-01",
+                    note.isEmpty() ? null : note));
+        }
+        Path file = write("large.csv", content.toString());
+        assertEquals(expected, read(new CsvSource(file, SCHEMA, 100)));
+        assertEquals(expected, read(new CsvSource(file, SCHEMA)));
+    }
+
+    @Test
+    void checksTheHeaderAndTheNumberOfFields() throws IOException {
+        CsvSchema withHeader = SCHEMA.withHeader().withDelimiter('|');
+        Path good = write("header.csv", "book|id|price|date|note\nA|1|2|2020-01-01|x\n");
+        assertEquals(List.of(List.of("A", "1", "2", "2020-01-01", "x")), read(new CsvSource(good, withHeader)));
+
+        Path badHeader = write("badHeader.csv", "book|key|price|date|note\n");
+        assertThrows(IllegalStateException.class, () -> new CsvSource(badHeader, withHeader).iterator());
+
+        Path short_ = write("short.csv", "A,1,2\n");
+        assertThrows(IllegalStateException.class, () -> read(new CsvSource(short_, SCHEMA)));
+
+        Path unterminated = write("unterminated.csv", "\"A,1,2,2020-01-01,x\n");
+        assertThrows(IllegalStateException.class, () -> read(new CsvSource(unterminated, SCHEMA)));
+
+        Path strayQuote = write("stray.csv", "\"A\"x,1,2,2020-01-01,x\n");
+        assertThrows(IllegalStateException.class, () -> read(new CsvSource(strayQuote, SCHEMA)));
+
+        Path badDate = write("badDate.csv", "A,1,2,2023-02-29,x\n");
+        CsvRecord record = new CsvSource(badDate, SCHEMA).iterator().next();
+        assertThrows(DateTimeParseException.class, () -> record.getDate(3));
+    }
+
+    @Test
+    void diffsTwoCsvFiles() throws IOException {
+        Path expected = write("expected.csv", "A,1,1.0,2020-01-01,x\nA,2,2.0,2020-01-01,y\nB,1,3.0,2020-01-01,z\n");
+        Path actual = write("actual.csv", "A,1,1.0,2020-01-01,x\nA,2,2.5,2020-01-01,y\nA,3,1.0,2020-01-01,w\n");
+        List<String> events = new ArrayList<>();
+        new RegularDifferencer<CsvRecord,CsvKey>(SCHEMA.keyOrder(), DATA_COMPARATOR, true)
+                .computeDiff(new CsvSource(expected, SCHEMA), new CsvSource(actual, SCHEMA), recording(events));
+        assertEquals(List.of("Equal:[A,1]", "Changed:[A,2]", "Added:[A,3]", "Dropped:[B,1]"), events);
+    }
+
+    @Test
+    void keysCompareDecimalsByValue() throws IOException {
+        CsvSchema schema = CsvSchema.create()
+                .withColumn("price", CsvSchema.Type.DECIMAL)
+                .withColumn("day", CsvSchema.Type.DATE)
+                .withKey("price", "day");
+        Path file = write("keys.csv", "1.0,2020-01-01\n1.00,2020-01-01\n,2020-01-01\n");
+        CloseableIterator<CsvRecord> it = new CsvSource(file, schema).iterator();
+        CsvKey k1 = it.next().getId(), k2 = it.next().getId(), k3 = it.next().getId();
+        assertEquals(k1, k2);
+        assertEquals(k1.hashCode(), k2.hashCode());
+        assertTrue(k3.compareTo(k1) < 0);
+        assertNull(k3.get(0));
+    }
+}
@@ -0,0 +1,216 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecompressionTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] csv(int lines) {
+        Random random = new Random(lines);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            content.append("book").append(random.nextInt(100)).append(',').append(i).append(',')
+                    .append(random.nextInt(100_000) / 100.0).append(",2024-01-01,").append("note".repeat(random.nextInt(5)))
+                    .append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes data as BGZF blocks of at most blockSize bytes each, then the empty end-of-file block.
+     */
+    static byte[] bgzf(byte[] data, int blockSize) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int from = 0; from < data.length; from += blockSize) {
+            writeBlock(out, Arrays.copyOfRange(data, from, Math.min(data.length, from + blockSize)));
+        }
+        writeBlock(out, new byte[0]);
+        return out.toByteArray();
+    }
+
+    private static void writeBlock(ByteArrayOutputStream out, byte[] chunk) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(chunk);
+        deflater.finish();
+        byte[] compressed = new byte[chunk.length + 1024];
+        int length = deflater.deflate(compressed);
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(chunk);
+        int blockSize = 12 + 6 + length + 8;
+        out.writeBytes(new byte[]{0x1F, (byte) 0x8B, 8, 4, 0, 0, 0, 0, 0, (byte) 0xFF, 6, 0, 'B', 'C', 2, 0,
+                (byte) (blockSize - 1), (byte) ((blockSize - 1) >>> 8)});
+        out.write(compressed, 0, length);
+        writeInt(out, crc.getValue());
+        writeInt(out, chunk.length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, long value) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[7_777];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    void bgzfBlocksInflateInOrderWithAnyNumberOfThreads() throws IOException {
+        byte[] data = csv(40_000);
+        byte[] compressed = bgzf(data, 60_000);
+        for (int threads : List.of(1, 3, 8)) {
+            DiffMetrics metrics = new DiffMetrics();
+            assertArrayEquals(data, readAll(new BgzfInputStream(new ByteArrayInputStream(compressed), threads, metrics)));
+            assertEquals(data.length, metrics.getInflatedBytes().get());
+            assertEquals(compressed.length, metrics.getCompressedBytes().get());
+            assertTrue(metrics.getInflateNanos().get() > 0);
+        }
+    }
+
+    @Test
+    void pipelinedGzipReadsConcatenatedMembers() throws IOException {
+        byte[] data = csv(30_000);
+        ByteArrayOutputStream twice = new ByteArrayOutputStream();
+        twice.writeBytes(gzip(data));
+        twice.writeBytes(gzip(data));
+        DiffMetrics metrics = new DiffMetrics();
+        byte[] read = readAll(new PipelinedGzipInputStream(new ByteArrayInputStream(twice.toByteArray()), metrics));
+        assertEquals(2 * data.length, read.length);
+        assertArrayEquals(data, Arrays.copyOfRange(read, data.length, read.length));
+        assertEquals(2L * data.length, metrics.getInflatedBytes().get());
+        assertEquals(twice.size(), metrics.getCompressedBytes().get());
+        assertTrue(metrics.getInflateNanos().get() > 0);
+
+        assertEquals(0, readAll(new PipelinedGzipInputStream(new ByteArrayInputStream(gzip(new byte[0])), null)).length);
+    }
+
+    @Test
+    void inflateTimeLeavesOutWaitingForASlowReader() throws IOException, InterruptedException {
+        byte[] data = csv(150_000);
+        DiffMetrics metrics = new DiffMetrics();
+        long start = System.nanoTime();
+        long read = 0;
+        try (InputStream in = new PipelinedGzipInputStream(new ByteArrayInputStream(gzip(data)), metrics)) {
+            byte[] buffer = new byte[1 << 16];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                read += n;
+                Thread.sleep(5);
+            }
+        }
+        long wall = System.nanoTime() - start;
+        assertEquals(data.length, read);
+        assertEquals(data.length, metrics.getInflatedBytes().get());
+        assertTrue(metrics.getInflateNanos().get() < wall / 4,
+                () -> "inflate " + metrics.getInflateNanos().get() + "ns of " + wall + "ns");
+    }
+
+    @Test
+    void corruptOrTruncatedInputFails() throws IOException {
+        byte[] compressed = bgzf(csv(5_000), 60_000);
+        byte[] badCrc = compressed.clone();
+        int firstBlockSize = (badCrc[16] & 0xFF | (badCrc[17] & 0xFF) << 8) + 1;
+        badCrc[firstBlockSize - 8] ^= 1;
+        assertThrows(ZipException.class, () -> readAll(new BgzfInputStream(new ByteArrayInputStream(badCrc), 2, null)));
+
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length - 40);
+        assertThrows(EOFException.class, () -> readAll(new BgzfInputStream(new ByteArrayInputStream(truncated), 2, null)));
+
+        byte[] plainGzip = gzip(csv(10));
+        assertThrows(ZipException.class, () -> readAll(new BgzfInputStream(new ByteArrayInputStream(plainGzip), 2, null)));
+
+        byte[] truncatedGzip = Arrays.copyOf(gzip(csv(5_000)), 1_000);
+        assertThrows(IOException.class, () -> readAll(new PipelinedGzipInputStream(new ByteArrayInputStream(truncatedGzip), null)));
+    }
+
+    @Test
+    void openTellsTheFormatFromTheFirstBytes() throws IOException {
+        byte[] data = csv(1_000);
+        Path plain = Files.write(tempDir.resolve("plain.csv"), data);
+        Path gz = Files.write(tempDir.resolve("plain.csv.gz"), gzip(data));
+        Path bgz = Files.write(tempDir.resolve("no-extension"), bgzf(data, 10_000));
+        Path tiny = Files.write(tempDir.resolve("tiny"), new byte[]{0x1F});
+
+        try (InputStream in = Decompression.open(gz, 2, null)) {
+            assertInstanceOf(PipelinedGzipInputStream.class, in);
+        }
+        try (InputStream in = Decompression.open(bgz, 2, null)) {
+            assertInstanceOf(BgzfInputStream.class, in);
+        }
+        for (Path file : List.of(plain, gz, bgz)) {
+            assertArrayEquals(data, readAll(Decompression.open(file, 2, null)), file.toString());
+        }
+        assertArrayEquals(new byte[]{0x1F}, readAll(Decompression.open(tiny, 2, null)));
+    }
+
+    @Test
+    void fileSourcesReadCompressedFiles() throws IOException {
+        byte[] data = csv(60_000);
+        Path plain = Files.write(tempDir.resolve("plain.csv"), data);
+        Path gz = Files.write(tempDir.resolve("data.csv.gz"), gzip(data));
+        Path bgz = Files.write(tempDir.resolve("data.csv.bgz"), bgzf(data, 65_000));
+        CsvSchema schema = CsvSchema.create()
+                .withColumn("book", CsvSchema.Type.STRING)
+                .withColumn("id", CsvSchema.Type.LONG)
+                .withColumn("price", CsvSchema.Type.DECIMAL)
+                .withColumn("date", CsvSchema.Type.DATE)
+                .withColumn("note", CsvSchema.Type.STRING)
+                .withKey("id");
+
+        List<String> expected = new ArrayList<>();
+        new CsvSource(plain, schema).forEach(record -> expected.add(record.toString()));
+        assertEquals(60_000, expected.size());
+        for (Path file : List.of(plain, gz, bgz)) {
+            DiffMetrics metrics = new DiffMetrics();
+            List<String> read = new ArrayList<>();
+            CsvSource.decompressing(file, schema, 4, metrics).forEach(record -> read.add(record.toString()));
+            assertEquals(expected, read, file.toString());
+            assertEquals(file == plain ? 0 : data.length, metrics.getInflatedBytes().get());
+
+            List<Long> ids = new ArrayList<>();
+            MappedFileSource.<Long>decompressing(file, ',', record -> record.longField(1), 4, null)
+                    .forEach(record -> ids.add(record.getId()));
+            assertEquals(60_000, ids.size());
+            assertEquals(59_999L, ids.get(ids.size() - 1));
+        }
+    }
+}
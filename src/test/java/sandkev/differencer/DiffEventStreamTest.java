@@ -0,0 +1,110 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class DiffEventStreamTest {
+
+    private final List<Row> expected = new ArrayList<>();
+    private final List<Row> actual = new ArrayList<>();
+
+    DiffEventStreamTest() {
+        for (long id = 0; id < 2_000; id++) {
+            if (id % 5 != 0) expected.add(new Row(id, "v" + id));
+            if (id % 7 != 0) actual.add(new Row(id, id % 3 == 0 ? "changed" : "v" + id));
+        }
+    }
+
+    private List<DiffEvent<Row,Long>> pushed() {
+        List<DiffEvent<Row,Long>> events = new ArrayList<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(expected, actual, new ComparisonResultHandler<>() {
+            @Override public void onEqual(Long id) { events.add(new DiffEvent<>(ComparisonResult.Equal, id, null, null)); }
+            @Override public void onApproximatelyEqual(Long id, DiffSummary diff) { events.add(new DiffEvent<>(ComparisonResult.ApproximatelyEqual, id, null, diff)); }
+            @Override public void onAdded(Long id, Row added) { events.add(new DiffEvent<>(ComparisonResult.Added, id, added, null)); }
+            @Override public void onDropped(Long id, Row dropped) { events.add(new DiffEvent<>(ComparisonResult.Dropped, id, dropped, null)); }
+            @Override public void onChanged(Long id, DiffSummary diff) { events.add(new DiffEvent<>(ComparisonResult.Changed, id, null, diff)); }
+        });
+        return events;
+    }
+
+    @Test
+    void pulledEventsMatchPushedEvents() {
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR);
+        try (Stream<DiffEvent<Row,Long>> stream = differencer.stream(expected, actual)) {
+            assertEquals(pushed(), stream.collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    void mergeOnlyAdvancesAsEventsArePulled() {
+        AtomicInteger read = new AtomicInteger();
+        Iterable<Row> counted = () -> new Iterator<>() {
+            private final Iterator<Row> it = expected.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public Row next() {
+                read.incrementAndGet();
+                return it.next();
+            }
+        };
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR);
+
+        try (var events = differencer.iterator(counted, actual, false)) {
+            assertEquals(0, read.get());
+            for (int i = 0; i < 10; i++) {
+                events.next();
+            }
+            assertTrue(read.get() <= 11, "read " + read.get() + " records for 10 events");
+        }
+    }
+
+    @Test
+    void flyweightModeReusesOneEvent() {
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR);
+        List<DiffEvent<Row,Long>> copies = new ArrayList<>();
+        DiffEvent<Row,Long> first = null;
+        try (var events = differencer.iterator(expected, actual, true)) {
+            while (events.hasNext()) {
+                DiffEvent<Row,Long> event = events.next();
+                if (first == null) first = event;
+                assertSame(first, event);
+                copies.add(event.copy());
+            }
+        }
+        assertEquals(pushed(), copies);
+    }
+
+    @Test
+    void defaultHandoffStreamMatchesAndStopsWhenClosed() {
+        var hashJoin = new HashJoinDifferencer<Row,Long>(DATA_COMPARATOR);
+        var stats = new ComparisonResultStats<Row,Long>();
+        try (Stream<DiffEvent<Row,Long>> stream = hashJoin.stream(expected, actual)) {
+            stream.forEach(event -> event.replayTo(stats));
+        }
+        var regular = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).diffAndCollect(expected, actual);
+        assertEquals(regular.getEqualCount().get(), stats.getEqualCount().get());
+        assertEquals(regular.getChangedKeys(), stats.getChangedKeys());
+        assertEquals(regular.getAddedKeys(), stats.getAddedKeys());
+        assertEquals(regular.getDroppedKeys(), stats.getDroppedKeys());
+
+        try (Stream<DiffEvent<Row,Long>> stream = DiffEvents.handoff(hashJoin, expected, actual, 4)) {
+            assertEquals(5, stream.limit(5).count());
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateKeysTest {
+
+    record Row(long id, String name, String value) implements Identifiable<Long> {
+        @Override
+        public Long getId() {
+            return id;
+        }
+    }
+
+    private static final Comparator<Row> KEY_COMPARATOR = Comparator.comparingLong(Row::id);
+    private static final Comparator<Row> NAME_ORDER = Comparator.comparing(Row::name);
+
+    private static final DiffComparator<Row> DATA_COMPARATOR = (o1, o2) -> {
+        DiffSummary diffs = new DiffSummary();
+        if (!o1.value().equals(o2.value())) {
+            diffs.addDiff("value", o2.value(), o1.value(), ComparisonResult.Changed);
+        }
+        return diffs;
+    };
+
+    private static final RecordSerializer<Row> SERIALIZER = new RecordSerializer<>() {
+        @Override
+        public void write(Row record, DataOutput out) throws IOException {
+            out.writeLong(record.id());
+            out.writeUTF(record.name());
+            out.writeUTF(record.value());
+        }
+
+        @Override
+        public Row read(DataInput in) throws IOException {
+            return new Row(in.readLong(), in.readUTF(), in.readUTF());
+        }
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void equalPairsInAGroupAreComparedOnce() {
+        var expected = List.of(new Row(1, "n", "a"), new Row(1, "n", "b"));
+        var actual   = List.of(new Row(1, "n", "b"), new Row(1, "n", "a"));
+        AtomicInteger comparisons = new AtomicInteger();
+        DiffComparator<Row> counting = (o1, o2) -> {
+            comparisons.incrementAndGet();
+            return DATA_COMPARATOR.compare(o1, o2);
+        };
+
+        List<String> events = new ArrayList<>();
+        RegularDifferencer.<Row,Long>withValidation(KEY_COMPARATOR, counting)
+                .withDuplicateKeys(SERIALIZER)
+                .computeDiff(expected, actual, record(events));
+
+        assertEquals(List.of("Equal:1", "Equal:1"), events);
+        // a against b, a against a, b against b; neither equal pair again when reported
+        assertEquals(3, comparisons.get());
+    }
+
+    @Test
+    void groupsAreMatchedAsBagsByTheDataComparator() {
+        var expected = List.of(new Row(1, "n", "a"), new Row(1, "n", "b"),
+                               new Row(2, "n", "x"),
+                               new Row(3, "n", "p"), new Row(3, "n", "q"));
+        var actual   = List.of(new Row(1, "n", "b"), new Row(1, "n", "c"), new Row(1, "n", "d"),
+                               new Row(2, "n", "x"));
+
+        var differencer = RegularDifferencer.<Row,Long>withValidation(KEY_COMPARATOR, DATA_COMPARATOR)
+                .withDuplicateKeys(SERIALIZER);
+        List<String> events = new ArrayList<>();
+        differencer.computeDiff(expected, actual, record(events));
+
+        assertEquals(List.of("Equal:1", "Changed:1:a>c", "Added:1:d", "Equal:2", "Dropped:3:p", "Dropped:3:q"), events);
+        assertEquals(2, differencer.getMetrics().getDuplicateKeyCount().get());
+        assertEquals(0, differencer.getMetrics().getSpilledGroupCount().get());
+    }
+
+    @Test
+    void groupOrderPairsRecordsThatTieOnIt() {
+        var expected = List.of(new Row(1, "b", "1"), new Row(1, "a", "1"), new Row(1, "c", "1"));
+        var actual   = List.of(new Row(1, "c", "2"), new Row(1, "a", "1"), new Row(1, "d", "1"));
+
+        List<String> events = new ArrayList<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR)
+                .withDuplicateKeys(NAME_ORDER, 16, SERIALIZER, tempDir)
+                .computeDiff(expected, actual, record(events));
+
+        assertEquals(List.of("Equal:1", "Dropped:1:1", "Changed:1:1>2", "Added:1:1"), events);
+    }
+
+    @Test
+    void largeGroupsSpillAndGiveTheSameResult() throws IOException {
+        List<Row> expected = new ArrayList<>();
+        List<Row> actual = new ArrayList<>();
+        expected.add(new Row(0, "solo", "v"));
+        for (int i = 0; i < 500; i++) {
+            if (i % 7 != 0) expected.add(new Row(5, "n" + (i * 37 % 500), "v"));
+            if (i % 11 != 0) actual.add(new Row(5, "n" + (i * 53 % 500), i % 13 == 0 ? "w" : "v"));
+        }
+        actual.add(new Row(9, "solo", "v"));
+
+        List<String> inMemory = new ArrayList<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR)
+                .withDuplicateKeys(NAME_ORDER, 10_000, SERIALIZER, tempDir)
+                .computeDiff(expected, actual, record(inMemory));
+
+        var spilling = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR)
+                .withDuplicateKeys(NAME_ORDER, 16, SERIALIZER, tempDir);
+        List<String> spilled = new ArrayList<>();
+        spilling.computeDiff(expected, actual, record(spilled));
+
+        assertEquals(inMemory, spilled);
+        assertEquals(1, spilling.getMetrics().getSpilledGroupCount().get());
+        assertTrue(inMemory.contains("Dropped:0:v"));
+        assertTrue(inMemory.contains("Added:9:v"));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count(), "spill files should be deleted");
+        }
+    }
+
+    @Test
+    void spilledGroupsWithoutAGroupOrderArePairedInArrivalOrder() {
+        List<Row> expected = new ArrayList<>();
+        List<Row> actual = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            expected.add(new Row(1, "n", "e" + i));
+        }
+        for (int i = 0; i < 12; i++) {
+            actual.add(new Row(1, "n", i < 10 ? "e" + i : "extra"));
+        }
+
+        List<String> events = new ArrayList<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR)
+                .withDuplicateKeys(null, 4, SERIALIZER, tempDir)
+                .computeDiff(expected, actual, record(events));
+
+        assertEquals(12, events.size());
+        assertEquals(10, events.stream().filter(e -> e.startsWith("Equal:")).count());
+        assertEquals(List.of("Added:1:extra", "Added:1:extra"), events.subList(10, 12));
+    }
+
+    @Test
+    void validationStillChecksTheOrder() {
+        var differencer = RegularDifferencer.<Row,Long>withValidation(KEY_COMPARATOR, DATA_COMPARATOR)
+                .withDuplicateKeys(SERIALIZER);
+        var unordered = List.of(new Row(2, "n", "a"), new Row(2, "n", "a"), new Row(1, "n", "a"));
+        var ex = assertThrows(IllegalArgumentException.class,
+                () -> differencer.computeDiff(unordered, List.of(), record(new ArrayList<>())));
+        assertEquals("Out of order: key <1> should come before <2>", ex.getMessage());
+    }
+
+    @Test
+    void parallelComparisonAndStreamsGiveTheSameEvents() {
+        var expected = List.of(new Row(1, "n", "a"), new Row(1, "n", "b"), new Row(2, "n", "x"), new Row(2, "n", "y"));
+        var actual   = List.of(new Row(1, "n", "b"), new Row(2, "n", "z"), new Row(3, "n", "q"));
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).withDuplicateKeys(SERIALIZER);
+
+        List<String> direct = new ArrayList<>();
+        differencer.computeDiff(expected, actual, record(direct));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<String> parallel = new ArrayList<>();
+            differencer.withParallelComparison(executor, 2, 2).computeDiff(expected, actual, record(parallel));
+            assertEquals(direct, parallel);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> streamed = new ArrayList<>();
+        try (var events = differencer.stream(expected, actual)) {
+            events.forEach(event -> event.replayTo(record(streamed)));
+        }
+        assertEquals(direct, streamed);
+    }
+
+    @Test
+    void cannotBeCombinedWithCheckpoints() {
+        var checkpointer = new Checkpointer<Row,Long>(tempDir.resolve("diff.ckpt"), SERIALIZER,
+                RecordSerializer.javaSerialization(), 100, Duration.ZERO);
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR);
+        assertThrows(IllegalStateException.class,
+                () -> differencer.withCheckpoints(checkpointer).withDuplicateKeys(SERIALIZER));
+        assertThrows(IllegalStateException.class,
+                () -> differencer.withDuplicateKeys(SERIALIZER).withCheckpoints(checkpointer));
+    }
+
+    private static ComparisonResultHandler<Row,Long> record(List<String> events) {
+        return new ComparisonResultHandler<>() {
+            @Override
+            public void onEqual(Long id) {
+                events.add("Equal:" + id);
+            }
+
+            @Override
+            public void onApproximatelyEqual(Long id, DiffSummary diff) {
+                events.add("ApproximatelyEqual:" + id);
+            }
+
+            @Override
+            public void onAdded(Long id, Row added) {
+                events.add("Added:" + id + ":" + added.value());
+            }
+
+            @Override
+            public void onDropped(Long id, Row dropped) {
+                events.add("Dropped:" + id + ":" + dropped.value());
+            }
+
+            @Override
+            public void onChanged(Long id, DiffSummary diff) {
+                Diff value = diff.getDiffsByType().get(ComparisonResult.Changed).get("value").get(0);
+                events.add("Changed:" + id + ":" + value.getExpectedValue() + ">" + value.getActualValue());
+            }
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package sandkev.differencer;
+
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.Test;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.FieldDiffComparator;
+import sandkev.differencer.api.Identifiable;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FieldDiffComparatorTest {
+
+    record Row(String id, long amount, String value) implements Identifiable<String> {
+        @Override
+        public String getId() {
+            return id;
+        }
+    }
+
+    private static final Comparator<Row> KEY_COMPARATOR = Comparator.comparing(Row::id);
+
+    private static final FieldDiffComparator<Row> DATA_COMPARATOR = (o1, o2, sink) -> {
+        if (o1.amount() != o2.amount()) {
+            sink.addDiff("amount", o2.amount(), o1.amount(),
+                    Math.abs(o1.amount() - o2.amount()) <= 1 ? ComparisonResult.ApproximatelyEqual : ComparisonResult.Changed);
+        }
+        if (!o1.value().equals(o2.value())) {
+            sink.addDiff("value", o2.value(), o1.value(), ComparisonResult.Changed);
+        }
+    };
+
+    @Test
+    void defaultCompareBuildsTheSameSummaryAsTheSink() {
+        Row e = new Row("a", 10, "x");
+        Row a = new Row("a", 11, "y");
+
+        DiffSummary expected = new DiffSummary();
+        expected.addDiff("amount", 10L, 11L, ComparisonResult.ApproximatelyEqual);
+        expected.addDiff("value", "x", "y", ComparisonResult.Changed);
+
+        assertEquals(expected, DATA_COMPARATOR.compare(a, e));
+        assertEquals(expected, FieldDiffBuffer.forCurrentThread().compare(DATA_COMPARATOR, a, e));
+        assertNull(FieldDiffBuffer.forCurrentThread().compare(DATA_COMPARATOR, e, e));
+    }
+
+    @Test
+    void differencerReportsOutcomesThroughTheBuffer() {
+        var expected = List.of(new Row("a", 1, "x"), new Row("b", 1, "x"), new Row("c", 1, "x"), new Row("d", 1, "x"));
+        var actual   = List.of(new Row("a", 1, "x"), new Row("b", 2, "x"), new Row("c", 1, "y"), new Row("e", 1, "x"));
+        var stats = new ComparisonResultStats<Row,String>();
+
+        new RegularDifferencer<Row,String>(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(expected, actual, stats);
+
+        assertEquals(1, stats.getEqualCount().get());
+        assertEquals(1, stats.getApproximatelyEqualCount().get());
+        assertEquals(Set.of("c"), stats.getChangedKeys());
+        assertEquals(Set.of("e"), stats.getAddedKeys());
+        assertEquals(Set.of("d"), stats.getDroppedKeys());
+    }
+
+    @Test
+    void equalRowsAllocateAlmostNothing() {
+        var threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof ThreadMXBean t && t.isThreadAllocatedMemoryEnabled(),
+                "per-thread allocation counting is not available");
+        ThreadMXBean counter = (ThreadMXBean) threads;
+
+        int rows = 200_000;
+        List<Row> expected = new ArrayList<>(rows);
+        List<Row> actual = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            String id = String.format("k%07d", i);
+            expected.add(new Row(id, i, "same"));
+            actual.add(new Row(id, i, "same"));
+        }
+        var differencer = new RegularDifferencer<Row,String>(KEY_COMPARATOR, DATA_COMPARATOR);
+        var equal = new CountingHandler();
+
+        long bytes = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long before = counter.getCurrentThreadAllocatedBytes();
+            differencer.computeDiff(expected, actual, equal);
+            bytes = Math.min(bytes, counter.getCurrentThreadAllocatedBytes() - before);
+        }
+
+        assertEquals(5L * rows, equal.count);
+        assertTrue(bytes < rows, "expected well under a byte per row but allocated " + bytes + " bytes");
+    }
+
+    private static class CountingHandler implements ComparisonResultHandler<Row,String> {
+        long count;
+
+        @Override public void onEqual(String id) { count++; }
+        @Override public void onApproximatelyEqual(String id, DiffSummary diff) { fail(id); }
+        @Override public void onAdded(String id, Row added) { fail(id); }
+        @Override public void onDropped(String id, Row dropped) { fail(id); }
+        @Override public void onChanged(String id, DiffSummary diff) { fail(id); }
+    }
+}
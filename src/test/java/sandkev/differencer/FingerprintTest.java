@@ -0,0 +1,91 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.RecordSerializer;
+import sandkev.differencer.api.RowFingerprinter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class FingerprintTest {
+
+    private static final RowFingerprinter<Row> FINGERPRINTER =
+            row -> Fingerprints.finish(Fingerprints.add(Fingerprints.SEED, row.value()));
+
+    private final AtomicInteger comparisons = new AtomicInteger();
+
+    private final DiffComparator<Row> dataComparator = (o1, o2) -> {
+        comparisons.incrementAndGet();
+        DiffSummary diffs = new DiffSummary();
+        if (!o1.value().equals(o2.value())) {
+            diffs.addDiff("value", o2.value(), o1.value(), ComparisonResult.Changed);
+        }
+        return diffs;
+    };
+
+    @Test
+    void comparatorOnlyRunsOnFingerprintMismatch() {
+        List<Row> expected = new ArrayList<>();
+        List<Row> actual = new ArrayList<>();
+        for (long id = 0; id < 1_000; id++) {
+            expected.add(new Row(id, "v" + id));
+            actual.add(new Row(id, id % 10 == 0 ? "changed" + id : "v" + id));
+        }
+
+        var stats = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, dataComparator)
+                .withFingerprinter(FINGERPRINTER)
+                .diffAndCollect(expected, actual);
+
+        assertEquals(900, stats.getEqualCount().get());
+        assertEquals(100, stats.getChangedCount().get());
+        assertEquals(100, comparisons.get());
+    }
+
+    @Test
+    void storedFingerprintsSurviveSerialization() throws IOException {
+        var serializer = FingerprintedRecord.<Row,Long>serializer(SERIALIZER);
+        List<FingerprintedRecord<Row,Long>> snapshot = new ArrayList<>();
+        for (var record : FingerprintedRecord.<Row,Long>fingerprintAll(List.of(new Row(1, "a"), new Row(2, "b")), FINGERPRINTER)) {
+            snapshot.add(roundTrip(serializer, record));
+        }
+        var current = FingerprintedRecord.<Row,Long>fingerprintAll(List.of(new Row(1, "a"), new Row(2, "x"), new Row(3, "c")), FINGERPRINTER);
+
+        var stats = new RegularDifferencer<FingerprintedRecord<Row,Long>,Long>(
+                FingerprintedRecord.comparingKeys(KEY_COMPARATOR),
+                FingerprintedRecord.comparingData(dataComparator))
+                .withFingerprinter(RowFingerprinter.precomputed())
+                .diffAndCollect(snapshot, current);
+
+        assertEquals(FINGERPRINTER.fingerprint(new Row(1, "a")), snapshot.get(0).getFingerprint());
+        assertEquals(1, stats.getEqualCount().get());
+        assertEquals(Set.of(2L), stats.getChangedKeys());
+        assertEquals(Set.of(3L), stats.getAddedKeys());
+        assertEquals(1, comparisons.get());
+    }
+
+    @Test
+    void fingerprintsDependOnFieldValuesAndOrder() {
+        assertEquals(Fingerprints.of("ab", 1L, null), Fingerprints.of("ab", 1L, null));
+        assertNotEquals(Fingerprints.of("ab", "c"), Fingerprints.of("a", "bc"));
+        assertNotEquals(Fingerprints.of(1L, 2L), Fingerprints.of(2L, 1L));
+        assertNotEquals(Fingerprints.of("x"), Fingerprints.of("x", null));
+    }
+
+    private static <T> T roundTrip(RecordSerializer<T> serializer, T record) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        serializer.write(record, new DataOutputStream(bytes));
+        return serializer.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
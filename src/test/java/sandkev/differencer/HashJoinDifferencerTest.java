@@ -0,0 +1,74 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import sandkev.differencer.api.DiffComparator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class HashJoinDifferencerTest {
+
+    @ParameterizedTest
+    @EnumSource(HashJoinDifferencer.BuildSide.class)
+    void matchesSortThenMergeForEveryBuildSide(HashJoinDifferencer.BuildSide buildSide) {
+        var sides = shuffledSides(20_000, 1);
+        // plain Iterables, so the table has to grow from its default size
+        Iterable<Row> expected = () -> sides.get(0).iterator();
+        Iterable<Row> actual   = () -> sides.get(1).iterator();
+
+        ComparisonResultStats<Row,Long> stats = new ComparisonResultStats<>();
+        new HashJoinDifferencer<Row,Long>(DATA_COMPARATOR, buildSide).computeDiff(expected, actual, stats);
+
+        List<Row> e = new ArrayList<>(sides.get(0)), a = new ArrayList<>(sides.get(1));
+        e.sort(KEY_COMPARATOR);
+        a.sort(KEY_COMPARATOR);
+        ComparisonResultStats<Row,Long> reference = new ComparisonResultStats<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(e, a, reference);
+
+        assertAll(
+                () -> assertEquals(reference.getEqualCount().get(), stats.getEqualCount().get()),
+                () -> assertEquals(reference.getChangedKeys(),      stats.getChangedKeys()),
+                () -> assertEquals(reference.getAddedKeys(),        stats.getAddedKeys()),
+                () -> assertEquals(reference.getDroppedKeys(),      stats.getDroppedKeys())
+        );
+    }
+
+    @Test
+    void comparesActualAgainstExpectedWhicheverSideIsBuilt() {
+        var expected = List.of(new Row(1, "old"));
+        var actual   = List.of(new Row(1, "new"), new Row(2, "x"), new Row(3, "y"));
+        List<Object> seen = new ArrayList<>();
+        DiffComparator<Row> recording = (o1, o2) -> {
+            seen.add(o1.value() + "->" + o2.value());
+            return DATA_COMPARATOR.compare(o1, o2);
+        };
+
+        new HashJoinDifferencer<Row,Long>(recording).diffAndCollect(expected, actual);
+
+        assertEquals(List.of("new->old"), seen, "dataComparator should be called as compare(actual, expected)");
+    }
+
+    @Test
+    void throwsOnDuplicateInBuildSide() {
+        var dupes = List.of(new Row(1, "a"), new Row(1, "b"));
+        var differencer = new HashJoinDifferencer<Row,Long>(DATA_COMPARATOR, HashJoinDifferencer.BuildSide.EXPECTED);
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> differencer.diffAndCollect(dupes, List.of()));
+        assertTrue(ex.getMessage().contains("Duplicate key detected: <1>"));
+    }
+
+    @Test
+    void throwsOnDuplicateInProbeSide() {
+        var dupes = List.of(new Row(1, "a"), new Row(1, "b"));
+        var differencer = new HashJoinDifferencer<Row,Long>(DATA_COMPARATOR, HashJoinDifferencer.BuildSide.EXPECTED);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> differencer.diffAndCollect(List.of(new Row(1, "a")), dupes));
+    }
+}
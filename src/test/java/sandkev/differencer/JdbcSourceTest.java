@@ -0,0 +1,222 @@
+package sandkev.differencer;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class JdbcSourceTest {
+
+    private static final JdbcSource.RowMapper<Row> MAPPER = row -> new Row(row.getLong("id"), row.getString("val"));
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private JdbcDataSource dataSource;
+    private List<Row> rows;
+
+    @BeforeEach
+    void createTable() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:jdbcSource" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+        rows = new ArrayList<>();
+        for (long id = -500; id < 9_500; id += 1 + (id & 1)) {
+            rows.add(new Row(id, "v" + id));
+        }
+        List<Row> shuffled = new ArrayList<>(rows);
+        Collections.shuffle(shuffled, new Random(1));
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE row_table (id BIGINT PRIMARY KEY, val VARCHAR(20))");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO row_table VALUES (?, ?)")) {
+                for (Row row : shuffled) {
+                    insert.setLong(1, row.id());
+                    insert.setString(2, row.value());
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private JdbcSource<Row> source() {
+        return new JdbcSource<>(dataSource, "SELECT id, val FROM row_table", MAPPER, "id");
+    }
+
+    private static List<Row> read(Iterable<Row> source) {
+        List<Row> read = new ArrayList<>();
+        source.forEach(read::add);
+        return read;
+    }
+
+    @Test
+    void streamsRowsInKeyOrder() {
+        assertEquals(rows, read(source()));
+        assertEquals(rows, read(source().withFetchSize(7)));
+    }
+
+    @Test
+    void rangesAreQueriedConcurrentlyAndStitchedInOrder() {
+        for (int ranges : List.of(1, 2, 5, 16)) {
+            JdbcSource<Row> source = source().withRanges(ranges).withFetchSize(50);
+            assertEquals(ranges, source.ranges().size());
+            assertEquals(rows, read(source), ranges + " ranges");
+        }
+    }
+
+    @Test
+    void splitPointsCutTheKeySpace() {
+        List<JdbcSource<Row>> ranges = source().withSplitPoints(List.of(0L, 1_000L, 20_000L)).ranges();
+        assertEquals(4, ranges.size());
+        assertTrue(read(ranges.get(0)).stream().allMatch(row -> row.id() < 0));
+        assertTrue(read(ranges.get(1)).stream().allMatch(row -> row.id() >= 0 && row.id() < 1_000));
+        assertTrue(read(ranges.get(3)).isEmpty());
+        List<Row> all = new ArrayList<>();
+        ranges.forEach(range -> all.addAll(read(range)));
+        assertEquals(rows, all);
+    }
+
+    @Test
+    void splittingARangeStaysWithinIt() {
+        List<JdbcSource<Row>> halves = source().withSplitPoints(List.of(1_000L)).ranges();
+        List<Row> below = rows.stream().filter(row -> row.id() < 1_000).toList();
+        List<Row> above = rows.stream().filter(row -> row.id() >= 1_000).toList();
+
+        List<JdbcSource<Row>> lower = halves.get(0).withSplitPoints(List.of(0, 5_000L)).ranges();
+        assertEquals(2, lower.size(), "the point past the range's upper bound is left out");
+        List<Row> all = new ArrayList<>();
+        lower.forEach(range -> all.addAll(read(range)));
+        assertEquals(below, all);
+
+        JdbcSource<Row> upper = halves.get(1).withRanges(4);
+        assertEquals(4, upper.ranges().size());
+        assertTrue(read(upper.ranges().get(0)).stream().allMatch(row -> row.id() >= 1_000));
+        assertEquals(above, read(upper));
+
+        assertThrows(IllegalArgumentException.class, () -> halves.get(1).withSplitPoints(List.of("x")).ranges());
+    }
+
+    @Test
+    void emptyTableGivesNoRows() throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM row_table");
+        }
+        assertEquals(List.of(), read(source()));
+        assertEquals(List.of(), read(source().withRanges(4)));
+    }
+
+    @Test
+    void closingEarlyReleasesTheConnections() throws SQLException {
+        try (CloseableIterator<Row> it = source().withRanges(4).withFetchSize(10).iterator()) {
+            assertEquals(rows.get(0), it.next());
+        }
+        try (CloseableIterator<Row> it = source().iterator()) {
+            assertEquals(rows.get(0), it.next());
+        }
+        // the table can still be dropped, so no cursor is holding it
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE row_table");
+        }
+    }
+
+    /**
+     * Wraps the data source so that open counts the connections taken and not yet closed.
+     */
+    private DataSource counting(AtomicInteger open) {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(method, dataSource, args);
+                    if (!method.getName().equals("getConnection")) {
+                        return result;
+                    }
+                    open.incrementAndGet();
+                    Connection connection = (Connection) result;
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                            (p, m, a) -> {
+                                if (m.getName().equals("close") && !connection.isClosed()) {
+                                    open.decrementAndGet();
+                                }
+                                return invoke(m, connection, a);
+                            });
+                });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test
+    void anAbortedDiffReleasesTheConnection() throws InterruptedException {
+        // the database orders by id, but the differencer by the value's text, as with a collation mismatch
+        Comparator<Row> byValue = Comparator.comparing(Row::value);
+        List<Row> expected = rows.stream().sorted(byValue).limit(10).toList();
+        AtomicInteger open = new AtomicInteger();
+        JdbcSource<Row> source = new JdbcSource<>(counting(open), "SELECT id, val FROM row_table", MAPPER, "id");
+        RegularDifferencer<Row,Long> differencer = new RegularDifferencer<>(byValue, DATA_COMPARATOR, true);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> differencer.computeDiff(expected, source, new ComparisonResultStats<>()));
+        assertEquals(0, open.get());
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            try (var events = differencer.stream(expected, source)) {
+                events.forEach(event -> {});
+            }
+        });
+        assertEquals(0, open.get());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> differencer.withPrefetch(16).computeDiff(expected, source, new ComparisonResultStats<>()));
+        // the reader thread releases it once it sees the failure
+        for (int i = 0; i < 500 && open.get() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, open.get());
+    }
+
+    @Test
+    void failedQueriesAreReported() {
+        JdbcSource<Row> bad = new JdbcSource<>(dataSource, "SELECT id, val FROM no_such_table", MAPPER, "id");
+        assertThrows(IllegalStateException.class, () -> read(bad));
+        assertThrows(IllegalStateException.class, () -> read(bad.withRanges(3)));
+        assertThrows(IllegalStateException.class, () -> read(bad.withSplitPoints(List.of(1L, 2L))));
+    }
+
+    @Test
+    void diffsATableAgainstAList() {
+        List<Row> expected = new ArrayList<>(rows);
+        expected.remove(10);
+        expected.set(20, new Row(expected.get(20).id(), "changed"));
+        expected.add(new Row(100_000, "extra"));
+
+        ComparisonResultStats<Row,Long> sequential = new ComparisonResultStats<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, true).computeDiff(expected, source(), sequential);
+        ComparisonResultStats<Row,Long> ranged = new ComparisonResultStats<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, true)
+                .computeDiff(expected, source().withRanges(4), ranged);
+
+        assertEquals(sequential.toString(), ranged.toString());
+        assertTrue(sequential.toString().contains("addedCount=1, droppedCount=1, changedCount=1"), sequential::toString);
+    }
+}
@@ -0,0 +1,212 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.text.Collator;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyEncoderTest {
+
+    record Trade(long id, String book, BigDecimal price, Instant time, int version) implements Identifiable<Long> {
+        @Override
+        public Long getId() {
+            return id;
+        }
+    }
+
+    private static final KeyEncoder<Trade> ENCODER = KeyEncoder.<Trade>create()
+            .thenString(Trade::book)
+            .thenDecimal(Trade::price)
+            .thenTimestamp(Trade::time)
+            .thenInt(Trade::version)
+            .thenLong(Trade::id);
+
+    private static final Comparator<Trade> KEY_COMPARATOR =
+            Comparator.comparing(Trade::book, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+                    .thenComparing(Trade::price, Comparator.nullsFirst(Comparator.<BigDecimal>naturalOrder()))
+                    .thenComparing(Trade::time, Comparator.nullsFirst(Comparator.<Instant>naturalOrder()))
+                    .thenComparingInt(Trade::version)
+                    .thenComparingLong(Trade::id);
+
+    private static final DiffComparator<Trade> DATA_COMPARATOR = (o1, o2) -> {
+        DiffSummary diffs = new DiffSummary();
+        if (o1.version() != o2.version()) {
+            diffs.addDiff("version", o2.version(), o1.version(), ComparisonResult.Changed);
+        }
+        return diffs;
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void encodedOrderMatchesTheComparatorChain() {
+        Random random = new Random(3);
+        List<Trade> trades = randomTrades(random, 3_000);
+        for (int i = 0; i < 20_000; i++) {
+            Trade t1 = trades.get(random.nextInt(trades.size()));
+            Trade t2 = trades.get(random.nextInt(trades.size()));
+            byte[] k1 = ENCODER.encode(t1);
+            byte[] k2 = ENCODER.encode(t2);
+            assertEquals(Integer.signum(KEY_COMPARATOR.compare(t1, t2)), Integer.signum(Arrays.compareUnsigned(k1, k2)),
+                    () -> t1 + " vs " + t2);
+            long p1 = KeyEncoder.prefix(k1), p2 = KeyEncoder.prefix(k2);
+            if (p1 != p2) {
+                assertEquals(Integer.signum(Arrays.compareUnsigned(k1, k2)), Integer.signum(Long.compareUnsigned(p1, p2)));
+            }
+        }
+    }
+
+    @Test
+    void decimalsOrderByValue() {
+        List<BigDecimal> values = new ArrayList<>();
+        for (String s : List.of("0", "0.00", "1", "1.0", "1.23", "1.2", "-1.2", "-1.23", "-100", "99.999",
+                "1E+10", "-1E-10", "0.000001", "12345678901234567890.5", "-0.5", "10", "9")) {
+            values.add(new BigDecimal(s));
+        }
+        KeyEncoder<BigDecimal> encoder = KeyEncoder.<BigDecimal>create().thenDecimal(d -> d);
+        for (BigDecimal d1 : values) {
+            for (BigDecimal d2 : values) {
+                assertEquals(Integer.signum(d1.compareTo(d2)),
+                        Integer.signum(Arrays.compareUnsigned(encoder.encode(d1), encoder.encode(d2))), d1 + " vs " + d2);
+            }
+        }
+    }
+
+    @Test
+    void collatedStringsOrderAsTheCollatorDoes() {
+        Collator collator = Collator.getInstance(Locale.FRENCH);
+        KeyEncoder<String> encoder = KeyEncoder.<String>create().thenString(s -> s, collator).thenLong(String::length);
+        List<String> words = List.of("cote", "côte", "coté", "côté", "Cote", "apple", "Zebra", "zebra", "", "a\u0000b");
+        for (String w1 : words) {
+            for (String w2 : words) {
+                int expected = Integer.signum(collator.compare(w1, w2));
+                int actual = Integer.signum(Arrays.compareUnsigned(encoder.encode(w1), encoder.encode(w2)));
+                if (expected != 0) {
+                    assertEquals(expected, actual, w1 + " vs " + w2);
+                }
+            }
+        }
+    }
+
+    @Test
+    void stringsThatArePrefixesSortFirstAndEmbeddedZerosAreEscaped() {
+        KeyEncoder<String> encoder = KeyEncoder.<String>create().thenString(s -> s).thenLong(s -> 0L);
+        List<String> sorted = List.of("", "\u0000", "\u0000\u0000", "a", "a\u0000", "a\u0000b", "ab", "b");
+        List<byte[]> keys = new ArrayList<>(sorted.stream().map(encoder::encode).toList());
+        Collections.shuffle(keys, new Random(1));
+        keys.sort(Arrays::compareUnsigned);
+        assertEquals(sorted.stream().map(encoder::encode).map(Arrays::toString).toList(),
+                keys.stream().map(Arrays::toString).toList());
+    }
+
+    @Test
+    void diffsOverEncodedKeysMatchDiffsOverTheComparatorChain() {
+        Random random = new Random(5);
+        List<Trade> expected = randomTrades(random, 2_000);
+        List<Trade> actual = new ArrayList<>();
+        for (Trade t : expected) {
+            int roll = random.nextInt(10);
+            if (roll == 0) continue;
+            actual.add(roll == 1 ? new Trade(t.id(), t.book(), t.price(), t.time(), t.version() + 1) : t);
+        }
+        actual.addAll(randomTrades(random, 100));
+        expected = sortedDistinct(expected);
+        actual = sortedDistinct(actual);
+
+        var plain = new ComparisonResultStats<Trade,Long>();
+        RegularDifferencer.<Trade,Long>withValidation(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(expected, actual, plain);
+
+        var encoded = new ComparisonResultStats<EncodedKeyRecord<Trade,Long>,Long>();
+        RegularDifferencer.<EncodedKeyRecord<Trade,Long>,Long>withValidation(
+                        EncodedKeyRecord.comparingKeys(), EncodedKeyRecord.comparingData(DATA_COMPARATOR))
+                .computeDiff(EncodedKeyRecord.encodeAll(expected, ENCODER), EncodedKeyRecord.encodeAll(actual, ENCODER), encoded);
+
+        assertEquals(plain.toString(), encoded.toString());
+    }
+
+    @Test
+    void externalSortOfEncodedRecordsMatchesTheComparatorChain() throws IOException {
+        List<Trade> trades = randomTrades(new Random(9), 5_000);
+        var sorter = new ExternalSorter<EncodedKeyRecord<Trade,Long>>(EncodedKeyRecord.comparingKeys(),
+                EncodedKeyRecord.serializer(SERIALIZER), 500, 2, tempDir);
+        List<Trade> sorted = new ArrayList<>();
+        try (var runs = sorter.sort(EncodedKeyRecord.encodeAll(trades, ENCODER))) {
+            runs.forEach(r -> sorted.add(r.getRecord()));
+        }
+        List<Trade> expected = new ArrayList<>(trades);
+        expected.sort(KEY_COMPARATOR);
+        assertEquals(expected, sorted);
+    }
+
+    private static final RecordSerializer<Trade> SERIALIZER = new RecordSerializer<>() {
+        @Override
+        public void write(Trade t, DataOutput out) throws IOException {
+            out.writeLong(t.id());
+            out.writeBoolean(t.book() != null);
+            if (t.book() != null) out.writeUTF(t.book());
+            out.writeBoolean(t.price() != null);
+            if (t.price() != null) out.writeUTF(t.price().toString());
+            out.writeBoolean(t.time() != null);
+            if (t.time() != null) {
+                out.writeLong(t.time().getEpochSecond());
+                out.writeInt(t.time().getNano());
+            }
+            out.writeInt(t.version());
+        }
+
+        @Override
+        public Trade read(DataInput in) throws IOException {
+            long id = in.readLong();
+            String book = in.readBoolean() ? in.readUTF() : null;
+            BigDecimal price = in.readBoolean() ? new BigDecimal(in.readUTF()) : null;
+            Instant time = in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+            return new Trade(id, book, price, time, in.readInt());
+        }
+    };
+
+    private static List<Trade> sortedDistinct(List<Trade> trades) {
+        List<Trade> sorted = new ArrayList<>(trades);
+        sorted.sort(KEY_COMPARATOR);
+        List<Trade> distinct = new ArrayList<>();
+        for (Trade t : sorted) {
+            if (distinct.isEmpty() || KEY_COMPARATOR.compare(distinct.get(distinct.size() - 1), t) != 0) {
+                distinct.add(t);
+            }
+        }
+        return distinct;
+    }
+
+    private static List<Trade> randomTrades(Random random, int n) {
+        String[] books = {null, "", "A", "AB", "ABC", "Ab", "b", "été", "😀", "a\u0000"};
+        List<Trade> trades = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            BigDecimal price = random.nextInt(10) == 0 ? null
+                    : BigDecimal.valueOf(random.nextLong(-1_000_000, 1_000_000), random.nextInt(-3, 6));
+            Instant time = random.nextInt(10) == 0 ? null
+                    : Instant.ofEpochSecond(random.nextLong(-10_000, 10_000), random.nextInt(3) * 500_000_000);
+            trades.add(new Trade(random.nextLong(-5, 5), books[random.nextInt(books.length)], price, time,
+                    random.nextInt(-2, 3)));
+        }
+        return trades;
+    }
+}
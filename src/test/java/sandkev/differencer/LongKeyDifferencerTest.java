@@ -0,0 +1,87 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class LongKeyDifferencerTest {
+
+    @Test
+    void matchesRegularDifferencer() {
+        Random random = new Random(42);
+        List<Row> expected = new ArrayList<>();
+        List<Row> actual = new ArrayList<>();
+        for (long id = -5_000; id < 5_000; id++) {
+            int roll = random.nextInt(10);
+            if (roll != 0) expected.add(new Row(id, "v" + id));
+            if (roll != 1) actual.add(new Row(id, roll == 2 ? "changed" : "v" + id));
+        }
+
+        var regular = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).diffAndCollect(expected, actual);
+        var stats = new LongKeyDifferencer<Row>(Row::id, DATA_COMPARATOR).diffAndCollect(expected, actual);
+
+        assertEquals(regular.getEqualCount().get(), stats.getEqualCount());
+        assertEquals(regular.getAddedCount().get(), stats.getAddedCount());
+        assertEquals(regular.getDroppedCount().get(), stats.getDroppedCount());
+        assertEquals(regular.getChangedCount().get(), stats.getChangedCount());
+        assertEquals(regular.getAddedKeys(), boxed(stats.getAddedKeys()));
+        assertEquals(regular.getDroppedKeys(), boxed(stats.getDroppedKeys()));
+        assertEquals(regular.getChangedKeys(), boxed(stats.getChangedKeys()));
+        assertTrue(isAscending(stats.getChangedKeys()));
+    }
+
+    @Test
+    void validationRejectsUnsortedAndDuplicateKeys() {
+        var differencer = LongKeyDifferencer.<Row>withValidation(Row::id, DATA_COMPARATOR);
+        var sorted = List.of(new Row(1, "a"), new Row(2, "b"));
+
+        var outOfOrder = assertThrows(IllegalArgumentException.class,
+                () -> differencer.diffAndCollect(List.of(new Row(2, "b"), new Row(1, "a")), sorted));
+        assertTrue(outOfOrder.getMessage().startsWith("Out of order"));
+
+        var duplicate = assertThrows(IllegalArgumentException.class,
+                () -> differencer.diffAndCollect(sorted, List.of(new Row(1, "a"), new Row(1, "a"))));
+        assertEquals("Duplicate key detected: <1>", duplicate.getMessage());
+    }
+
+    @Test
+    void statsMergeAppendsKeys() {
+        var first = new LongComparisonResultStats<Row>();
+        var second = new LongComparisonResultStats<Row>();
+        for (long id = 0; id < 20; id++) {
+            first.onAdded(id, null);
+        }
+        second.onAdded(100, null);
+        second.onEqual(101);
+
+        first.merge(second);
+
+        assertEquals(21, first.getAddedCount());
+        assertEquals(1, first.getEqualCount());
+        assertEquals(21, first.getAddedKeys().length);
+        assertEquals(100, first.getAddedKeys()[20]);
+
+        first.reset();
+        assertEquals(0, first.getAddedKeys().length);
+    }
+
+    private static Set<Object> boxed(long[] keys) {
+        Set<Object> set = new HashSet<>();
+        for (long key : keys) set.add(key);
+        return set;
+    }
+
+    private static boolean isAscending(long[] keys) {
+        for (int i = 1; i < keys.length; i++) {
+            if (keys[i - 1] >= keys[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.DiffComparator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.recording;
+
+class MappedFileSourceTest {
+
+    private static final Comparator<MappedRecord<Long>> KEY_COMPARATOR = Comparator.comparing(MappedRecord::getId);
+
+    private static final DiffComparator<MappedRecord<Long>> DATA_COMPARATOR = (o1, o2) -> {
+        DiffSummary diffs = new DiffSummary();
+        if (!o1.fieldEquals(1, o2)) {
+            diffs.addDiff("value", o2.field(1), o1.field(1), ComparisonResult.Changed);
+        }
+        return diffs;
+    };
+
+    @TempDir
+    Path tempDir;
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(tempDir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static MappedFileSource<Long> source(Path file, long windowSize) {
+        return new MappedFileSource<>(file, '|', record -> record.longField(0), windowSize);
+    }
+
+    private static List<String> lines(MappedFileSource<Long> source) {
+        List<String> lines = new ArrayList<>();
+        source.forEach(record -> lines.add(record.toString()));
+        return lines;
+    }
+
+    @Test
+    void readsLinesAcrossWindows() throws IOException {
+        StringBuilder content = new StringBuilder();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            String line = i + "|value " + i + "|é" + "x".repeat(i % 37);
+            expected.add(line);
+            content.append(line).append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        Path file = write("lines.txt", content.toString());
+        // windows far smaller than some of the lines
+        assertEquals(expected, lines(source(file, 16)));
+        assertEquals(expected, lines(source(file, 4096)));
+        assertEquals(expected, lines(source(file, MappedFileSource.DEFAULT_WINDOW_SIZE)));
+    }
+
+    @Test
+    void handlesEmptyFilesEmptyLinesAndAMissingFinalTerminator() throws IOException {
+        assertEquals(List.of(), lines(source(write("empty.txt", ""), 8)));
+        assertEquals(List.of("", "1|a", "", "2|b"), lines(source(write("gaps.txt", "\n1|a\n\r\n2|b"), 3)));
+    }
+
+    @Test
+    void decodesFieldsOnDemand() throws IOException {
+        Path file = write("fields.txt", "-9223372036854775808|naïve||+42\n9223372036854775808|x\n");
+        CloseableIterator<MappedRecord<Long>> it = source(file, 64).iterator();
+        MappedRecord<Long> first = it.next();
+        assertEquals(Long.MIN_VALUE, first.getId());
+        assertEquals(4, first.fieldCount());
+        assertEquals("naïve", first.field(1));
+        assertEquals("", first.field(2));
+        assertEquals(42, first.longField(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> first.field(4));
+        assertThrows(NumberFormatException.class, () -> first.longField(1));
+        assertThrows(NumberFormatException.class, () -> first.longField(2));
+
+        MappedRecord<Long> second = it.next();
+        assertThrows(NumberFormatException.class, second::getId);
+        assertFalse(it.hasNext());
+        it.close();
+    }
+
+    @Test
+    void recordsStayValidAfterTheWindowMoves() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append(i).append("|v").append(i).append('\n');
+        }
+        List<MappedRecord<Long>> kept = new ArrayList<>();
+        source(write("kept.txt", content.toString()), 10).forEach(kept::add);
+        assertEquals(100, kept.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, kept.get(i).getId());
+            assertEquals("v" + i, kept.get(i).field(1));
+        }
+        assertTrue(kept.get(5).fieldEquals(1, kept.get(5)));
+        assertFalse(kept.get(5).fieldEquals(1, kept.get(6)));
+        assertFalse(kept.get(5).contentEquals(kept.get(6)));
+    }
+
+    @Test
+    void diffsTwoMappedFiles() throws IOException {
+        Path expected = write("expected.txt", "1|a\n2|b\n3|c\n5|e\n");
+        Path actual = write("actual.txt", "1|a\n2|B\n4|d\n5|e\n6|f\n");
+        List<String> events = new ArrayList<>();
+        new RegularDifferencer<MappedRecord<Long>,Long>(KEY_COMPARATOR, DATA_COMPARATOR, true)
+                .computeDiff(source(expected, 8), source(actual, 8), recording(events));
+        assertEquals(List.of("Equal:1", "Changed:2", "Dropped:3", "Added:4", "Equal:5", "Added:6"), events);
+    }
+
+    @Test
+    void rejectsBadArguments() {
+        Path file = tempDir.resolve("any.txt");
+        assertThrows(IllegalArgumentException.class, () -> new MappedFileSource<Long>(file, '\n', r -> 0L));
+        assertThrows(IllegalArgumentException.class, () -> new MappedFileSource<Long>(file, 'é', r -> 0L));
+        assertThrows(IllegalArgumentException.class, () -> new MappedFileSource<Long>(file, ',', r -> 0L, 0));
+    }
+}
@@ -0,0 +1,99 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class MergeOrderCheckTest {
+
+    @Test
+    void reportsTheSameFaultsAsValidatingIterables() {
+        Random random = new Random(11);
+        for (int round = 0; round < 2_000; round++) {
+            List<Row> expected = sorted(random, 20);
+            List<Row> actual = sorted(random, 20);
+            List<Row> broken = random.nextBoolean() ? expected : actual;
+            if (broken.size() > 1) {
+                int i = random.nextInt(broken.size() - 1);
+                if (random.nextBoolean()) {
+                    broken.set(i + 1, broken.get(i));
+                } else {
+                    Row swapped = broken.get(i);
+                    broken.set(i, broken.get(i + 1));
+                    broken.set(i + 1, swapped);
+                }
+            }
+
+            String wrapped = failure(() -> new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(
+                    new ValidatingIterable<>(expected, KEY_COMPARATOR), new ValidatingIterable<>(actual, KEY_COMPARATOR),
+                    new ComparisonResultStats<>()));
+            String fused = failure(() -> RegularDifferencer.<Row,Long>withValidation(KEY_COMPARATOR, DATA_COMPARATOR)
+                    .computeDiff(expected, actual, new ComparisonResultStats<>()));
+            assertEquals(wrapped, fused, () -> "expected " + expected + ", actual " + actual);
+        }
+    }
+
+    @Test
+    void costsFewerKeyComparisonsThanValidatingIterables() {
+        List<Row> expected = new ArrayList<>();
+        List<Row> actual = new ArrayList<>();
+        for (long id = 0; id < 10_000; id++) {
+            if (id % 10 != 3) expected.add(new Row(id, "v"));
+            if (id % 10 != 7) actual.add(new Row(id, "v"));
+        }
+        AtomicLong calls = new AtomicLong();
+        Comparator<Row> counting = (r1, r2) -> {
+            calls.incrementAndGet();
+            return Long.compare(r1.id(), r2.id());
+        };
+
+        new RegularDifferencer<Row,Long>(counting, DATA_COMPARATOR).computeDiff(expected, actual, new ComparisonResultStats<>());
+        long unvalidated = calls.getAndSet(0);
+        new RegularDifferencer<Row,Long>(counting, DATA_COMPARATOR).computeDiff(
+                new ValidatingIterable<>(expected, counting), new ValidatingIterable<>(actual, counting),
+                new ComparisonResultStats<>());
+        long wrapped = calls.getAndSet(0);
+        RegularDifferencer.<Row,Long>withValidation(counting, DATA_COMPARATOR)
+                .computeDiff(expected, actual, new ComparisonResultStats<>());
+        long fused = calls.get();
+
+        assertEquals(unvalidated + expected.size() + actual.size() - 2, wrapped);
+        assertTrue(fused < wrapped * 3 / 4, "fused " + fused + " vs wrapped " + wrapped);
+        assertTrue(fused <= 2 * unvalidated, "fused " + fused + " vs unvalidated " + unvalidated);
+    }
+
+    @Test
+    void validatesTheTailAfterTheOtherSideRunsOut() {
+        var differencer = RegularDifferencer.<Row,Long>withValidation(KEY_COMPARATOR, DATA_COMPARATOR);
+        var ex = assertThrows(IllegalArgumentException.class, () -> differencer.computeDiff(
+                List.of(new Row(1, "a")), List.of(new Row(1, "a"), new Row(3, "a"), new Row(2, "a")),
+                new ComparisonResultStats<>()));
+        assertEquals("Out of order: key <2> should come before <3>", ex.getMessage());
+    }
+
+    private static List<Row> sorted(Random random, int max) {
+        List<Row> rows = new ArrayList<>();
+        for (long id = 0; id < max; id++) {
+            if (random.nextInt(3) != 0) {
+                rows.add(new Row(id, "v"));
+            }
+        }
+        return rows;
+    }
+
+    private static String failure(Runnable diff) {
+        try {
+            diff.run();
+            return null;
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+}
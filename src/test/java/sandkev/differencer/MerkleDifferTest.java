@@ -0,0 +1,178 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.RecordSerializer;
+import sandkev.differencer.api.RowFingerprinter;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class MerkleDifferTest {
+
+    private static final RowFingerprinter<Row> FINGERPRINTER =
+            row -> Fingerprints.finish(Fingerprints.add(Fingerprints.SEED, row.value()));
+
+    private static final RecordSerializer<Long> KEY_SERIALIZER = new RecordSerializer<>() {
+        @Override
+        public void write(Long key, DataOutput out) throws IOException {
+            out.writeLong(key);
+        }
+
+        @Override
+        public Long read(DataInput in) throws IOException {
+            return in.readLong();
+        }
+    };
+
+    private final List<Row> expected = new ArrayList<>();
+    private final List<Row> actual = new ArrayList<>();
+
+    private void generate(int rows, int everyNth) {
+        Random random = new Random(7);
+        for (long id = 0; id < rows; id++) {
+            boolean differs = random.nextInt(everyNth) == 0;
+            int kind = random.nextInt(3);
+            if (!differs || kind != 0) expected.add(new Row(id, "v" + id));
+            if (!differs || kind != 1) actual.add(new Row(id, differs && kind == 2 ? "changed" : "v" + id));
+        }
+    }
+
+    private static EventLog regular(List<Row> expected, List<Row> actual) {
+        var log = new EventLog();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(expected, actual, log);
+        return log;
+    }
+
+    /**
+     * Records each event as "type:id", in delivery order.
+     */
+    private static class EventLog implements ComparisonResultHandler<Row,Long> {
+        final List<String> events = new ArrayList<>();
+
+        @Override public void onEqual(Long id) { events.add("Equal:" + id); }
+        @Override public void onApproximatelyEqual(Long id, DiffSummary diff) { events.add("ApproximatelyEqual:" + id); }
+        @Override public void onAdded(Long id, Row added) { events.add("Added:" + id); }
+        @Override public void onDropped(Long id, Row dropped) { events.add("Dropped:" + id); }
+        @Override public void onChanged(Long id, DiffSummary diff) { events.add("Changed:" + id); }
+    }
+
+    @Test
+    void inProcessPeerMatchesRegularDifferencer() {
+        generate(20_000, 500);
+        var tree = MerkleTree.of(actual, Comparator.<Long>naturalOrder(), FINGERPRINTER);
+
+        var log = new EventLog();
+        new MerkleDiffer<Row,Long>(Comparator.naturalOrder(), DATA_COMPARATOR, FINGERPRINTER, 16)
+                .computeDiff(expected, tree, log);
+
+        assertEquals(regular(expected, actual).events, log.events);
+    }
+
+    @Test
+    void socketPeerOnlyTransfersMismatchingRanges() throws IOException {
+        generate(50_000, 5_000);
+        var tree = MerkleTree.of(actual, Comparator.<Long>naturalOrder(), FINGERPRINTER);
+
+        try (var server = new MerklePeerServer<>(tree, SERIALIZER, KEY_SERIALIZER, 0);
+             var peer = new SocketMerklePeer<>("localhost", server.getPort(), SERIALIZER, KEY_SERIALIZER)) {
+            var log = new EventLog();
+            new MerkleDiffer<Row,Long>(Comparator.naturalOrder(), DATA_COMPARATOR, FINGERPRINTER, 32)
+                    .computeDiff(expected, peer, log);
+
+            assertEquals(regular(expected, actual).events, log.events);
+            assertTrue(peer.getRowsReceived() < 1_000, "fetched " + peer.getRowsReceived() + " rows");
+            assertTrue(peer.getRoundTrips() <= 14, "took " + peer.getRoundTrips() + " round trips");
+        }
+    }
+
+    @Test
+    void identicalSidesNeedOneRoundTrip() throws IOException {
+        generate(1_000, Integer.MAX_VALUE);
+        var tree = MerkleTree.of(actual, Comparator.<Long>naturalOrder(), FINGERPRINTER);
+
+        try (var server = new MerklePeerServer<>(tree, SERIALIZER, KEY_SERIALIZER, 0);
+             var peer = new SocketMerklePeer<>("localhost", server.getPort(), SERIALIZER, KEY_SERIALIZER)) {
+            var stats = new ComparisonResultStats<Row,Long>();
+            new MerkleDiffer<Row,Long>(Comparator.naturalOrder(), DATA_COMPARATOR, FINGERPRINTER)
+                    .computeDiff(expected, peer, stats);
+
+            assertEquals(1_000, stats.getEqualCount().get());
+            assertEquals(1, peer.getRoundTrips());
+            assertEquals(0, peer.getRowsReceived());
+        }
+    }
+
+    @Test
+    void rejectsUnsortedRecords() {
+        var unsorted = List.of(new Row(2, "b"), new Row(1, "a"));
+        assertThrows(IllegalArgumentException.class,
+                () -> MerkleTree.of(unsorted, Comparator.<Long>naturalOrder(), FINGERPRINTER));
+    }
+
+    record BookKey(String book, long id) {
+    }
+
+    record Trade(BookKey key, String value) implements Identifiable<BookKey> {
+        @Override
+        public BookKey getId() {
+            return key;
+        }
+    }
+
+    private static final Comparator<BookKey> BOOK_KEY_ORDER =
+            Comparator.comparing(BookKey::book).thenComparingLong(BookKey::id);
+
+    private static List<Trade> trades(String... values) {
+        List<Trade> trades = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            trades.add(new Trade(new BookKey("book" + i % 2, i), values[i]));
+        }
+        trades.sort(Comparator.comparing(Trade::key, BOOK_KEY_ORDER));
+        return trades;
+    }
+
+    @Test
+    void rejectsKeysWithoutAStableHash() {
+        // a record's hashCode is only stable within one JVM, so a remote peer could never agree
+        var records = trades("a", "b");
+        RowFingerprinter<Trade> fingerprinter = trade -> Fingerprints.finish(Fingerprints.add(Fingerprints.SEED, trade.value()));
+
+        assertThrows(IllegalArgumentException.class, () -> MerkleTree.of(records, BOOK_KEY_ORDER, fingerprinter));
+    }
+
+    @Test
+    void keyEncoderHashesCompositeKeys() {
+        var expected = trades("a", "b", "c", "d");
+        var actual = trades("a", "b", "x", "d");
+        RowFingerprinter<Trade> fingerprinter = trade -> Fingerprints.finish(Fingerprints.add(Fingerprints.SEED, trade.value()));
+        DiffComparator<Trade> dataComparator = (o1, o2) -> {
+            DiffSummary diffs = new DiffSummary();
+            if (!o1.value().equals(o2.value())) {
+                diffs.addDiff("value", o2.value(), o1.value(), ComparisonResult.Changed);
+            }
+            return diffs;
+        };
+        KeyEncoder<BookKey> encoder = KeyEncoder.<BookKey>create().thenString(BookKey::book).thenLong(BookKey::id);
+
+        var stats = new ComparisonResultStats<Trade,BookKey>();
+        new MerkleDiffer<Trade,BookKey>(BOOK_KEY_ORDER, dataComparator, fingerprinter, 1)
+                .withKeyEncoder(encoder::encode)
+                .computeDiff(expected, MerkleTree.of(actual, BOOK_KEY_ORDER, fingerprinter, encoder::encode), stats);
+
+        assertEquals(3, stats.getEqualCount().get());
+        assertEquals(Set.of(new BookKey("book0", 2)), stats.getChangedKeys());
+    }
+}
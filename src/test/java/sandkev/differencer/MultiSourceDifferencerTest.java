@@ -0,0 +1,111 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.DiffComparator;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class MultiSourceDifferencerTest {
+
+    private final AtomicInteger comparisons = new AtomicInteger();
+
+    private final DiffComparator<Row> dataComparator = (o1, o2) -> {
+        comparisons.incrementAndGet();
+        DiffSummary diffs = new DiffSummary();
+        if (!o1.value().equals(o2.value())) {
+            diffs.addDiff("value", o2.value(), o1.value(), ComparisonResult.Changed);
+        }
+        return diffs;
+    };
+
+    private static List<List<Row>> sources(int count, int rows) {
+        Random random = new Random(11);
+        List<List<Row>> sources = new ArrayList<>();
+        for (int s = 0; s < count; s++) {
+            sources.add(new ArrayList<>());
+        }
+        for (long id = 0; id < rows; id++) {
+            for (int s = 0; s < count; s++) {
+                int roll = random.nextInt(20);
+                if (roll == 0) continue;
+                sources.get(s).add(new Row(id, roll == 1 ? "v" + id + "@" + s : "v" + id));
+            }
+        }
+        return sources;
+    }
+
+    @Test
+    void matchesPairwiseRegularDiffs() {
+        var sources = sources(4, 2_000);
+        List<Set<String>> pairwise = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            for (int j = i + 1; j < 4; j++) {
+                var stats = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, dataComparator)
+                        .diffAndCollect(sources.get(i), sources.get(j));
+                Set<String> events = new HashSet<>();
+                stats.getChangedKeys().forEach(id -> events.add("changed:" + id));
+                stats.getAddedKeys().forEach(id -> events.add("added:" + id));
+                stats.getDroppedKeys().forEach(id -> events.add("dropped:" + id));
+                pairwise.add(events);
+            }
+        }
+
+        List<Set<String>> nWay = new ArrayList<>();
+        for (int p = 0; p < 6; p++) nWay.add(new HashSet<>());
+        List<Long> keys = new ArrayList<>();
+        new MultiSourceDifferencer<Row,Long>(KEY_COMPARATOR, dataComparator).computeDiff(sources, group -> {
+            keys.add(group.getId());
+            int p = 0;
+            for (int i = 0; i < 4; i++) {
+                for (int j = i + 1; j < 4; j++, p++) {
+                    if (group.differs(i, j)) nWay.get(p).add("changed:" + group.getId());
+                    if (group.isPresent(j) && !group.isPresent(i)) nWay.get(p).add("added:" + group.getId());
+                    if (group.isPresent(i) && !group.isPresent(j)) nWay.get(p).add("dropped:" + group.getId());
+                }
+            }
+        });
+
+        assertEquals(pairwise, nWay);
+        for (int i = 1; i < keys.size(); i++) {
+            assertTrue(keys.get(i - 1) < keys.get(i));
+        }
+    }
+
+    @Test
+    void agreeingSourcesCostOneComparisonPerExtraSource() {
+        List<Row> rows = List.of(new Row(1, "a"), new Row(2, "b"));
+        AtomicInteger agreed = new AtomicInteger();
+
+        new MultiSourceDifferencer<Row,Long>(KEY_COMPARATOR, dataComparator)
+                .computeDiff(List.of(rows, rows, rows, rows, rows), group -> {
+                    assertTrue(group.isPresentInAll());
+                    if (group.allEqual()) agreed.incrementAndGet();
+                });
+
+        assertEquals(2, agreed.get());
+        assertEquals(2 * 4, comparisons.get());
+    }
+
+    @Test
+    void rejectsDuplicatesAndDisorder() {
+        var differencer = new MultiSourceDifferencer<Row,Long>(KEY_COMPARATOR, dataComparator);
+        var sorted = List.of(new Row(1, "a"), new Row(3, "c"));
+
+        var duplicate = assertThrows(IllegalArgumentException.class, () -> differencer.computeDiff(
+                List.of(sorted, List.of(new Row(2, "b"), new Row(2, "b"))), group -> { }));
+        assertTrue(duplicate.getMessage().startsWith("Duplicate key detected: <2>"));
+
+        var disorder = assertThrows(IllegalArgumentException.class, () -> differencer.computeDiff(
+                List.of(sorted, List.of(new Row(5, "e"), new Row(2, "b"))), group -> { }));
+        assertTrue(disorder.getMessage().startsWith("Out of order"));
+    }
+}
@@ -0,0 +1,139 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import sandkev.differencer.api.ComparisonResultHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class ParallelRangeDifferencerTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static ComparisonResultStats<Row,Long> regular(List<Row> expected, List<Row> actual) {
+        ComparisonResultStats<Row,Long> stats = new ComparisonResultStats<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(expected, actual, stats);
+        return stats;
+    }
+
+    private static void assertSameStats(ComparisonResultStats<Row,Long> expected, ComparisonResultStats<Row,Long> actual) {
+        assertAll(
+                () -> assertEquals(expected.getEqualCount().get(),   actual.getEqualCount().get(),   "equals"),
+                () -> assertEquals(expected.getAddedCount().get(),   actual.getAddedCount().get(),   "added"),
+                () -> assertEquals(expected.getDroppedCount().get(), actual.getDroppedCount().get(), "dropped"),
+                () -> assertEquals(expected.getChangedCount().get(), actual.getChangedCount().get(), "changed"),
+                () -> assertEquals(expected.getAddedKeys(),   actual.getAddedKeys(),   "added keys"),
+                () -> assertEquals(expected.getDroppedKeys(), actual.getDroppedKeys(), "dropped keys"),
+                () -> assertEquals(expected.getChangedKeys(), actual.getChangedKeys(), "changed keys")
+        );
+    }
+
+    @Test
+    void randomAccessListsMatchRegularDifferencer() {
+        var sides = sides(50_000, 1);
+        var differencer = new ParallelRangeDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, pool, 500, false);
+
+        ComparisonResultStats<Row,Long> stats = new ComparisonResultStats<>();
+        differencer.computeDiff(sides.get(0), sides.get(1), stats);
+
+        assertSameStats(regular(sides.get(0), sides.get(1)), stats);
+    }
+
+    @Test
+    void streamedIterablesMatchRegularDifferencer() {
+        var sides = sides(50_000, 2);
+        var differencer = new ParallelRangeDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, pool, 500, false);
+
+        // hide the List so the engine has to cut ranges while reading
+        Iterable<Row> expected = () -> sides.get(0).iterator();
+        Iterable<Row> actual   = () -> sides.get(1).iterator();
+
+        assertSameStats(regular(sides.get(0), sides.get(1)), differencer.diffAndCollect(expected, actual));
+    }
+
+    @Test
+    void skewedRangesAreSplitAndStillComplete() {
+        // every actual row sits above the last expected row, so one side dominates each range
+        List<Row> expected = new ArrayList<>(), actual = new ArrayList<>();
+        for (long id = 0; id < 20_000; id++) expected.add(new Row(id, "v"));
+        for (long id = 20_000; id < 21_000; id++) actual.add(new Row(id, "v"));
+        var differencer = new ParallelRangeDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, pool, 100, false);
+
+        ComparisonResultStats stats = differencer.diffAndCollect(expected, actual);
+
+        assertEquals(20_000, stats.getDroppedCount().get());
+        assertEquals(1_000,  stats.getAddedCount().get());
+        assertEquals(0,      stats.getEqualCount().get());
+    }
+
+    @Test
+    void keyOrderedModeReplaysEventsInGlobalKeyOrder() {
+        var sides = sides(20_000, 3);
+        var differencer = new ParallelRangeDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, pool, 250, true);
+
+        List<Long> seen = new ArrayList<>();
+        ComparisonResultHandler<Row,Long> handler = new ComparisonResultHandler<>() {
+            @Override public void onEqual(Long id) { seen.add(id); }
+            @Override public void onApproximatelyEqual(Long id, DiffSummary diff) { seen.add(id); }
+            @Override public void onAdded(Long id, Row added) { seen.add(id); }
+            @Override public void onDropped(Long id, Row dropped) { seen.add(id); }
+            @Override public void onChanged(Long id, DiffSummary diff) { seen.add(id); }
+        };
+        differencer.computeDiff(sides.get(0), sides.get(1), handler);
+
+        List<Long> sorted = new ArrayList<>(seen);
+        Collections.sort(sorted);
+        assertEquals(sorted, seen, "events should arrive in key order");
+        assertEquals(20_000, seen.size());
+    }
+
+    @Test
+    void splitKeysAreStrictlyIncreasing() {
+        var sides = sides(100_000, 4);
+        var differencer = new ParallelRangeDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, pool, 1_000, false);
+
+        List<Row> splitKeys = differencer.splitKeys(sides.get(0), sides.get(1));
+
+        assertEquals(pool.getParallelism() * 4 - 1, splitKeys.size());
+        for (int i = 1; i < splitKeys.size(); i++) {
+            assertTrue(KEY_COMPARATOR.compare(splitKeys.get(i - 1), splitKeys.get(i)) < 0);
+        }
+    }
+
+    @Test
+    @Timeout(value = 30, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void closingAStreamEarlyReleasesThePoolWorkers() {
+        var sides = sides(100_000, 5);
+        var differencer = new ParallelRangeDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, pool, 500, false);
+
+        try (Stream<DiffEvent<Row,Long>> stream = differencer.stream(sides.get(0), sides.get(1))) {
+            assertEquals(10, stream.limit(10).count());
+        }
+
+        // workers blocked handing off events would keep the pool busy for good
+        assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS), "diff should finish once the stream is closed");
+    }
+
+    @Test
+    void emptyInputsProduceNoEvents() {
+        var differencer = new ParallelRangeDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, pool, 10, true);
+
+        ComparisonResultStats stats = differencer.diffAndCollect(List.of(), List.of());
+
+        assertEquals(0, stats.getEqualCount().get() + stats.getAddedCount().get() + stats.getDroppedCount().get());
+    }
+}
@@ -0,0 +1,83 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class PartitionedHashDifferencerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private void assertMatchesSortThenMerge(List<List<Row>> sides, ComparisonResultStats<Row,Long> stats) throws IOException {
+        List<Row> e = new ArrayList<>(sides.get(0)), a = new ArrayList<>(sides.get(1));
+        e.sort(KEY_COMPARATOR);
+        a.sort(KEY_COMPARATOR);
+        ComparisonResultStats<Row,Long> reference = new ComparisonResultStats<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(e, a, reference);
+
+        assertAll(
+                () -> assertEquals(reference.getEqualCount().get(), stats.getEqualCount().get()),
+                () -> assertEquals(reference.getChangedKeys(),      stats.getChangedKeys()),
+                () -> assertEquals(reference.getAddedKeys(),        stats.getAddedKeys()),
+                () -> assertEquals(reference.getDroppedKeys(),      stats.getDroppedKeys())
+        );
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count(), "partition files should be deleted after the diff");
+        }
+    }
+
+    @Test
+    void partitionsThatFitAreJoinedDirectly() throws IOException {
+        var sides = shuffledSides(10_000, 1);
+        var differencer = new PartitionedHashDifferencer<Row,Long>(DATA_COMPARATOR, SERIALIZER, 10_000, 8, 2, tempDir);
+
+        assertMatchesSortThenMerge(sides, differencer.diffAndCollect(sides.get(0), sides.get(1)));
+    }
+
+    @Test
+    void oversizedPartitionsAreRepartitioned() throws IOException {
+        var sides = shuffledSides(20_000, 2);
+        // 4 partitions of ~5k against a budget of 100 per worker needs three more passes
+        var differencer = new PartitionedHashDifferencer<Row,Long>(DATA_COMPARATOR, SERIALIZER, 200, 4, 2, tempDir);
+
+        assertMatchesSortThenMerge(sides, differencer.diffAndCollect(sides.get(0), sides.get(1)));
+    }
+
+    @Test
+    void repartitioningSpreadsAPartitionOverAllNewPartitions() {
+        var differencer = new PartitionedHashDifferencer<Row,Long>(DATA_COMPARATOR, SERIALIZER, 100, 4, 1, tempDir);
+        int[] counts = new int[4];
+        for (long id = 0; id < 40_000; id++) {
+            if (differencer.partitionOf(id, 0) == 0) {
+                counts[differencer.partitionOf(id, 1)]++;
+            }
+        }
+        for (int count : counts) {
+            assertTrue(count > 2_000, "each sub-partition should get about a quarter of partition 0");
+        }
+    }
+
+    @Test
+    void throwsOnDuplicateKeysAndCleansUp() throws IOException {
+        var dupes = List.of(new Row(1, "a"), new Row(2, "b"), new Row(1, "c"));
+        var differencer = new PartitionedHashDifferencer<Row,Long>(DATA_COMPARATOR, SERIALIZER, 100, 4, 2, tempDir);
+
+        // the larger actual side makes expected the build side, where every duplicate is caught
+        var actual = List.of(new Row(1, "a"), new Row(2, "b"), new Row(3, "c"), new Row(4, "d"));
+
+        assertThrows(IllegalArgumentException.class, () -> differencer.diffAndCollect(dupes, actual));
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
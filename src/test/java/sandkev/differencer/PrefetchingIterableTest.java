@@ -0,0 +1,85 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefetchingIterableTest {
+
+    @Test
+    void deliversEveryElementInOrder() {
+        List<Integer> source = IntStream.range(0, 10_000).boxed().toList();
+
+        assertIterableEquals(source, new PrefetchingIterable<>(source, 16, "test"));
+    }
+
+    @Test
+    void handlesEmptyAndNullElements() {
+        assertIterableEquals(List.of(), new PrefetchingIterable<>(List.<Integer>of(), 4, "test"));
+
+        List<String> withNull = new ArrayList<>();
+        withNull.add("a");
+        withNull.add(null);
+        assertIterableEquals(withNull, new PrefetchingIterable<>(withNull, 4, "test"));
+    }
+
+    @Test
+    void rethrowsSourceFailureWhenReached() {
+        List<Integer> unsorted = List.of(1, 3, 2);
+        var prefetching = new PrefetchingIterable<>(new ValidatingIterable<>(unsorted, Comparator.naturalOrder()), 4, "test");
+
+        Iterator<Integer> it = prefetching.iterator();
+        assertEquals(1, it.next());
+        assertEquals(3, it.next());
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, it::next);
+        assertTrue(ex.getMessage().startsWith("Out of order:"));
+    }
+
+    @Test
+    void recordsConsumerWaitOnSlowSource() {
+        Iterable<Integer> slow = () -> IntStream.range(0, 5).boxed().peek(i -> sleep(10)).iterator();
+
+        try (var it = new PrefetchingIterable<>(slow, 4, "slow").iterator()) {
+            it.forEachRemaining(i -> {});
+            assertTrue(it.getConsumerWaitNanos() >= Duration.ofMillis(20).toNanos(),
+                    "consumer should have waited on the slow source");
+        }
+    }
+
+    @Test
+    void closeStopsTheReader() {
+        AtomicInteger read = new AtomicInteger();
+        Iterable<Integer> endless = () -> IntStream.iterate(0, i -> i + 1).peek(i -> read.incrementAndGet()).iterator();
+
+        var it = new PrefetchingIterable<>(endless, 2, "endless").iterator();
+        assertEquals(0, it.next());
+        it.close();
+
+        // the reader may still top up its buffer (depth 2) plus the element in hand before it stops
+        int afterClose = read.get();
+        await().during(Duration.ofMillis(200)).atMost(Duration.ofSeconds(2))
+               .until(() -> read.get() <= afterClose + 3);
+    }
+
+    @Test
+    void rejectsNonPositiveDepth() {
+        assertThrows(IllegalArgumentException.class, () -> new PrefetchingIterable<>(List.of(), 0, "test"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class ReactiveDifferencerTest {
+
+    private final List<Row> expected = new ArrayList<>();
+    private final List<Row> actual = new ArrayList<>();
+
+    ReactiveDifferencerTest() {
+        for (long id = 0; id < 5_000; id++) {
+            if (id % 5 != 0) expected.add(new Row(id, "v" + id));
+            if (id % 7 != 0) actual.add(new Row(id, id % 3 == 0 ? "changed" : "v" + id));
+        }
+    }
+
+    /**
+     * Emits a list on the requesting thread, counting how much has been asked for.
+     */
+    static class ListPublisher<T> implements Flow.Publisher<T> {
+        private final List<T> items;
+        private final RuntimeException failAtEnd;
+        final AtomicLong totalRequested = new AtomicLong();
+
+        ListPublisher(List<T> items, RuntimeException failAtEnd) {
+            this.items = items;
+            this.failAtEnd = failAtEnd;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super T> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                private final AtomicLong demand = new AtomicLong();
+                private final AtomicInteger wip = new AtomicInteger();
+                private int index;
+                private volatile boolean cancelled;
+
+                @Override
+                public void request(long n) {
+                    totalRequested.addAndGet(n);
+                    demand.addAndGet(n);
+                    if (wip.getAndIncrement() != 0) {
+                        return;
+                    }
+                    do {
+                        while (demand.get() > 0 && index < items.size() && !cancelled) {
+                            demand.decrementAndGet();
+                            subscriber.onNext(items.get(index++));
+                        }
+                        if (index == items.size() && !cancelled) {
+                            index++;
+                            if (failAtEnd != null) subscriber.onError(failAtEnd);
+                            else subscriber.onComplete();
+                        }
+                    } while (wip.decrementAndGet() != 0);
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    /**
+     * Collects events, requesting them a few at a time.
+     */
+    static class CollectingSubscriber<E> implements Flow.Subscriber<E> {
+        final List<E> events = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch finished = new CountDownLatch(1);
+        private final long step;
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        private long received;
+
+        CollectingSubscriber(long step) {
+            this.step = step;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (step > 0) subscription.request(step);
+        }
+
+        @Override
+        public void onNext(E item) {
+            events.add(item);
+            if (step > 0 && ++received % step == 0) {
+                subscription.request(step);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            finished.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            finished.countDown();
+        }
+    }
+
+    private List<DiffEvent<Row,Long>> regular() {
+        return new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR)
+                .stream(expected, actual).collect(Collectors.toList());
+    }
+
+    @Test
+    void asynchronousSourcesMatchRegularDifferencer() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try (var expectedSource = new SubmissionPublisher<Row>(pool, 32);
+             var actualSource = new SubmissionPublisher<Row>(pool, 32)) {
+            var subscriber = new CollectingSubscriber<DiffEvent<Row,Long>>(7);
+            new ReactiveDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, 16)
+                    .diff(expectedSource, actualSource).subscribe(subscriber);
+
+            Thread e = Thread.ofVirtual().start(() -> { expected.forEach(expectedSource::submit); expectedSource.close(); });
+            Thread a = Thread.ofVirtual().start(() -> { actual.forEach(actualSource::submit); actualSource.close(); });
+
+            assertTrue(subscriber.finished.await(30, TimeUnit.SECONDS));
+            e.join();
+            a.join();
+            assertNull(subscriber.error);
+            assertEquals(regular(), subscriber.events);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void sourcesAreOnlyAskedForWhatTheSubscriberNeeds() {
+        var expectedSource = new ListPublisher<>(expected, null);
+        var actualSource = new ListPublisher<>(actual, null);
+        var subscriber = new CollectingSubscriber<DiffEvent<Row,Long>>(0);
+
+        new ReactiveDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, 16)
+                .diff(expectedSource, actualSource).subscribe(subscriber);
+        assertEquals(0, expectedSource.totalRequested.get() + actualSource.totalRequested.get());
+
+        subscriber.subscription.request(10);
+        assertEquals(10, subscriber.events.size());
+        assertTrue(expectedSource.totalRequested.get() <= 24, "expected asked for " + expectedSource.totalRequested.get());
+        assertTrue(actualSource.totalRequested.get() <= 24, "actual asked for " + actualSource.totalRequested.get());
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertEquals(0, subscriber.finished.getCount());
+        assertEquals(regular(), subscriber.events);
+    }
+
+    @Test
+    void sourceErrorsReachTheSubscriber() {
+        var failure = new IllegalStateException("source died");
+        var subscriber = new CollectingSubscriber<DiffEvent<Row,Long>>(Long.MAX_VALUE);
+
+        new ReactiveDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR)
+                .diff(new ListPublisher<>(expected, null), new ListPublisher<>(actual, failure))
+                .subscribe(subscriber);
+
+        assertSame(failure, subscriber.error);
+    }
+}
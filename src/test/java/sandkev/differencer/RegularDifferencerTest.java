@@ -8,10 +8,14 @@ import sandkev.differencer.api.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -322,4 +326,186 @@ class RegularDifferencerTest {
 
         assertEquals(0, stats.getDroppedCount().get());
     }
+
+    @Test
+    void batchDelivery_reusesOneBatchAndKeepsKeyOrder() {
+        var original = List.of(make(1,"a",0,BigDecimal.valueOf(1.0),"x"),
+                               make(1,"b",0,BigDecimal.valueOf(1.0),"y"),
+                               make(1,"c",0,BigDecimal.valueOf(1.0),"z"));
+        var revised  = List.of(make(1,"b",1,BigDecimal.valueOf(1.0),"y"),
+                               make(1,"c",0,BigDecimal.valueOf(1.0),"z"),
+                               make(1,"d",0,BigDecimal.valueOf(1.0),"w"));
+        var regular = new RegularDifferencer<MyType,MyTypeKey>(KEY_COMPARATOR, DATA_COMPARATOR);
+
+        Set<ComparisonResultBatch<MyType,MyTypeKey>> batches = new HashSet<>();
+        List<ComparisonResult> types = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        regular.computeDiff(original, revised, batch -> {
+            batches.add(batch);
+            assertTrue(batch.size() <= 3);
+            for (int i = 0; i < batch.size(); i++) {
+                types.add(batch.type(i));
+                names.add(batch.id(i).name());
+            }
+        }, 3);
+
+        assertEquals(1, batches.size(), "the same batch instance should be refilled");
+        assertEquals(List.of(ComparisonResult.Dropped, ComparisonResult.Changed, ComparisonResult.Equal, ComparisonResult.Added), types);
+        assertEquals(List.of("a", "b", "c", "d"), names);
+    }
+
+    @Test
+    void batchDelivery_adaptedStatsMatchPerEventStats() {
+        var original = List.of(make(1,"a",0,BigDecimal.valueOf(1.0),"x"),
+                               make(1,"b",0,BigDecimal.valueOf(1.0),"y"),
+                               make(1,"c",0,BigDecimal.valueOf(1.000001),"z"));
+        var revised  = List.of(make(1,"b",1,BigDecimal.valueOf(1.0),"y"),
+                               make(1,"c",0,BigDecimal.valueOf(1.0),"z"),
+                               make(1,"d",0,BigDecimal.valueOf(1.0),"w"));
+        var regular = new RegularDifferencer<MyType,MyTypeKey>(KEY_COMPARATOR, DATA_COMPARATOR);
+
+        regular.computeDiff(original, revised, BatchComparisonResultHandler.adapt(stats), 2);
+
+        assertEquals(1, stats.getApproximatelyEqualCount().get());
+        assertEquals(Set.of(new MyTypeKey("d", 1L)), stats.getAddedKeys());
+        assertEquals(Set.of(new MyTypeKey("a", 1L)), stats.getDroppedKeys());
+        assertEquals(Set.of(new MyTypeKey("b", 1L)), stats.getChangedKeys());
+    }
+
+    @Test
+    void batchDelivery_sameEventsWhetherMergedIntoTheBatchOrDeliveredPerEvent() {
+        var original = List.of(make(1,"a",0,BigDecimal.valueOf(1.0),"x"),
+                               make(1,"b",0,BigDecimal.valueOf(1.0),"y"),
+                               make(1,"c",0,BigDecimal.valueOf(1.000001),"z"));
+        var revised  = List.of(make(1,"b",1,BigDecimal.valueOf(1.0),"y"),
+                               make(1,"c",0,BigDecimal.valueOf(1.0),"z"),
+                               make(1,"d",0,BigDecimal.valueOf(1.0),"w"));
+        var regular = new RegularDifferencer<MyType,MyTypeKey>(KEY_COMPARATOR, DATA_COMPARATOR);
+        var expected = List.of(ComparisonResult.Dropped, ComparisonResult.Changed,
+                ComparisonResult.ApproximatelyEqual, ComparisonResult.Added);
+
+        assertEquals(expected, batchTypes(regular, original, revised));
+        assertEquals(expected, batchTypes(regular.withPrefetch(2), original, revised));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // the comparison pipeline delivers per event into the batch
+            assertEquals(expected, batchTypes(regular.withParallelComparison(pool, 2, 2), original, revised));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<ComparisonResult> batchTypes(RegularDifferencer<MyType,MyTypeKey> differencer,
+                                                     List<MyType> original, List<MyType> revised) {
+        List<ComparisonResult> types = new ArrayList<>();
+        differencer.computeDiff(original, revised, batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                types.add(batch.type(i));
+            }
+        }, 3);
+        return types;
+    }
+
+    @Test
+    void prefetch_matchesDirectReadAndRecordsWaits() {
+        var original = List.of(make(1,"a",0,BigDecimal.valueOf(1.0),"x"),
+                               make(1,"b",0,BigDecimal.valueOf(1.0),"y"),
+                               make(1,"c",0,BigDecimal.valueOf(1.0),"z"));
+        var revised  = List.of(make(1,"b",1,BigDecimal.valueOf(1.0),"y"),
+                               make(1,"c",0,BigDecimal.valueOf(1.0),"z"),
+                               make(1,"d",0,BigDecimal.valueOf(1.0),"w"));
+        var prefetching = new RegularDifferencer<MyType,MyTypeKey>(KEY_COMPARATOR, DATA_COMPARATOR).withPrefetch(2);
+
+        prefetching.computeDiff(original, revised, stats);
+
+        assertEquals(1, stats.getEqualCount().get());
+        assertEquals(Set.of(new MyTypeKey("d", 1L)), stats.getAddedKeys());
+        assertEquals(Set.of(new MyTypeKey("a", 1L)), stats.getDroppedKeys());
+        assertEquals(Set.of(new MyTypeKey("b", 1L)), stats.getChangedKeys());
+        assertTrue(prefetching.getMetrics().getExpectedWaitNanos().get() >= 0);
+    }
+
+    @Test
+    void prefetch_propagatesValidationFailure() {
+        var unsorted = List.of(
+                make(1,"b",0,BigDecimal.valueOf(1.0),"cool"),
+                make(1,"a",0,BigDecimal.valueOf(1.0),"cool")
+        );
+        var vDiff = RegularDifferencer.<MyType,MyTypeKey>withValidation(KEY_COMPARATOR, DATA_COMPARATOR).withPrefetch(4);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> vDiff.computeDiff(unsorted, unsorted, new ComparisonResultStats<>()));
+    }
+
+    @Test
+    void prefetch_recordsWaitsOfAFailedRun() {
+        var unsorted = List.of(
+                make(1,"b",0,BigDecimal.valueOf(1.0),"cool"),
+                make(1,"a",0,BigDecimal.valueOf(1.0),"cool")
+        );
+        Iterable<MyType> slow = () -> unsorted.stream().peek(row -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }).iterator();
+        var vDiff = RegularDifferencer.<MyType,MyTypeKey>withValidation(KEY_COMPARATOR, DATA_COMPARATOR).withPrefetch(4);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> vDiff.computeDiff(slow, unsorted, new ComparisonResultStats<>()));
+        assertTrue(vDiff.getMetrics().getExpectedWaitNanos().get() > 0);
+    }
+
+    @Test
+    void parallelComparison_deliversSameEventsInKeyOrder() {
+        List<MyType> original = new ArrayList<>();
+        List<MyType> revised  = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            String name = String.format("k%05d", i);
+            if (i % 7 != 0) original.add(make(1, name, 0, BigDecimal.valueOf(i), "x"));
+            if (i % 11 != 0) revised.add(make(1, name, i % 5 == 0 ? 1 : 0, BigDecimal.valueOf(i), "x"));
+        }
+        var regular = new RegularDifferencer<MyType,MyTypeKey>(KEY_COMPARATOR, DATA_COMPARATOR);
+        List<String> expectedEvents = new ArrayList<>();
+        regular.computeDiff(original, revised, record(expectedEvents));
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            var parallel = regular.withParallelComparison(pool, 16, 3);
+            List<String> events = new ArrayList<>();
+            parallel.computeDiff(original, revised, record(events));
+            assertEquals(expectedEvents, events);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void parallelComparison_propagatesComparatorFailure() {
+        var original = List.of(make(1,"a",0,BigDecimal.valueOf(1.0),"x"),
+                               make(1,"b",0,BigDecimal.valueOf(1.0),"y"));
+        DiffComparator<MyType> failing = (o1, o2) -> {
+            throw new IllegalStateException("boom");
+        };
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            var parallel = new RegularDifferencer<MyType,MyTypeKey>(KEY_COMPARATOR, failing)
+                    .withParallelComparison(pool, 1, 1);
+            var ex = assertThrows(IllegalStateException.class,
+                    () -> parallel.computeDiff(original, original, stats));
+            assertEquals("boom", ex.getMessage());
+            assertEquals(0, stats.getEqualCount().get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static BatchComparisonResultHandler<MyType,MyTypeKey> record(List<String> events) {
+        return batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                events.add(batch.type(i) + ":" + batch.id(i).name());
+            }
+        };
+    }
 }
@@ -0,0 +1,140 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class RowArenaTest {
+
+    private static final Comparator<Row> KEY_COMPARATOR =
+            Comparator.comparing(Row::value).thenComparingLong(Row::id);
+
+    private static final KeyEncoder<Row> KEY_ENCODER = KeyEncoder.<Row>create()
+            .thenString(Row::value)
+            .thenLong(Row::id);
+
+    @TempDir
+    Path tempDir;
+
+    private static List<Row> randomRows(int n, long seed) {
+        Random random = new Random(seed);
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            rows.add(new Row(random.nextInt(n / 4 + 1), "v" + random.nextInt(50)));
+        }
+        return rows;
+    }
+
+    @Test
+    void rowsReadBackAsAppended() {
+        List<Row> rows = randomRows(2_000, 1);
+        RowArena<Row> arena = new RowArena<>(SERIALIZER, null, 256);
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(i, arena.append(rows.get(i)));
+        }
+        assertEquals(rows.size(), arena.size());
+        assertEquals(rows.get(1234), arena.get(1234));
+        List<Row> read = new ArrayList<>();
+        arena.forEach(read::add);
+        assertEquals(rows, read);
+        assertThrows(IllegalStateException.class, arena::sortedByKey);
+        assertThrows(IndexOutOfBoundsException.class, () -> arena.get(rows.size()));
+    }
+
+    @Test
+    void keyOrderMatchesTheComparatorAndIsStable() {
+        List<Row> rows = randomRows(5_000, 2);
+        RowArena<Row> arena = new RowArena<>(SERIALIZER, KEY_ENCODER, 4096);
+        rows.forEach(arena::append);
+        List<Row> expected = new ArrayList<>(rows);
+        expected.sort(KEY_COMPARATOR);
+        List<Row> sorted = new ArrayList<>();
+        arena.inKeyOrder().forEach(sorted::add);
+        assertEquals(expected, sorted);
+
+        // equal keys keep the order they were appended in
+        int[] order = arena.sortedByKey();
+        for (int i = 1; i < order.length; i++) {
+            if (arena.compareKeys(order[i - 1], order[i]) == 0) {
+                assertTrue(order[i - 1] < order[i]);
+            }
+        }
+    }
+
+    @Test
+    void clearedArenaReusesItsBuffers() {
+        RowArena<Row> arena = new RowArena<>(SERIALIZER, KEY_ENCODER, 1024);
+        randomRows(1_000, 3).forEach(arena::append);
+        long capacity = arena.capacity();
+        assertTrue(arena.bytesUsed() <= capacity);
+
+        arena.clear();
+        assertEquals(0, arena.size());
+        assertEquals(0, arena.bytesUsed());
+        List<Row> rows = randomRows(1_000, 4);
+        rows.forEach(arena::append);
+        assertEquals(capacity, arena.capacity());
+        List<Row> read = new ArrayList<>();
+        arena.forEach(read::add);
+        assertEquals(rows, read);
+    }
+
+    @Test
+    void rowLargerThanAChunkGetsAChunkOfItsOwn() {
+        RowArena<Row> arena = new RowArena<>(SERIALIZER, KEY_ENCODER, 64);
+        Row big = new Row(7, "x".repeat(1_000));
+        arena.append(new Row(1, "a"));
+        arena.append(big);
+        arena.append(new Row(2, "b"));
+        assertEquals(big, arena.get(1));
+        assertEquals(List.of(new Row(1, "a"), new Row(2, "b"), big),
+                Arrays.stream(arena.sortedByKey()).mapToObj(arena::get).toList());
+    }
+
+    @Test
+    void offHeapSortMatchesHeapSort() throws IOException {
+        List<Row> rows = randomRows(20_000, 5);
+        List<Row> heap = new ArrayList<>();
+        try (var runs = new ExternalSorter<>(KEY_COMPARATOR, SERIALIZER, 1_000, 2, tempDir).sort(rows)) {
+            runs.forEach(heap::add);
+        }
+        List<Row> offHeap = new ArrayList<>();
+        try (var runs = new ExternalSorter<>(KEY_COMPARATOR, KEY_ENCODER, SERIALIZER, 32 * 1024, 2, tempDir).sort(rows)) {
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertTrue(files.findAny().isPresent(), "expected the off-heap sort to spill");
+            }
+            runs.forEach(offHeap::add);
+        }
+        assertEquals(heap, offHeap);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void offHeapSortOfSmallInputStaysInMemory() throws IOException {
+        List<Row> rows = randomRows(100, 6);
+        List<Row> sorted = new ArrayList<>();
+        try (var runs = new ExternalSorter<>(KEY_COMPARATOR, KEY_ENCODER, SERIALIZER, 1 << 20, 2, tempDir).sort(rows)) {
+            runs.forEach(sorted::add);
+        }
+        List<Row> expected = new ArrayList<>(rows);
+        expected.sort(KEY_COMPARATOR);
+        assertEquals(expected, sorted);
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package sandkev.differencer;
+
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.ComparisonResultHandler;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.Identifiable;
+import sandkev.differencer.api.RecordSerializer;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * The keyed row most of the differencer tests diff, with its comparators and serializer, random
+ * inputs, and a handler that records the events.
+ */
+final class RowFixture {
+
+    record Row(long id, String value) implements Identifiable<Long> {
+        @Override
+        public Long getId() {
+            return id;
+        }
+    }
+
+    static final Comparator<Row> KEY_COMPARATOR = Comparator.comparingLong(Row::id);
+
+    /**
+     * Compares (actual, expected), as the differencers call it, and reports a different value as Changed.
+     */
+    static final DiffComparator<Row> DATA_COMPARATOR = (o1, o2) -> {
+        DiffSummary diffs = new DiffSummary();
+        if (!Objects.equals(o1.value(), o2.value())) {
+            diffs.addDiff("value", o2.value(), o1.value(), ComparisonResult.Changed);
+        }
+        return diffs;
+    };
+
+    static final RecordSerializer<Row> SERIALIZER = new RecordSerializer<>() {
+        @Override
+        public void write(Row record, DataOutput out) throws IOException {
+            out.writeLong(record.id());
+            out.writeUTF(record.value());
+        }
+
+        @Override
+        public Row read(DataInput in) throws IOException {
+            return new Row(in.readLong(), in.readUTF());
+        }
+    };
+
+    private RowFixture() {
+    }
+
+    /**
+     * Builds expected/actual sides over [0, n), in key order, with roughly 10% drops, adds and changes each.
+     */
+    static List<List<Row>> sides(int n, long seed) {
+        return sides(n, new Random(seed));
+    }
+
+    /**
+     * Builds sides as {@link #sides} does, each shuffled.
+     */
+    static List<List<Row>> shuffledSides(int n, long seed) {
+        Random random = new Random(seed);
+        List<List<Row>> sides = sides(n, random);
+        Collections.shuffle(sides.get(0), random);
+        Collections.shuffle(sides.get(1), random);
+        return sides;
+    }
+
+    private static List<List<Row>> sides(int n, Random random) {
+        List<Row> expected = new ArrayList<>(), actual = new ArrayList<>();
+        for (long id = 0; id < n; id++) {
+            int dice = random.nextInt(10);
+            if (dice != 0) expected.add(new Row(id, "v" + id));
+            if (dice != 1) actual.add(new Row(id, dice == 2 ? "changed" + id : "v" + id));
+        }
+        return List.of(expected, actual);
+    }
+
+    /**
+     * @return a handler that adds each event to events as "type:id", in delivery order
+     */
+    static <T,K> ComparisonResultHandler<T,K> recording(List<String> events) {
+        return new ComparisonResultHandler<>() {
+            @Override
+            public void onEqual(K id) {
+                events.add("Equal:" + id);
+            }
+
+            @Override
+            public void onApproximatelyEqual(K id, DiffSummary diff) {
+                events.add("ApproximatelyEqual:" + id);
+            }
+
+            @Override
+            public void onAdded(K id, T added) {
+                events.add("Added:" + id);
+            }
+
+            @Override
+            public void onDropped(K id, T dropped) {
+                events.add("Dropped:" + id);
+            }
+
+            @Override
+            public void onChanged(K id, DiffSummary diff) {
+                events.add("Changed:" + id);
+            }
+        };
+    }
+}
@@ -0,0 +1,147 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.SeekableIterator;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class SeekableSourceTest {
+
+    @Test
+    void seekLandsOnTheFirstKeyNotBeforeTheTarget() {
+        List<Row> rows = new ArrayList<>();
+        for (long id = 0; id < 10_000; id += 3) {
+            rows.add(new Row(id, "v"));
+        }
+        Random random = new Random(42);
+        var it = new SortedListSource<Row,Long>(rows, Comparator.naturalOrder()).iterator();
+        long target = 0;
+        long last = -3;
+        while (true) {
+            target += random.nextInt(200);
+            it.seekTo(target);
+            long expected = Math.max((target + 2) / 3 * 3, last + 3);
+            if (expected >= 10_000) {
+                assertFalse(it.hasNext());
+                break;
+            }
+            last = it.next().id();
+            assertEquals(expected, last);
+        }
+    }
+
+    @Test
+    void seekNeverGoesBack() {
+        var it = new SortedListSource<Row,Long>(List.of(new Row(1, "a"), new Row(5, "b"), new Row(9, "c")),
+                Comparator.naturalOrder()).iterator();
+        it.seekTo(5L);
+        assertEquals(5L, it.next().id());
+        it.seekTo(2L);
+        assertEquals(9L, it.next().id());
+    }
+
+    @Test
+    void rejectsListsWithoutRandomAccess() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new SortedListSource<Row,Long>(new LinkedList<>(), Comparator.naturalOrder()));
+    }
+
+    @Test
+    void sparseAgainstDenseOnlyTouchesTheSparseKeys() {
+        List<Row> dense = new ArrayList<>();
+        for (long id = 0; id < 1_000_000; id++) {
+            dense.add(new Row(id, "v"));
+        }
+        List<Row> sparse = new ArrayList<>();
+        for (long id = 500; id < 1_000_000; id += 10_000) {
+            sparse.add(new Row(id, id % 20_000 == 500 ? "v" : "x"));
+        }
+        sparse.add(new Row(2_000_000, "new"));
+
+        AtomicLong keyComparisons = new AtomicLong();
+        Comparator<Long> countingOrder = (k1, k2) -> {
+            keyComparisons.incrementAndGet();
+            return Long.compare(k1, k2);
+        };
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR);
+        List<String> events = new ArrayList<>();
+        differencer.computeDiff(new SortedListSource<Row,Long>(dense, countingOrder), sparse, recording(events),
+                EnumSet.of(ComparisonResult.Equal, ComparisonResult.Changed, ComparisonResult.Added));
+
+        List<String> expected = new ArrayList<>();
+        for (Row row : sparse.subList(0, sparse.size() - 1)) {
+            expected.add((row.value().equals("v") ? "Equal:" : "Changed:") + row.id());
+        }
+        expected.add("Added:2000000");
+        assertEquals(expected, events);
+        assertTrue(keyComparisons.get() < 5_000, "key comparisons: " + keyComparisons.get());
+        assertEquals(sparse.size(), differencer.getMetrics().getSeekCount().get());
+    }
+
+    @Test
+    void filteredDiffMatchesTheFullDiffFiltered() {
+        Random random = new Random(7);
+        List<Row> expected = new ArrayList<>();
+        List<Row> actual = new ArrayList<>();
+        for (long id = 0; id < 5_000; id++) {
+            int roll = random.nextInt(10);
+            if (roll < 6) {
+                expected.add(new Row(id, "v"));
+            }
+            if (roll >= 3) {
+                actual.add(new Row(id, roll == 9 ? "w" : "v"));
+            }
+        }
+        for (var wanted : List.of(EnumSet.of(ComparisonResult.Changed),
+                                  EnumSet.of(ComparisonResult.Added, ComparisonResult.Equal),
+                                  EnumSet.of(ComparisonResult.Dropped),
+                                  EnumSet.of(ComparisonResult.Added, ComparisonResult.Dropped))) {
+            List<String> all = new ArrayList<>();
+            new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(expected, actual, recording(all));
+            List<String> filtered = all.stream()
+                    .filter(event -> wanted.contains(ComparisonResult.valueOf(event.substring(0, event.indexOf(':')))))
+                    .toList();
+
+            List<String> sought = new ArrayList<>();
+            RegularDifferencer.<Row,Long>withValidation(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(
+                    new SortedListSource<Row,Long>(expected, Comparator.naturalOrder()),
+                    new SortedListSource<Row,Long>(actual, Comparator.naturalOrder()),
+                    recording(sought), wanted);
+            assertEquals(filtered, sought, wanted.toString());
+        }
+    }
+
+    @Test
+    void validationKeepsTheSourceSeekable() {
+        var source = new SortedListSource<Row,Long>(List.of(new Row(1, "a")), Comparator.naturalOrder());
+        assertInstanceOf(SeekableIterator.class, new ValidatingIterable<>(source, KEY_COMPARATOR).iterator());
+    }
+
+    @Test
+    void matchedPairsAreNotComparedWhenNoMatchResultIsWanted() {
+        DiffComparator<Row> failing = (o1, o2) -> fail("should not compare");
+        List<String> events = new ArrayList<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, failing).computeDiff(
+                List.of(new Row(1, "a"), new Row(2, "b")), List.of(new Row(2, "b"), new Row(3, "c")),
+                recording(events), EnumSet.of(ComparisonResult.Added, ComparisonResult.Dropped));
+        assertEquals(List.of("Dropped:1", "Added:3"), events);
+    }
+
+    @Test
+    void rejectsAnEmptyWantedSet() {
+        var differencer = new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR);
+        assertThrows(IllegalArgumentException.class, () -> differencer.computeDiff(List.of(), List.of(),
+                recording(new ArrayList<>()), EnumSet.noneOf(ComparisonResult.class)));
+    }
+}
@@ -0,0 +1,113 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class SortingDifferencerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static ComparisonResultStats<Row,Long> sortedInMemory(List<Row> expected, List<Row> actual) {
+        List<Row> e = new ArrayList<>(expected), a = new ArrayList<>(actual);
+        e.sort(KEY_COMPARATOR);
+        a.sort(KEY_COMPARATOR);
+        ComparisonResultStats<Row,Long> stats = new ComparisonResultStats<>();
+        new RegularDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR).computeDiff(e, a, stats);
+        return stats;
+    }
+
+    @Test
+    void spilledDiffMatchesInMemorySortThenDiff() throws IOException {
+        var sides = shuffledSides(20_000, 1);
+        var differencer = new SortingDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, SERIALIZER, 1_000, 3, tempDir);
+
+        ComparisonResultStats<Row,Long> stats = new ComparisonResultStats<>();
+        differencer.computeDiff(sides.get(0), sides.get(1), stats);
+
+        ComparisonResultStats<Row,Long> reference = sortedInMemory(sides.get(0), sides.get(1));
+        assertAll(
+                () -> assertEquals(reference.getEqualCount().get(),   stats.getEqualCount().get()),
+                () -> assertEquals(reference.getChangedKeys(),        stats.getChangedKeys()),
+                () -> assertEquals(reference.getAddedKeys(),          stats.getAddedKeys()),
+                () -> assertEquals(reference.getDroppedKeys(),        stats.getDroppedKeys())
+        );
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(0, files.count(), "run files should be deleted after the diff");
+        }
+    }
+
+    @Test
+    void sorterSpillsRunsAndMergesThemInOrder() throws IOException {
+        List<Row> rows = shuffledSides(5_000, 2).get(0);
+        var sorter = new ExternalSorter<>(KEY_COMPARATOR, SERIALIZER, 400, 3, tempDir);
+
+        try (ExternalSorter.SortedRuns<Row> sorted = sorter.sort(rows)) {
+            assertTrue(sorted.runCount() > 1, "input larger than the budget should spill");
+            List<Row> merged = new ArrayList<>();
+            sorted.forEach(merged::add);
+
+            List<Row> expected = new ArrayList<>(rows);
+            expected.sort(KEY_COMPARATOR);
+            assertEquals(expected, merged);
+        }
+    }
+
+    @Test
+    void inputWithinBudgetIsSortedWithoutSpilling() throws IOException {
+        List<Row> rows = List.of(new Row(3, "c"), new Row(1, "a"), new Row(2, "b"));
+        var sorter = new ExternalSorter<>(KEY_COMPARATOR, SERIALIZER, 100, 2, tempDir);
+
+        try (ExternalSorter.SortedRuns<Row> sorted = sorter.sort(rows)) {
+            assertEquals(0, sorted.runCount());
+            assertIterableEquals(List.of(new Row(1, "a"), new Row(2, "b"), new Row(3, "c")), sorted);
+        }
+    }
+
+    @Test
+    void throwsOnDuplicateKeys() {
+        List<Row> rows = List.of(new Row(2, "b"), new Row(1, "a"), new Row(2, "b2"));
+        var differencer = new SortingDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR, SERIALIZER, 100, 2, tempDir);
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> differencer.computeDiff(rows, List.of(), new ComparisonResultStats<>()));
+        assertTrue(ex.getMessage().contains("Duplicate key detected: <2>"));
+    }
+
+    @Test
+    void failingSourceLeavesNoRunFiles() throws IOException {
+        List<Row> rows = shuffledSides(5_000, 3).get(0);
+        Iterable<Row> failing = () -> rows.stream().limit(3_000).map(row -> {
+            if (row == rows.get(2_999)) {
+                throw new IllegalStateException("source failed");
+            }
+            return row;
+        }).iterator();
+        var heap = new ExternalSorter<>(KEY_COMPARATOR, SERIALIZER, 400, 3, tempDir);
+        var offHeap = new ExternalSorter<>(KEY_COMPARATOR, KeyEncoder.<Row>create().thenLong(Row::id), SERIALIZER,
+                8 * 1024, 3, tempDir);
+
+        for (ExternalSorter<Row> sorter : List.of(heap, offHeap)) {
+            assertThrows(IllegalStateException.class, () -> sorter.sort(failing));
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertEquals(0, files.count(), "spilled runs should be deleted when the source fails");
+            }
+        }
+    }
+
+    @Test
+    void rejectsBudgetSmallerThanParallelism() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ExternalSorter<>(KEY_COMPARATOR, SERIALIZER, 2, 4, tempDir));
+    }
+}
@@ -0,0 +1,101 @@
+package sandkev.differencer;
+
+import org.junit.jupiter.api.Test;
+import sandkev.differencer.api.ComparisonResult;
+import sandkev.differencer.api.DiffComparator;
+import sandkev.differencer.api.ThreeWayOutcome;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sandkev.differencer.RowFixture.*;
+
+class ThreeWayDifferencerTest {
+
+    @Test
+    void classifiesEachKeyAgainstTheBase() {
+        var base  = List.of(new Row(1, "a"), new Row(2, "b"), new Row(3, "c"), new Row(4, "d"), new Row(5, "e"), new Row(6, "f"));
+        var left  = List.of(new Row(1, "a"), new Row(2, "B"), new Row(3, "c"), new Row(4, "D"), new Row(5, "x"),                   new Row(7, "g"));
+        var right = List.of(new Row(1, "a"), new Row(2, "b"), new Row(3, "C"), new Row(4, "D"), new Row(5, "y"),                   new Row(7, "h"));
+
+        Map<Long, ThreeWayOutcome> outcomes = new LinkedHashMap<>();
+        new ThreeWayDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR)
+                .computeDiff(base, left, right, (id, outcome, b, l, r) -> outcomes.put(id, outcome));
+
+        assertEquals(Map.of(
+                1L, ThreeWayOutcome.Unchanged,
+                2L, ThreeWayOutcome.ChangedLeftOnly,
+                3L, ThreeWayOutcome.ChangedRightOnly,
+                4L, ThreeWayOutcome.ChangedBothSame,
+                5L, ThreeWayOutcome.Conflict,
+                6L, ThreeWayOutcome.ChangedBothSame,
+                7L, ThreeWayOutcome.Conflict), outcomes);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), List.copyOf(outcomes.keySet()));
+    }
+
+    @Test
+    void oneSidedAdditionsAndDeletionsAreChanges() {
+        var base  = List.of(new Row(1, "a"));
+        var left  = List.<Row>of();
+        var right = List.of(new Row(1, "a"), new Row(2, "b"));
+
+        Map<Long, ThreeWayOutcome> outcomes = new LinkedHashMap<>();
+        new ThreeWayDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR)
+                .computeDiff(base, left, right, (id, outcome, b, l, r) -> {
+                    outcomes.put(id, outcome);
+                    if (id == 1L) {
+                        assertNull(l);
+                        assertEquals("a", b.value());
+                    }
+                });
+
+        assertEquals(Map.of(1L, ThreeWayOutcome.ChangedLeftOnly, 2L, ThreeWayOutcome.ChangedRightOnly), outcomes);
+    }
+
+    @Test
+    void approximatelyEqualRecordsAreUnchanged() {
+        // values that differ only in case are approximately equal
+        DiffComparator<Row> ignoringCase = (o1, o2) -> {
+            DiffSummary diffs = new DiffSummary();
+            if (!o1.value().equals(o2.value())) {
+                diffs.addDiff("value", o2.value(), o1.value(), o1.value().equalsIgnoreCase(o2.value())
+                        ? ComparisonResult.ApproximatelyEqual : ComparisonResult.Changed);
+            }
+            return diffs;
+        };
+        var base  = List.of(new Row(1, "a"), new Row(2, "b"), new Row(3, "c"), new Row(4, "d"));
+        var left  = List.of(new Row(1, "A"), new Row(2, "x"), new Row(3, "c"), new Row(4, "y"));
+        var right = List.of(new Row(1, "a"), new Row(2, "X"), new Row(3, "C"), new Row(4, "z"));
+
+        Map<Long, ThreeWayOutcome> outcomes = new LinkedHashMap<>();
+        new ThreeWayDifferencer<Row,Long>(KEY_COMPARATOR, ignoringCase)
+                .computeDiff(base, left, right, (id, outcome, b, l, r) -> outcomes.put(id, outcome));
+
+        assertEquals(Map.of(
+                1L, ThreeWayOutcome.Unchanged,
+                2L, ThreeWayOutcome.ChangedBothSame,
+                3L, ThreeWayOutcome.Unchanged,
+                4L, ThreeWayOutcome.Conflict), outcomes);
+    }
+
+    @Test
+    void keysMissingFromSomeSources() {
+        var base  = List.of(                                        new Row(3, "c"), new Row(4, "d"), new Row(5, "e"));
+        var left  = List.of(new Row(1, "a"), new Row(2, "b"),                         new Row(4, "d"));
+        var right = List.of(new Row(1, "a"),                        new Row(3, "c"));
+
+        Map<Long, ThreeWayOutcome> outcomes = new LinkedHashMap<>();
+        new ThreeWayDifferencer<Row,Long>(KEY_COMPARATOR, DATA_COMPARATOR)
+                .computeDiff(base, left, right, (id, outcome, b, l, r) -> outcomes.put(id, outcome));
+
+        assertEquals(Map.of(
+                1L, ThreeWayOutcome.ChangedBothSame,   // added to both sides alike
+                2L, ThreeWayOutcome.ChangedLeftOnly,   // added to left only
+                3L, ThreeWayOutcome.ChangedLeftOnly,   // deleted from left only
+                4L, ThreeWayOutcome.ChangedRightOnly,  // deleted from right only
+                5L, ThreeWayOutcome.ChangedBothSame),  // only the base has it
+                outcomes);
+    }
+}